@@ -1,5 +1,6 @@
 package org.ex9.auditlib.annotation;
 
+import org.ex9.auditlib.util.AuditMode;
 import org.springframework.boot.logging.LogLevel;
 
 import java.lang.annotation.ElementType;
@@ -22,6 +23,40 @@ import java.lang.annotation.Target;
  *     }
  * </pre>
  * </p>
+ * <p>
+ * Ограничения снимка аргументов и результата по умолчанию берутся из
+ * <code>audit.logging.capture.*</code>; значение меньше 1 в аннотации означает глобальную настройку.
+ * <pre>
+ *     &#64;AuditLog(maxElements = 10, maxStringLength = 200)
+ *     public List&lt;Order&gt; findOrders(Filter filter) { ... }
+ * </pre>
+ * </p>
+ * <p>
+ * Часто вызываемые методы можно прореживать выборкой и ограничением частоты. Решение принимается
+ * на весь вызов, поэтому START и END не разделяются:
+ * <pre>
+ *     &#64;AuditLog(sampleRate = 0.01, maxEventsPerSecond = 100)
+ *     public Price quote(String symbol) { ... }
+ * </pre>
+ * </p>
+ * <p>
+ * Если важен только факт и длительность вызова, снимок можно сузить до нужных аргументов и свойств
+ * или отключить совсем:
+ * <pre>
+ *     &#64;AuditLog(argIndexes = 0, includeFields = {"id", "status"})
+ *     public List&lt;Order&gt; findOrders(Filter filter, Pageable page) { ... }
+ *
+ *     &#64;AuditLog(captureArgs = false, captureResult = false)
+ *     public void reindex(Catalog catalog) { ... }
+ * </pre>
+ * </p>
+ * <p>
+ * Для самых частых методов вместо событий можно писать сводку за окно:
+ * <pre>
+ *     &#64;AuditLog(mode = AuditMode.AGGREGATE)
+ *     public Price quote(String symbol) { ... }
+ * </pre>
+ * </p>
  * @author Краковцев Артём
  */
 @Target(ElementType.METHOD)
@@ -29,9 +64,87 @@ import java.lang.annotation.Target;
 public @interface AuditLog {
     /**
      * Уровень логирования для событий, связанных с методом.
-     * По умолчанию используется уровень INFO.
+     * По умолчанию используется уровень INFO. Если уровень выключен для логгера аспекта,
+     * событие не создаётся; <code>OFF</code> отключает аудит метода.
      *
      * @return уровень логирования
      */
     LogLevel logLevel() default LogLevel.INFO;
+
+    /**
+     * @return максимальная глубина вложенности объектов
+     */
+    int maxDepth() default -1;
+
+    /**
+     * @return максимальное количество элементов коллекции, массива или словаря
+     */
+    int maxElements() default -1;
+
+    /**
+     * @return максимальная длина строки
+     */
+    int maxStringLength() default -1;
+
+    /**
+     * @return приблизительный общий объём аргументов или результата в байтах
+     */
+    long maxBytes() default -1;
+
+    /**
+     * Доля аудируемых вызовов до 1. Значение не больше 0 означает глобальную настройку
+     * <code>audit.logging.sampling.sample-rate</code>.
+     *
+     * @return доля аудируемых вызовов
+     */
+    double sampleRate() default -1;
+
+    /**
+     * Максимальное количество аудируемых вызовов метода в секунду; каждый вызов даёт пару событий START и END.
+     * Значение меньше 1 означает глобальную настройку <code>audit.logging.sampling.max-events-per-second</code>.
+     *
+     * @return ограничение частоты вызовов
+     */
+    int maxEventsPerSecond() default -1;
+
+    /**
+     * @return true, если в событие START записываются аргументы метода
+     */
+    boolean captureArgs() default true;
+
+    /**
+     * @return true, если в событие END записывается результат метода
+     */
+    boolean captureResult() default true;
+
+    /**
+     * Номера аргументов с нуля, попадающих в снимок. Остальные аргументы не читаются и записываются
+     * маркером <code>&lt;omitted&gt;</code>. Пустой массив означает все аргументы.
+     *
+     * @return номера аргументов
+     */
+    int[] argIndexes() default {};
+
+    /**
+     * Пути свойств аргументов и результата, попадающих в снимок, например <code>customer.name</code>.
+     * Применяются и к элементам коллекций. Пустой массив означает все свойства.
+     *
+     * @return пути включаемых свойств
+     */
+    String[] includeFields() default {};
+
+    /**
+     * Пути свойств аргументов и результата, исключаемых из снимка.
+     *
+     * @return пути исключаемых свойств
+     */
+    String[] excludeFields() default {};
+
+    /**
+     * Режим аудита метода. {@link AuditMode#DEFAULT} означает глобальную настройку
+     * <code>audit.logging.aggregation.mode</code>.
+     *
+     * @return режим аудита
+     */
+    AuditMode mode() default AuditMode.DEFAULT;
 }
@@ -8,6 +8,7 @@ import org.apache.logging.log4j.core.appender.rolling.SizeBasedTriggeringPolicy;
 import org.apache.logging.log4j.core.config.Property;
 import org.ex9.auditlib.layout.AuditJsonLayout;
 import org.ex9.auditlib.layout.AuditStringLayout;
+import org.ex9.auditlib.property.AuditKafkaProperties;
 import org.ex9.auditlib.service.KafkaPublishService;
 import org.ex9.auditlib.util.LogMode;
 import org.apache.logging.log4j.core.config.Configuration;
@@ -21,15 +22,42 @@ import org.apache.logging.log4j.core.config.Configuration;
 public class AppenderFabric {
 
     public static Appender getAppender(LogMode logMode, Configuration config, KafkaPublishService kafkaPublishService) {
+        return getAppender(logMode, config, kafkaPublishService, null);
+    }
+
+    public static Appender getAppender(LogMode logMode,
+                                       Configuration config,
+                                       KafkaPublishService kafkaPublishService,
+                                       AuditKafkaProperties auditKafkaProperties) {
+        return getAppender(logMode, config, kafkaPublishService, auditKafkaProperties, false);
+    }
+
+    /**
+     * Создаёт аппендер для режима логирования.
+     *
+     * @param logMode              режим логирования
+     * @param config               конфигурация Log4j
+     * @param kafkaPublishService  сервис отправки в Kafka, нужен для режима KAFKA
+     * @param auditKafkaProperties настройки Kafka, может быть null
+     * @param shareEncoded         событие выводится несколькими текстовыми аппендерами,
+     *                             и закодированную строку лога нужно переиспользовать
+     * @return аппендер или null, если его не удалось создать
+     */
+    public static Appender getAppender(LogMode logMode,
+                                       Configuration config,
+                                       KafkaPublishService kafkaPublishService,
+                                       AuditKafkaProperties auditKafkaProperties,
+                                       boolean shareEncoded) {
         return switch (logMode) {
-            case CONSOLE -> createConsoleAppender(config);
-            case FILE -> createFileAppender(config);
-            case KAFKA -> createKafkaAppender(kafkaPublishService);
+            case CONSOLE -> createConsoleAppender(config, shareEncoded);
+            case FILE -> createFileAppender(config, shareEncoded);
+            case KAFKA -> createKafkaAppender(kafkaPublishService,
+                    auditKafkaProperties != null ? auditKafkaProperties.getAsync() : null);
         };
     }
 
-    private static Appender createFileAppender(Configuration config) {
-        AuditStringLayout layout = AuditStringLayout.createLayout();
+    private static Appender createFileAppender(Configuration config, boolean shareEncoded) {
+        AuditStringLayout layout = AuditStringLayout.createLayout(shareEncoded);
 
         String logFilePath = "logs/audit.log";
         SizeBasedTriggeringPolicy policy = SizeBasedTriggeringPolicy.createPolicy("1MB");
@@ -47,8 +75,8 @@ public class AppenderFabric {
         return fileAppender;
     }
 
-    private static Appender createConsoleAppender(Configuration config) {
-        AuditStringLayout layout = AuditStringLayout.createLayout();
+    private static Appender createConsoleAppender(Configuration config, boolean shareEncoded) {
+        AuditStringLayout layout = AuditStringLayout.createLayout(shareEncoded);
 
         ConsoleAppender consoleAppender = ConsoleAppender.newBuilder()
                 .setName("Console")
@@ -61,7 +89,7 @@ public class AppenderFabric {
         return consoleAppender;
     }
 
-    private static Appender createKafkaAppender(KafkaPublishService kafkaPublishService) {
+    private static Appender createKafkaAppender(KafkaPublishService kafkaPublishService, AuditKafkaProperties.Async async) {
         if (kafkaPublishService == null) {
             log.error("KafkaPublishService is not available.");
             return null;
@@ -74,7 +102,7 @@ public class AppenderFabric {
                     true,
                     layout,
                     null,
-                    Property.EMPTY_ARRAY, kafkaPublishService);
+                    Property.EMPTY_ARRAY, kafkaPublishService, async);
             kafkaAppender.start();
             return kafkaAppender;
         } catch (Exception e) {
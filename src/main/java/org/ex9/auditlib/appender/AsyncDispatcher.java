@@ -0,0 +1,184 @@
+package org.ex9.auditlib.appender;
+
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.ThreadContext;
+import org.apache.logging.log4j.status.StatusLogger;
+import org.ex9.auditlib.property.AuditKafkaProperties;
+import org.ex9.auditlib.util.WaitStrategy;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Асинхронная передача событий из потоков логирования в отдельный поток отправки.
+ * <p>
+ * Потоки приложения только ставят событие в {@link AuditRingBuffer}; выделенный поток разбирает
+ * буфер пачками по {@link AuditKafkaProperties.Async#getDrainBatchSize()} и передаёт события обработчику.
+ * Поведение потока при пустом буфере определяется {@link WaitStrategy}.
+ * </p>
+ *
+ * @param <E> тип событий
+ * @author Краковцев Артём
+ */
+public class AsyncDispatcher<E> {
+
+    private static final Logger LOGGER = StatusLogger.getLogger();
+    private static final String KAFKA_LOGGING_KEY = "kafkaLogging";
+    private static final int SPIN_TRIES = 100;
+    private static final long PARK_NANOS = 10_000_000L;
+
+    private final AuditRingBuffer<E> buffer;
+    private final int drainBatchSize;
+    private final WaitStrategy waitStrategy;
+    private final Consumer<E> handler;
+    private final Thread worker;
+
+    /** Количество вызовов {@link #dispatch}, которые прошли проверку {@link #running} и ещё не вернулись. */
+    private final AtomicInteger dispatching = new AtomicInteger();
+
+    private volatile boolean running;
+    private volatile boolean parked;
+
+    /**
+     * @param name     имя потока отправки
+     * @param settings настройки асинхронной передачи
+     * @param handler  обработчик событий, вызываемый в потоке отправки
+     */
+    public AsyncDispatcher(String name, AuditKafkaProperties.Async settings, Consumer<E> handler) {
+        this.buffer = new AuditRingBuffer<>(settings.getQueueCapacity());
+        this.drainBatchSize = Math.max(1, settings.getDrainBatchSize());
+        this.waitStrategy = settings.getWaitStrategy();
+        this.handler = handler;
+        this.worker = new Thread(this::run, name);
+        this.worker.setDaemon(true);
+    }
+
+    public void start() {
+        running = true;
+        worker.start();
+    }
+
+    /**
+     * Ставит событие в очередь.
+     *
+     * @param event событие
+     * @return false, если очередь заполнена или передача остановлена
+     */
+    public boolean dispatch(E event) {
+        dispatching.incrementAndGet();
+        try {
+            if (!running || !buffer.offer(event)) {
+                return false;
+            }
+            if (parked) {
+                LockSupport.unpark(worker);
+            }
+            return true;
+        } finally {
+            dispatching.decrementAndGet();
+        }
+    }
+
+    /**
+     * Останавливает приём событий и ждёт, пока поток отправки разберёт очередь.
+     * <p>
+     * Вызов {@link #dispatch}, начатый до остановки, может поставить событие уже после выхода потока отправки.
+     * Такие события дожидаются и обрабатываются в вызывающем потоке.
+     * </p>
+     *
+     * @param timeout максимальное время ожидания
+     * @return количество событий, оставшихся неотправленными
+     */
+    public int stop(Duration timeout) {
+        long deadline = System.nanoTime() + Math.max(1, timeout.toNanos());
+        running = false;
+        LockSupport.unpark(worker);
+        try {
+            worker.join(Math.max(1, timeout.toMillis()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        while (dispatching.get() > 0 && System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+        if (!worker.isAlive()) {
+            // поток отправки завершён, буфер снова читает один потребитель
+            List<E> leftovers = new ArrayList<>();
+            if (buffer.drainTo(leftovers, buffer.capacity()) > 0) {
+                ThreadContext.put(KAFKA_LOGGING_KEY, "true");
+                try {
+                    leftovers.forEach(this::handle);
+                } finally {
+                    ThreadContext.remove(KAFKA_LOGGING_KEY);
+                }
+            }
+        }
+        return buffer.size();
+    }
+
+    /**
+     * @return true, если передача запущена и принимает события
+     */
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * @return приблизительное количество событий в очереди
+     */
+    public int size() {
+        return buffer.size();
+    }
+
+    private void run() {
+        ThreadContext.put(KAFKA_LOGGING_KEY, "true");
+        List<E> batch = new ArrayList<>(drainBatchSize);
+        int idle = 0;
+        while (running || !buffer.isEmpty()) {
+            if (buffer.drainTo(batch, drainBatchSize) == 0) {
+                idle(idle++);
+                continue;
+            }
+            idle = 0;
+            batch.forEach(this::handle);
+            batch.clear();
+        }
+    }
+
+    private void handle(E event) {
+        try {
+            handler.accept(event);
+        } catch (Exception e) {
+            LOGGER.error("Error dispatching audit event", e);
+        }
+    }
+
+    private void idle(int idleCount) {
+        switch (waitStrategy) {
+            case BUSY_SPIN -> Thread.onSpinWait();
+            case YIELDING -> {
+                if (idleCount < SPIN_TRIES) {
+                    Thread.onSpinWait();
+                } else {
+                    Thread.yield();
+                }
+            }
+            case BLOCKING -> {
+                if (idleCount < SPIN_TRIES) {
+                    Thread.onSpinWait();
+                    return;
+                }
+                parked = true;
+                if (running && buffer.isEmpty()) {
+                    LockSupport.parkNanos(this, PARK_NANOS);
+                }
+                parked = false;
+            }
+        }
+    }
+
+}
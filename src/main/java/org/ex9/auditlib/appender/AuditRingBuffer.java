@@ -0,0 +1,123 @@
+package org.ex9.auditlib.appender;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Ограниченный неблокирующий кольцевой буфер с несколькими производителями и одним потребителем.
+ * <p>
+ * Каждая ячейка хранит порядковый номер, по которому производители и потребитель определяют,
+ * свободна ли ячейка. Производители резервируют позицию через CAS, поэтому постановка события
+ * не захватывает блокировок. Ёмкость округляется вверх до степени двойки, но не меньше двух.
+ * </p>
+ *
+ * @param <E> тип элементов
+ * @author Краковцев Артём
+ */
+public class AuditRingBuffer<E> {
+
+    private final int capacity;
+    private final int mask;
+    private final AtomicReferenceArray<E> elements;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+
+    private volatile long head;
+
+    /**
+     * @param requestedCapacity желаемая ёмкость буфера
+     */
+    public AuditRingBuffer(int requestedCapacity) {
+        if (requestedCapacity < 1) {
+            throw new IllegalArgumentException("Ring buffer capacity must be positive: " + requestedCapacity);
+        }
+        this.capacity = Math.max(2, Integer.highestOneBit(requestedCapacity - 1) << 1);
+        this.mask = capacity - 1;
+        this.elements = new AtomicReferenceArray<>(capacity);
+        this.sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * Добавляет элемент в буфер. Может вызываться из любого потока.
+     *
+     * @param element элемент
+     * @return false, если буфер заполнен
+     */
+    public boolean offer(E element) {
+        long position = tail.get();
+        int index;
+        while (true) {
+            index = (int) (position & mask);
+            long difference = sequences.get(index) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    break;
+                }
+                position = tail.get();
+            } else if (difference < 0) {
+                return false;
+            } else {
+                position = tail.get();
+            }
+        }
+        elements.set(index, element);
+        sequences.set(index, position + 1);
+        return true;
+    }
+
+    /**
+     * Извлекает элемент из буфера. Должен вызываться только потоком-потребителем.
+     *
+     * @return элемент или null, если буфер пуст
+     */
+    public E poll() {
+        long position = head;
+        int index = (int) (position & mask);
+        if (sequences.get(index) != position + 1) {
+            return null;
+        }
+        E element = elements.get(index);
+        elements.lazySet(index, null);
+        sequences.lazySet(index, position + capacity);
+        head = position + 1;
+        return element;
+    }
+
+    /**
+     * Перемещает до {@code max} элементов в список. Должен вызываться только потоком-потребителем.
+     *
+     * @param sink список-приёмник
+     * @param max  максимальное количество элементов
+     * @return количество перемещённых элементов
+     */
+    public int drainTo(List<? super E> sink, int max) {
+        int drained = 0;
+        E element;
+        while (drained < max && (element = poll()) != null) {
+            sink.add(element);
+            drained++;
+        }
+        return drained;
+    }
+
+    /**
+     * @return приблизительное количество элементов в буфере
+     */
+    public int size() {
+        return (int) Math.max(0, Math.min(capacity, tail.get() - head));
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+}
@@ -13,12 +13,20 @@ import org.apache.logging.log4j.core.filter.ThreadContextMapFilter;
 import org.apache.logging.log4j.core.util.KeyValuePair;
 import org.ex9.auditlib.dto.AuditDto;
 import org.ex9.auditlib.dto.HttpLogDto;
+import org.ex9.auditlib.property.AuditKafkaProperties;
 import org.ex9.auditlib.service.KafkaPublishService;
 
 import java.io.Serializable;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Кастомный аппендер для работы с кафкой.
+ * <p>
+ * Если заданы настройки {@link AuditKafkaProperties.Async} с флагом enabled, события передаются
+ * в Kafka через {@link AsyncDispatcher}, и поток логирования платит только за постановку в очередь.
+ * При заполненной очереди событие отправляется синхронно, чтобы не потерять его.
+ * </p>
  *
  * @author Краковцев Артём
  */
@@ -29,6 +37,8 @@ public class KafkaAppender extends AbstractAppender {
     private static final String KAFKA_LOGGING_VALUE = "true";
 
     private final KafkaPublishService kafkaPublishService;
+    private final AsyncDispatcher<Object> dispatcher;
+    private final Duration shutdownTimeout;
 
     public KafkaAppender(String name,
                          Filter filter,
@@ -36,8 +46,25 @@ public class KafkaAppender extends AbstractAppender {
                          boolean ignoreExceptions,
                          Property[] properties,
                          KafkaPublishService kafkaPublishService) {
+        this(name, filter, layout, ignoreExceptions, properties, kafkaPublishService, null);
+    }
+
+    public KafkaAppender(String name,
+                         Filter filter,
+                         Layout<? extends Serializable> layout,
+                         boolean ignoreExceptions,
+                         Property[] properties,
+                         KafkaPublishService kafkaPublishService,
+                         AuditKafkaProperties.Async async) {
         super(name, filter, layout, ignoreExceptions, properties);
         this.kafkaPublishService = kafkaPublishService;
+        if (async != null && async.isEnabled()) {
+            this.dispatcher = new AsyncDispatcher<>("audit-kafka-appender-" + name, async, this::publish);
+            this.shutdownTimeout = async.getShutdownTimeout();
+        } else {
+            this.dispatcher = null;
+            this.shutdownTimeout = Duration.ZERO;
+        }
     }
 
     /**
@@ -49,6 +76,7 @@ public class KafkaAppender extends AbstractAppender {
      * @param filter              фильтр для обработки логов
      * @param properties          дополнительные свойства конфигурации
      * @param kafkaPublishService сервис для отправки сообщений в Kafka
+     * @param async               настройки асинхронной передачи, null для синхронной отправки
      * @return новый экземпляр {@link KafkaAppender}
      */
     @PluginFactory
@@ -58,7 +86,8 @@ public class KafkaAppender extends AbstractAppender {
             @PluginElement("Layout") Layout<? extends Serializable> layout,
             @PluginElement("Filter") Filter filter,
             @PluginElement("Properties") Property[] properties,
-            @PluginElement("KafkaPublishService") KafkaPublishService kafkaPublishService) {
+            @PluginElement("KafkaPublishService") KafkaPublishService kafkaPublishService,
+            @PluginElement("Async") AuditKafkaProperties.Async async) {
         if (name == null) {
             LOGGER.error("No name provided for KafkaAppender");
             return null;
@@ -84,7 +113,51 @@ public class KafkaAppender extends AbstractAppender {
 
         Filter finalFilter = filter != null ? CompositeFilter.createFilters(new Filter[]{filter, recursionFilter}) : recursionFilter;
 
-        return new KafkaAppender(name, finalFilter, layout, ignoreExceptions, properties, kafkaPublishService);
+        return new KafkaAppender(name, finalFilter, layout, ignoreExceptions, properties, kafkaPublishService, async);
+    }
+
+    @Override
+    public void start() {
+        if (dispatcher != null) {
+            dispatcher.start();
+        }
+        super.start();
+    }
+
+    @Override
+    public boolean stop(long timeout, TimeUnit timeUnit) {
+        setStopping();
+        if (dispatcher != null && dispatcher.isRunning()) {
+            drain(shutdownTimeout);
+        }
+        boolean stopped = super.stop(timeout, timeUnit, false);
+        setStopped();
+        return stopped;
+    }
+
+    /**
+     * Останавливает приём событий в очередь и ждёт, пока накопленные события будут переданы в Kafka.
+     * События, поступившие после остановки очереди, отправляются синхронно.
+     *
+     * @param timeout максимальное время ожидания
+     * @return количество событий, оставшихся неотправленными
+     */
+    public int drain(Duration timeout) {
+        if (dispatcher == null) {
+            return 0;
+        }
+        int abandoned = dispatcher.stop(timeout);
+        if (abandoned > 0) {
+            LOGGER.warn("KafkaAppender {} stopped with {} undelivered events", getName(), abandoned);
+        }
+        return abandoned;
+    }
+
+    /**
+     * @return приблизительное количество событий, ожидающих передачи в Kafka
+     */
+    public int getPendingEvents() {
+        return dispatcher != null ? dispatcher.size() : 0;
     }
 
     @Override
@@ -93,15 +166,10 @@ public class KafkaAppender extends AbstractAppender {
             Object[] params = event.getMessage().getParameters();
             if (params != null && params.length > 0) {
                 Object obj = params[0];
-                if (obj instanceof AuditDto auditDto) {
-                    kafkaPublishService.send(auditDto);
-                    return;
-                }
-                if (obj instanceof HttpLogDto httpLogDto) {
-                    kafkaPublishService.send(httpLogDto);
+                if (dispatcher != null && dispatcher.dispatch(obj)) {
                     return;
                 }
-                throw new AppenderLoggingException("Unhandled parameter: " + obj);
+                publish(obj);
             }
         } catch (Exception e) {
             if (!ignoreExceptions()) {
@@ -110,4 +178,16 @@ public class KafkaAppender extends AbstractAppender {
         }
     }
 
+    private void publish(Object obj) {
+        if (obj instanceof AuditDto auditDto) {
+            kafkaPublishService.send(auditDto);
+            return;
+        }
+        if (obj instanceof HttpLogDto httpLogDto) {
+            kafkaPublishService.send(httpLogDto);
+            return;
+        }
+        throw new AppenderLoggingException("Unhandled parameter: " + obj);
+    }
+
 }
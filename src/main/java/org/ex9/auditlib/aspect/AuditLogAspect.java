@@ -3,122 +3,471 @@ package org.ex9.auditlib.aspect;
 import lombok.extern.log4j.Log4j2;
 import org.apache.logging.log4j.Level;
 import org.aspectj.lang.JoinPoint;
-import org.aspectj.lang.annotation.AfterReturning;
-import org.aspectj.lang.annotation.AfterThrowing;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.Signature;
+import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
-import org.aspectj.lang.annotation.Before;
+import org.aspectj.lang.reflect.MethodSignature;
 import org.ex9.auditlib.annotation.AuditLog;
 import org.ex9.auditlib.dto.AuditDto;
+import org.ex9.auditlib.dto.AuditSummary;
+import org.ex9.auditlib.property.AuditLogProperties;
+import org.ex9.auditlib.serializer.BoundedValueSerializer;
+import org.ex9.auditlib.util.AuditMode;
+import org.ex9.auditlib.util.AuditTimestamps;
+import org.ex9.auditlib.util.CorrelationId;
+import org.ex9.auditlib.util.TimeOrderedIdGenerator;
+import org.ex9.auditlib.util.WeavingMode;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.IdGenerator;
 
-import java.util.UUID;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Аспект для обработки методов, аннотированных {@link AuditLog}.
  * <p>
- * Логирует события начала выполнения метода (START), успешного завершения (END) и завершения с ошибкой (ERROR).
+ * Логирует события начала выполнения метода (START), успешного завершения (END) и завершения с ошибкой (ERROR)
+ * одним around-советом, измеряя длительность вызова и связывая вложенные вызовы через parentId.
  * Поддерживает вывод логов в консоль, файл (с ротацией по 1 МБ)
  * и Kafka (в формате JSON с семантикой exactly-once).
  * </p>
+ * <p>
+ * Срез ограничен точками <code>execution</code>: при вплетении AspectJ ({@link WeavingMode#ASPECTJ})
+ * совет встраивается в тело метода один раз, без отдельного срабатывания в местах вызова.
+ * Экземпляр, созданный AspectJ конструктором без параметров, неактивен, пока его не настроит
+ * {@link #configure}: иначе при подключённом агенте и <code>weaving=proxy</code> вызов
+ * аудировался бы дважды.
+ * </p>
+ * <p>
+ * Аргументы и результат записываются снимком {@link BoundedValueSerializer} с ограничениями
+ * {@link AuditLogProperties.Capture}, переопределёнными в аннотации метода. Аннотация также может
+ * отключить снимок или сузить его до выбранных аргументов и свойств.
+ * </p>
+ * <p>
+ * Полное имя метода, уровень и ограничения снимка вычисляются один раз на метод
+ * и хранятся в {@link MethodDescriptor}. Идентификаторы вызовов и сообщений выдаёт {@link IdGenerator},
+ * по умолчанию упорядоченный по времени {@link TimeOrderedIdGenerator}.
+ * </p>
+ * <p>
+ * События пишутся с уровнем из {@link AuditLog#logLevel()}. Если уровень выключен для логгера аспекта,
+ * событие не строится: идентификаторы не генерируются, аргументы и результат не снимаются.
+ * </p>
+ * <p>
+ * Часто вызываемые методы прореживаются настройками {@link AuditLogProperties.Sampling}: решение принимается
+ * один раз перед START, так что START и END вызова пишутся вместе. Пропущенные вызовы считаются
+ * по методам, см. {@link #getSkippedCalls()}.
+ * </p>
+ * <p>
+ * Методы в режиме {@link AuditMode#AGGREGATE} не пишут событий на вызов: количество вызовов, ошибок
+ * и гистограмма длительностей копятся в {@link MethodAggregate} и раз в окно выводятся одним событием
+ * SUMMARY на метод в те же sink, что и остальные события.
+ * </p>
  * @author Краковцев Артём
  */
 @Aspect
 @Log4j2
 public class AuditLogAspect {
 
-    private static UUID ID;
+    private static final boolean REACTOR_PRESENT =
+            ClassUtils.isPresent("reactor.core.publisher.Mono", AuditLogAspect.class.getClassLoader());
+
+    /** Идентификатор текущего аудируемого вызова потока, родитель для вложенных вызовов. */
+    private static final ThreadLocal<String> CURRENT_ID = new ThreadLocal<>();
+
+    private volatile AuditLogProperties.Capture capture;
+    private volatile AuditLogProperties.Sampling sampling;
+    private volatile AuditLogProperties.Aggregation aggregation;
+    private volatile IdGenerator idGenerator;
+    private final BoundedValueSerializer valueSerializer = new BoundedValueSerializer();
+    private final Map<DescriptorKey, MethodDescriptor> descriptors = new ConcurrentHashMap<>();
+    private final Map<String, MethodAggregate> aggregates = new ConcurrentHashMap<>();
+    private volatile long windowStartMicros = AuditTimestamps.nowMicros();
+    private volatile ScheduledExecutorService aggregationScheduler;
+    private volatile boolean closed;
+    private volatile boolean active = true;
 
     /**
-     * Логирует начало выполнения метода.
-     * <p>
-     * Создаёт уникальный идентификатор и логирует информацию о методе перед его выполнением.
-     * Если включено логирование в Kafka, отправляет данные в формате {@link AuditDto}.
-     * </p>
-     *
-     * @param joinPoint точка соединения для метода
-     * @param auditLog аннотация с параметрами логирования
+     * Создаёт неактивный экземпляр для вплетения AspectJ: до вызова {@link #configure}
+     * совет только вызывает метод.
      */
-    @Before("@annotation(auditLog)")
-    public void logStart(JoinPoint joinPoint, AuditLog auditLog) {
-        ID = UUID.randomUUID();
-
-        String className = joinPoint.getSignature().getDeclaringTypeName();
-        String methodName = joinPoint.getSignature().getName();
+    public AuditLogAspect() {
+        this(new AuditLogProperties.Capture(), new AuditLogProperties.Sampling());
+        this.active = false;
+    }
 
-        Level logLevel = Level.toLevel(auditLog.logLevel().toString());
+    /**
+     * @param capture  глобальные ограничения снимка аргументов и результатов
+     * @param sampling глобальные настройки выборки и правила для методов
+     */
+    public AuditLogAspect(AuditLogProperties.Capture capture, AuditLogProperties.Sampling sampling) {
+        this(capture, sampling, new TimeOrderedIdGenerator());
+    }
 
-        var dto = AuditDto.builder()
-                .messageId(UUID.randomUUID().toString())
-                .type("START")
-                .id(ID.toString())
-                .args(joinPoint.getArgs())
-                .logLevel(logLevel.toString())
-                .methodName(String.format("%s.%s", className, methodName))
-                .build();
+    /**
+     * @param capture     глобальные ограничения снимка аргументов и результатов
+     * @param sampling    глобальные настройки выборки и правила для методов
+     * @param idGenerator генератор идентификаторов вызовов и сообщений
+     */
+    public AuditLogAspect(AuditLogProperties.Capture capture, AuditLogProperties.Sampling sampling,
+                          IdGenerator idGenerator) {
+        this(capture, sampling, new AuditLogProperties.Aggregation(), idGenerator);
+    }
 
-        log.info(dto);
+    /**
+     * @param capture     глобальные ограничения снимка аргументов и результатов
+     * @param sampling    глобальные настройки выборки и правила для методов
+     * @param aggregation глобальные настройки агрегации
+     * @param idGenerator генератор идентификаторов вызовов и сообщений
+     */
+    public AuditLogAspect(AuditLogProperties.Capture capture, AuditLogProperties.Sampling sampling,
+                          AuditLogProperties.Aggregation aggregation, IdGenerator idGenerator) {
+        this.capture = capture;
+        this.sampling = sampling;
+        this.aggregation = aggregation;
+        this.idGenerator = idGenerator;
     }
 
     /**
-     * Логирует успешное завершение метода.
-     * <p>
-     * Логирует завершение выполнения метода с возвращаемым значением.
-     * Если включено логирование в Kafka, отправляет данные в формате {@link AuditDto}.
-     * </p>
+     * Заменяет глобальные настройки и включает аудит. Нужен для экземпляра, созданного AspectJ
+     * при вплетении, который Spring не конструирует.
      *
-     * @param joinPoint точка соединения для метода
-     * @param auditLog аннотация с параметрами логирования
-     * @param result возвращаемое значение метода
+     * @param capture     глобальные ограничения снимка аргументов и результатов
+     * @param sampling    глобальные настройки выборки и правила для методов
+     * @param aggregation глобальные настройки агрегации
+     * @param idGenerator генератор идентификаторов вызовов и сообщений
      */
-    @AfterReturning(value = "@annotation(auditLog)",
-            returning = "result")
-    public void logEnd(JoinPoint joinPoint, AuditLog auditLog, Object result) {
-        Level logLevel = Level.toLevel(auditLog.logLevel().toString());
+    public void configure(AuditLogProperties.Capture capture, AuditLogProperties.Sampling sampling,
+                          AuditLogProperties.Aggregation aggregation, IdGenerator idGenerator) {
+        stopAggregation();
+        flushAggregates();
+        this.capture = capture;
+        this.sampling = sampling;
+        this.aggregation = aggregation;
+        this.idGenerator = idGenerator;
+        descriptors.clear();
+        this.active = true;
+    }
 
-        String className = joinPoint.getSignature().getDeclaringTypeName();
-        String methodName = joinPoint.getSignature().getName();
+    /**
+     * Пишет сводки SUMMARY за текущее окно по всем методам в режиме {@link AuditMode#AGGREGATE},
+     * у которых были вызовы, и начинает новое окно. Вызывается по расписанию раз в
+     * <code>audit.logging.aggregation.window</code> и при остановке приложения.
+     */
+    public void flushAggregates() {
+        long windowEndMicros = AuditTimestamps.nowMicros();
+        long windowStart = windowStartMicros;
+        windowStartMicros = windowEndMicros;
+        long windowMillis = (windowEndMicros - windowStart) / 1_000;
+        for (Map.Entry<String, MethodAggregate> entry : aggregates.entrySet()) {
+            MethodAggregate aggregate = entry.getValue();
+            AuditSummary summary = aggregate.drain(windowStart, windowMillis);
+            if (summary == null || !log.isEnabled(aggregate.level())) {
+                continue;
+            }
+            log.log(aggregate.level(), AuditDto.builder()
+                    .messageId(idGenerator.generateId().toString())
+                    .type("SUMMARY")
+                    .id(idGenerator.generateId().toString())
+                    .logLevel(aggregate.level().name())
+                    .methodName(entry.getKey())
+                    .summary(summary)
+                    .epochMicros(windowEndMicros)
+                    .build());
+        }
+    }
 
-        var dto = AuditDto.builder()
-                .messageId(UUID.randomUUID().toString())
-                .type("END")
-                .id(ID.toString())
-                .result(result)
-                .logLevel(logLevel.toString())
-                .methodName(String.format("%s.%s", className, methodName))
-                .build();
+    /**
+     * Останавливает расписание сводок и пишет сводки последнего окна.
+     */
+    public void close() {
+        closed = true;
+        stopAggregation();
+        flushAggregates();
+    }
 
-        log.info(dto);
+    /**
+     * Возвращает количество вызовов, пропущенных выборкой или ограничением частоты, по методам.
+     *
+     * @return полное имя метода и количество пропущенных вызовов
+     */
+    public Map<String, Long> getSkippedCalls() {
+        Map<String, Long> skipped = new TreeMap<>();
+        for (MethodDescriptor descriptor : descriptors.values()) {
+            skipped.merge(descriptor.methodName(), descriptor.skipped().get(), Long::sum);
+        }
+        return skipped;
     }
 
     /**
-     * Логирует завершение метода с ошибкой.
+     * Логирует выполнение метода.
      * <p>
-     * Логирует ошибку выполнения метода.
+     * Перед вызовом пишет событие START, после него - END с результатом или ERROR с текстом исключения.
+     * Идентификатор вызова хранится в стеке этого метода, поэтому END и ERROR всегда получают id своего START.
+     * Событиям END и ERROR добавляется длительность вызова в наносекундах. Если метод вернул
+     * {@link CompletionStage}, <code>Mono</code> или <code>Flux</code>, END и ERROR пишутся при завершении результата.
+     * Если вызов вложен в другой аудируемый метод того же потока, все события получают его id как parentId.
      * Если включено логирование в Kafka, отправляет данные в формате {@link AuditDto}.
      * </p>
      *
      * @param joinPoint точка соединения для метода
      * @param auditLog аннотация с параметрами логирования
-     * @param ex исключение, вызвавшее ошибку
+     * @return результат метода
+     * @throws Throwable исключение метода
+     */
+    @Around("execution(* *(..)) && @annotation(auditLog)")
+    public Object audit(ProceedingJoinPoint joinPoint, AuditLog auditLog) throws Throwable {
+        if (!active) {
+            return joinPoint.proceed();
+        }
+        MethodDescriptor descriptor = descriptor(joinPoint, auditLog);
+        if (!isEnabled(descriptor)) {
+            return joinPoint.proceed();
+        }
+        if (descriptor.aggregate() != null) {
+            return proceedAggregated(joinPoint, descriptor);
+        }
+        if (!descriptor.admit()) {
+            return proceedUnsampled(joinPoint, descriptor);
+        }
+
+        String id = idGenerator.generateId().toString();
+        String parentId = CURRENT_ID.get();
+        String correlationId = CorrelationId.get();
+
+        log.log(descriptor.level(), event(descriptor, "START", id, parentId, correlationId)
+                .args(descriptor.captureArgs()
+                        ? valueSerializer.captureArgs(joinPoint.getArgs(), descriptor.argIndexes(),
+                                descriptor.limits(), descriptor.projection())
+                        : null)
+                .build());
+
+        Invocation invocation = new Invocation(descriptor, id, parentId, correlationId, false);
+        CURRENT_ID.set(id);
+        try {
+            return complete(joinPoint.proceed(), invocation);
+        } catch (Throwable ex) {
+            invocation.onError(ex, invocation.elapsedNanos());
+            throw ex;
+        } finally {
+            if (parentId == null) {
+                CURRENT_ID.remove();
+            } else {
+                CURRENT_ID.set(parentId);
+            }
+        }
+    }
+
+    /**
+     * Выполняет вызов, не попавший в выборку. При включённом <code>always-audit-errors</code>
+     * исключение, в том числе асинхронное, всё равно записывается событием ERROR без парного START.
+     */
+    private Object proceedUnsampled(ProceedingJoinPoint joinPoint, MethodDescriptor descriptor) throws Throwable {
+        if (!sampling.isAlwaysAuditErrors()) {
+            return joinPoint.proceed();
+        }
+        Invocation invocation = new Invocation(descriptor, null, CURRENT_ID.get(), CorrelationId.get(), true);
+        try {
+            return complete(joinPoint.proceed(), invocation);
+        } catch (Throwable ex) {
+            invocation.onError(ex, invocation.elapsedNanos());
+            throw ex;
+        }
+    }
+
+    /**
+     * Выполняет вызов метода в режиме {@link AuditMode#AGGREGATE}: событий нет, длительность и исход
+     * вызова, в том числе асинхронного, учитываются в статистике окна.
+     */
+    private Object proceedAggregated(ProceedingJoinPoint joinPoint, MethodDescriptor descriptor) throws Throwable {
+        Invocation invocation = new Invocation(descriptor, null, null, null, false);
+        try {
+            return complete(joinPoint.proceed(), invocation);
+        } catch (Throwable ex) {
+            invocation.onError(ex, invocation.elapsedNanos());
+            throw ex;
+        }
+    }
+
+    /**
+     * Записывает завершение вызова. Для {@link CompletionStage}, {@link reactor.core.publisher.Mono}
+     * и {@link reactor.core.publisher.Flux} событие END или ERROR пишется при фактическом завершении,
+     * без блокировки потока.
+     */
+    private static Object complete(Object result, Invocation invocation) {
+        if (result instanceof CompletionStage<?> stage) {
+            stage.whenComplete(invocation::onComplete);
+            return result;
+        }
+        if (REACTOR_PRESENT && ReactorResults.isReactive(result)) {
+            return ReactorResults.listen(result, invocation);
+        }
+        invocation.onEnd(result, invocation.elapsedNanos());
+        return result;
+    }
+
+    private AuditDto.AuditDtoBuilder event(MethodDescriptor descriptor, String type, String id,
+                                           String parentId, String correlationId) {
+        return AuditDto.builder()
+                .messageId(idGenerator.generateId().toString())
+                .type(type)
+                .id(id)
+                .parentId(parentId)
+                .correlationId(correlationId)
+                .logLevel(descriptor.levelName())
+                .methodName(descriptor.methodName());
+    }
+
+    /**
+     * Один аудируемый вызов: пишет события END и ERROR, в том числе позже из обратного вызова
+     * асинхронного результата. Длительность синхронной части считается от создания.
      */
-    @AfterThrowing(value = "@annotation(auditLog)",
-            throwing = "ex")
-    public void logError(JoinPoint joinPoint, AuditLog auditLog, Throwable ex) {
+    final class Invocation {
+
+        private final MethodDescriptor descriptor;
+        private final String id;
+        private final String parentId;
+        private final String correlationId;
+        private final boolean errorsOnly;
+        private final long start = System.nanoTime();
+
+        Invocation(MethodDescriptor descriptor, String id, String parentId, String correlationId, boolean errorsOnly) {
+            this.descriptor = descriptor;
+            this.id = id;
+            this.parentId = parentId;
+            this.correlationId = correlationId;
+            this.errorsOnly = errorsOnly;
+        }
+
+        long elapsedNanos() {
+            return System.nanoTime() - start;
+        }
+
+        void onComplete(Object result, Throwable error) {
+            if (error != null) {
+                onError(error instanceof CompletionException && error.getCause() != null ? error.getCause() : error,
+                        elapsedNanos());
+            } else {
+                onEnd(result, elapsedNanos());
+            }
+        }
+
+        void onEnd(Object result, long durationNanos) {
+            if (descriptor.aggregate() != null) {
+                descriptor.aggregate().record(durationNanos, false);
+                return;
+            }
+            if (errorsOnly) {
+                return;
+            }
+            log.log(descriptor.level(), event(descriptor, "END", id, parentId, correlationId)
+                    .result(descriptor.captureResult()
+                            ? valueSerializer.capture(result, descriptor.limits(), descriptor.projection())
+                            : null)
+                    .durationNanos(durationNanos)
+                    .build());
+        }
 
-        Level logLevel = Level.toLevel(auditLog.logLevel().toString());
+        void onError(Throwable error, long durationNanos) {
+            if (descriptor.aggregate() != null) {
+                descriptor.aggregate().record(durationNanos, true);
+                return;
+            }
+            log.log(descriptor.level(), event(descriptor, "ERROR", id != null ? id : idGenerator.generateId().toString(),
+                    parentId, correlationId)
+                    .error(error.getMessage())
+                    .durationNanos(durationNanos)
+                    .build());
+        }
+
+    }
+
+    /**
+     * Возвращает статистику агрегации метода, общую для всех его дескрипторов, и запускает расписание сводок.
+     */
+    private MethodAggregate aggregate(String methodName, Level level) {
+        if (aggregationScheduler == null) {
+            startAggregation();
+        }
+        return aggregates.computeIfAbsent(methodName, name -> new MethodAggregate(level));
+    }
+
+    private synchronized void startAggregation() {
+        if (aggregationScheduler != null || closed) {
+            return;
+        }
+        long windowMillis = Math.max(1, aggregation.getWindow().toMillis());
+        aggregationScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "audit-aggregation");
+            thread.setDaemon(true);
+            return thread;
+        });
+        aggregationScheduler.scheduleAtFixedRate(() -> {
+            try {
+                flushAggregates();
+            } catch (RuntimeException e) {
+                log.error("Audit aggregation flush failed: {}", e.getMessage());
+            }
+        }, windowMillis, windowMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private synchronized void stopAggregation() {
+        if (aggregationScheduler != null) {
+            aggregationScheduler.shutdownNow();
+            aggregationScheduler = null;
+        }
+    }
+
+    /**
+     * Уровень <code>OFF</code> в аннотации отключает аудит метода.
+     */
+    private static boolean isEnabled(MethodDescriptor descriptor) {
+        return descriptor.level() != Level.OFF && log.isEnabled(descriptor.level());
+    }
+
+    /**
+     * Возвращает дескриптор метода из кеша или строит его при первом вызове.
+     * Дескриптор кешируется по методу и аннотации: один метод интерфейса может реализовываться
+     * классами с разными аннотациями. Если сигнатура не указывает на {@link Method},
+     * дескриптор строится без кеширования.
+     */
+    MethodDescriptor descriptor(JoinPoint joinPoint, AuditLog auditLog) {
+        Signature signature = joinPoint.getSignature();
+        if (!(signature instanceof MethodSignature methodSignature) || methodSignature.getMethod() == null) {
+            return newDescriptor(signature, auditLog);
+        }
+        return descriptors.computeIfAbsent(new DescriptorKey(methodSignature.getMethod(), auditLog),
+                key -> newDescriptor(signature, auditLog));
+    }
+
+    private MethodDescriptor newDescriptor(Signature signature, AuditLog auditLog) {
+        return MethodDescriptor.of(signature.getDeclaringTypeName(), signature.getName(), auditLog,
+                capture, sampling, aggregation, this::aggregate);
+    }
+
+    /**
+     * Ключ кеша дескрипторов. Аннотация сравнивается по ссылке: рефлексия возвращает
+     * для метода один и тот же экземпляр, а содержательное сравнение аннотаций дорого.
+     */
+    private record DescriptorKey(Method method, AuditLog auditLog) {
 
-        String className = joinPoint.getSignature().getDeclaringTypeName();
-        String methodName = joinPoint.getSignature().getName();
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof DescriptorKey key && method.equals(key.method) && auditLog == key.auditLog;
+        }
 
-        var dto = AuditDto.builder()
-                .messageId(UUID.randomUUID().toString())
-                .type("ERROR")
-                .id(ID.toString())
-                .error(ex.getMessage())
-                .logLevel(logLevel.toString())
-                .methodName(String.format("%s.%s", className, methodName))
-                .build();
+        @Override
+        public int hashCode() {
+            return 31 * method.hashCode() + System.identityHashCode(auditLog);
+        }
 
-        log.info(dto);
     }
 
 }
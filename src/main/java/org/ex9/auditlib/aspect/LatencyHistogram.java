@@ -0,0 +1,86 @@
+package org.ex9.auditlib.aspect;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Неблокирующая гистограмма длительностей в наносекундах.
+ * <p>
+ * Корзины лог-линейные: значения до 16 нс хранятся точно, каждый следующий интервал
+ * <code>[2^k, 2^(k+1))</code> делится на 16 равных корзин, поэтому относительная ошибка перцентиля
+ * не превышает 1/16. Запись - один атомарный инкремент без блокировок и выделения памяти.
+ * Счётчики выгружаются в массив {@link #drainTo(long[])}; массивы нескольких гистограмм складываются,
+ * так что гистограммы можно объединять.
+ * </p>
+ * @author Краковцев Артём
+ */
+final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    /** Количество корзин, покрывающее весь диапазон неотрицательных long. */
+    static final int BUCKETS = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    /**
+     * @param nanos длительность в наносекундах
+     */
+    void record(long nanos) {
+        counts.incrementAndGet(indexOf(Math.max(0, nanos)));
+    }
+
+    /**
+     * Добавляет накопленные счётчики в массив и обнуляет их. Значения, записанные во время выгрузки,
+     * попадают либо в этот массив, либо в следующую выгрузку.
+     *
+     * @param target массив длины {@link #BUCKETS}
+     */
+    void drainTo(long[] target) {
+        for (int i = 0; i < BUCKETS; i++) {
+            if (counts.get(i) != 0) {
+                target[i] += counts.getAndSet(i, 0);
+            }
+        }
+    }
+
+    /**
+     * @param buckets    счётчики корзин
+     * @param total      сумма счётчиков
+     * @param percentile перцентиль от 0 до 1
+     * @return середина корзины, в которую попадает перцентиль, или 0 для пустой гистограммы
+     */
+    static long percentile(long[] buckets, long total, double percentile) {
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(total * percentile));
+        long seen = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            seen += buckets[i];
+            if (seen >= rank) {
+                return valueOf(i);
+            }
+        }
+        return valueOf(buckets.length - 1);
+    }
+
+    static int indexOf(long nanos) {
+        if (nanos < SUB_BUCKETS) {
+            return (int) nanos;
+        }
+        int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(nanos);
+        int subBucket = (int) (nanos >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    static long valueOf(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = index / SUB_BUCKETS - 1;
+        long lower = (long) (SUB_BUCKETS + index % SUB_BUCKETS) << shift;
+        return lower + ((1L << shift) >>> 1);
+    }
+
+}
@@ -0,0 +1,83 @@
+package org.ex9.auditlib.aspect;
+
+import org.apache.logging.log4j.Level;
+import org.ex9.auditlib.dto.AuditSummary;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Статистика вызовов одного метода в режиме {@link org.ex9.auditlib.util.AuditMode#AGGREGATE}.
+ * <p>
+ * Счётчики - {@link LongAdder} с ячейками на поток, поэтому частые вызовы из многих потоков
+ * не конкурируют за одну строку кеша. Длительности пишутся в {@link LatencyHistogram}.
+ * Запись не берёт блокировок и не создаёт объектов; сводка за окно снимается {@link #drain(long, long)}.
+ * </p>
+ * @author Краковцев Артём
+ */
+final class MethodAggregate {
+
+    private final Level level;
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+    private final LatencyHistogram latencies = new LatencyHistogram();
+
+    /**
+     * @param level уровень, с которым пишется сводка
+     */
+    MethodAggregate(Level level) {
+        this.level = level;
+    }
+
+    Level level() {
+        return level;
+    }
+
+    /**
+     * @param durationNanos длительность вызова
+     * @param error         true, если вызов завершился ошибкой
+     */
+    void record(long durationNanos, boolean error) {
+        latencies.record(durationNanos);
+        totalNanos.add(durationNanos);
+        maxNanos.accumulate(durationNanos);
+        if (error) {
+            errors.increment();
+        }
+        calls.increment();
+    }
+
+    /**
+     * Снимает статистику окна и обнуляет её.
+     *
+     * @param windowStartMicros начало окна в микросекундах от эпохи
+     * @param windowMillis      длительность окна
+     * @return сводка или null, если за окно не было вызовов
+     */
+    AuditSummary drain(long windowStartMicros, long windowMillis) {
+        long count = calls.sumThenReset();
+        if (count == 0) {
+            return null;
+        }
+        long[] buckets = new long[LatencyHistogram.BUCKETS];
+        latencies.drainTo(buckets);
+        long recorded = 0;
+        for (long bucket : buckets) {
+            recorded += bucket;
+        }
+        return AuditSummary.builder()
+                .windowStartMicros(windowStartMicros)
+                .windowMillis(windowMillis)
+                .calls(count)
+                .errors(errors.sumThenReset())
+                .avgNanos(totalNanos.sumThenReset() / count)
+                .p50Nanos(LatencyHistogram.percentile(buckets, recorded, 0.5))
+                .p90Nanos(LatencyHistogram.percentile(buckets, recorded, 0.9))
+                .p99Nanos(LatencyHistogram.percentile(buckets, recorded, 0.99))
+                .maxNanos(maxNanos.getThenReset())
+                .build();
+    }
+
+}
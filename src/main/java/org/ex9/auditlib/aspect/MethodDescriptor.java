@@ -0,0 +1,102 @@
+package org.ex9.auditlib.aspect;
+
+import org.apache.logging.log4j.Level;
+import org.ex9.auditlib.annotation.AuditLog;
+import org.ex9.auditlib.property.AuditLogProperties;
+import org.ex9.auditlib.serializer.BoundedValueSerializer;
+import org.ex9.auditlib.serializer.CaptureProjection;
+import org.ex9.auditlib.util.AuditMode;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+
+/**
+ * Данные аудируемого метода, вычисляемые один раз.
+ * <p>
+ * Полное имя метода, уровень логирования, ограничения и проекция снимка не меняются между вызовами,
+ * поэтому {@link AuditLogAspect} кеширует дескриптор на каждый {@link java.lang.reflect.Method}
+ * и на вызове только читает его. Состояние выборки метода - ограничение частоты и счётчик
+ * пропущенных вызовов - и статистика агрегации тоже хранятся в дескрипторе.
+ * </p>
+ *
+ * @param auditLog   аннотация метода, по которой построен дескриптор
+ * @param methodName полное имя метода в виде <code>класс.метод</code>
+ * @param level      уровень логирования из аннотации
+ * @param levelName  имя уровня для поля <code>logLevel</code> события
+ * @param limits     ограничения снимка аргументов и результата
+ * @param captureArgs   true, если аргументы записываются в START
+ * @param argIndexes    номера аргументов в снимке, пустой массив - все
+ * @param captureResult true, если результат записывается в END
+ * @param projection    свойства аргументов и результата в снимке
+ * @param sampleRate доля аудируемых вызовов от 0 до 1
+ * @param rateLimit  ограничение частоты вызовов или null
+ * @param skipped    количество вызовов, не попавших в выборку или отброшенных ограничением частоты
+ * @param aggregate  статистика вызовов в режиме {@link AuditMode#AGGREGATE} или null
+ * @author Краковцев Артём
+ */
+record MethodDescriptor(AuditLog auditLog, String methodName, Level level, String levelName,
+                        BoundedValueSerializer.Limits limits, boolean captureArgs, int[] argIndexes,
+                        boolean captureResult, CaptureProjection projection, double sampleRate,
+                        TokenBucket rateLimit, AtomicLong skipped, MethodAggregate aggregate) {
+
+    /**
+     * @param className  полное имя класса, объявляющего метод
+     * @param methodName имя метода
+     * @param auditLog   аннотация метода
+     * @param capture    глобальные ограничения снимка
+     * @param sampling   глобальные настройки выборки и правила для методов
+     * @param aggregation глобальные настройки агрегации
+     * @param aggregates  статистика агрегации по полному имени метода, общая для всех его дескрипторов
+     * @return новый дескриптор
+     */
+    static MethodDescriptor of(String className, String methodName, AuditLog auditLog,
+                               AuditLogProperties.Capture capture, AuditLogProperties.Sampling sampling,
+                               AuditLogProperties.Aggregation aggregation,
+                               BiFunction<String, Level, MethodAggregate> aggregates) {
+        Level level = Level.toLevel(auditLog.logLevel().toString());
+        String qualifiedName = className + "." + methodName;
+        AuditLogProperties.Rule rule = sampling.findRule(qualifiedName);
+
+        double sampleRate = rule != null && rule.getSampleRate() != null ? rule.getSampleRate()
+                : auditLog.sampleRate() > 0 ? auditLog.sampleRate()
+                : sampling.getSampleRate();
+        int maxEventsPerSecond = rule != null && rule.getMaxEventsPerSecond() != null ? rule.getMaxEventsPerSecond()
+                : auditLog.maxEventsPerSecond() > 0 ? auditLog.maxEventsPerSecond()
+                : sampling.getMaxEventsPerSecond();
+        AuditMode mode = auditLog.mode() != null && auditLog.mode() != AuditMode.DEFAULT
+                ? auditLog.mode()
+                : aggregation.getMode();
+
+        return new MethodDescriptor(auditLog, qualifiedName, level, level.name(),
+                new BoundedValueSerializer.Limits(
+                        auditLog.maxDepth() > 0 ? auditLog.maxDepth() : capture.getMaxDepth(),
+                        auditLog.maxElements() > 0 ? auditLog.maxElements() : capture.getMaxElements(),
+                        auditLog.maxStringLength() > 0 ? auditLog.maxStringLength() : capture.getMaxStringLength(),
+                        auditLog.maxBytes() > 0 ? auditLog.maxBytes() : capture.getMaxBytes().toBytes()),
+                auditLog.captureArgs(),
+                auditLog.argIndexes().clone(),
+                auditLog.captureResult(),
+                CaptureProjection.of(auditLog.includeFields(), auditLog.excludeFields()),
+                Math.min(1.0, Math.max(0.0, sampleRate)),
+                maxEventsPerSecond > 0 ? new TokenBucket(maxEventsPerSecond) : null,
+                new AtomicLong(),
+                mode == AuditMode.AGGREGATE ? aggregates.apply(qualifiedName, level) : null);
+    }
+
+    /**
+     * Решает, аудировать ли вызов: сначала выборка, затем ограничение частоты.
+     * Пропущенный вызов учитывается в {@link #skipped()}.
+     *
+     * @return true, если события вызова нужно писать
+     */
+    boolean admit() {
+        boolean admitted = (sampleRate >= 1.0 || ThreadLocalRandom.current().nextDouble() < sampleRate)
+                && (rateLimit == null || rateLimit.tryAcquire());
+        if (!admitted) {
+            skipped.incrementAndGet();
+        }
+        return admitted;
+    }
+
+}
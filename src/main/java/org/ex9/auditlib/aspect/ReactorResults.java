@@ -0,0 +1,61 @@
+package org.ex9.auditlib.aspect;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Аудит результатов {@link Mono} и {@link Flux}.
+ * <p>
+ * Работа реактивного метода начинается при подписке, поэтому длительность считается от подписки
+ * до сигнала завершения, ошибки или отмены, и события END/ERROR пишутся на каждую подписку.
+ * Для {@link Flux} в END записывается количество элементов. Потоки не блокируются.
+ * </p>
+ * <p>
+ * Класс загружается, только если Reactor есть в classpath приложения.
+ * </p>
+ * @author Краковцев Артём
+ */
+final class ReactorResults {
+
+    private ReactorResults() {
+    }
+
+    /**
+     * @param result результат метода
+     * @return true, если результат - {@link Mono} или {@link Flux}
+     */
+    static boolean isReactive(Object result) {
+        return result instanceof Mono<?> || result instanceof Flux<?>;
+    }
+
+    /**
+     * Оборачивает реактивный результат так, чтобы завершение каждой подписки записывалось в аудит.
+     *
+     * @param result     {@link Mono} или {@link Flux}
+     * @param invocation вызов, события которого нужно записать
+     * @return обёрнутый результат того же типа
+     */
+    static Object listen(Object result, AuditLogAspect.Invocation invocation) {
+        if (result instanceof Mono<?> mono) {
+            return Mono.defer(() -> {
+                long start = System.nanoTime();
+                return mono
+                        .doOnSuccess(value -> invocation.onEnd(value, System.nanoTime() - start))
+                        .doOnError(error -> invocation.onError(error, System.nanoTime() - start))
+                        .doOnCancel(() -> invocation.onEnd("<cancelled>", System.nanoTime() - start));
+            });
+        }
+        Flux<?> flux = (Flux<?>) result;
+        return Flux.defer(() -> {
+            long start = System.nanoTime();
+            long[] elements = new long[1];
+            return flux
+                    .doOnNext(value -> elements[0]++)
+                    .doOnComplete(() -> invocation.onEnd(elements[0], System.nanoTime() - start))
+                    .doOnError(error -> invocation.onError(error, System.nanoTime() - start))
+                    .doOnCancel(() -> invocation.onEnd("<cancelled after " + elements[0] + ">",
+                            System.nanoTime() - start));
+        });
+    }
+
+}
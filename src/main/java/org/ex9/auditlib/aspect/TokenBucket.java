@@ -0,0 +1,47 @@
+package org.ex9.auditlib.aspect;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Неблокирующее ограничение частоты вызовов одного метода.
+ * <p>
+ * Ведро ёмкостью <code>permitsPerSecond</code> пополняется равномерно. Состояние хранится одним числом -
+ * теоретическим временем прибытия следующего разрешения (GCRA) - и меняется через CAS,
+ * поэтому проверка не берёт блокировок и не создаёт объектов.
+ * </p>
+ * @author Краковцев Артём
+ */
+final class TokenBucket {
+
+    private final long intervalNanos;
+    private final long burstNanos;
+    private final AtomicLong theoreticalArrival;
+
+    /**
+     * @param permitsPerSecond количество разрешений в секунду, больше 0
+     */
+    TokenBucket(int permitsPerSecond) {
+        this.intervalNanos = Math.max(1, TimeUnit.SECONDS.toNanos(1) / permitsPerSecond);
+        this.burstNanos = intervalNanos * permitsPerSecond;
+        this.theoreticalArrival = new AtomicLong(System.nanoTime());
+    }
+
+    /**
+     * @return true, если разрешение выдано
+     */
+    boolean tryAcquire() {
+        while (true) {
+            long now = System.nanoTime();
+            long arrival = theoreticalArrival.get();
+            long next = Math.max(arrival, now) + intervalNanos;
+            if (next - now > burstNanos) {
+                return false;
+            }
+            if (theoreticalArrival.compareAndSet(arrival, next)) {
+                return true;
+            }
+        }
+    }
+
+}
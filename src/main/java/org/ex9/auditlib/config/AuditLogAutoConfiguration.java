@@ -2,12 +2,17 @@ package org.ex9.auditlib.config;
 
 import jakarta.annotation.PostConstruct;
 import lombok.extern.log4j.Log4j2;
+import org.aspectj.lang.Aspects;
 import org.ex9.auditlib.annotation.AuditLog;
 import org.ex9.auditlib.aspect.AuditLogAspect;
 import org.ex9.auditlib.filter.HttpLoggingFilter;
 import org.ex9.auditlib.property.AuditLogProperties;
 import org.ex9.auditlib.property.AuditKafkaProperties;
+import org.ex9.auditlib.util.AuditIdGenerator;
+import org.ex9.auditlib.util.TimeOrderedIdGenerator;
+import org.springframework.beans.factory.SmartInitializingSingleton;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.boot.web.servlet.FilterRegistrationBean;
@@ -18,7 +23,8 @@ import org.springframework.context.annotation.Configuration;
  * Автоконфигурация стартера.
  * <p>
  * Регистрирует компоненты для логирования методов (через {@link AuditLogAspect}) и HTTP-запросов
- * (через {@link HttpLoggingFilter}). Активируется, если свойство <code>audit.logging.enabled=true</code>
+ * (через {@link HttpLoggingFilter}). Аспект подключается прокси Spring AOP или вплетением AspectJ
+ * в зависимости от <code>audit.logging.weaving</code>. Активируется, если свойство <code>audit.logging.enabled=true</code>
  * указано в конфигурации приложения. Поддерживает настройку логирования через {@link AuditLogProperties}
  * и {@link AuditKafkaProperties}.
  * </p>
@@ -34,21 +40,66 @@ public class AuditLogAutoConfiguration {
     /**
      * Создаёт бин аспекта для обработки методов с аннотацией {@link AuditLog}.
      *
+     * @param auditLogProperties настройки логирования с ограничениями снимка, выборкой и агрегацией
+     * @param auditIdGenerator   генератор идентификаторов событий
      * @return экземпляр {@link AuditLogAspect}
      */
     @Bean
-    public AuditLogAspect auditLogAspect() {
-        return new AuditLogAspect();
+    @ConditionalOnProperty(prefix = "audit.logging", name = "weaving", havingValue = "proxy", matchIfMissing = true)
+    public AuditLogAspect auditLogAspect(AuditLogProperties auditLogProperties, AuditIdGenerator auditIdGenerator) {
+        return new AuditLogAspect(auditLogProperties.getCapture(), auditLogProperties.getSampling(),
+                auditLogProperties.getAggregation(), auditIdGenerator);
+    }
+
+    /**
+     * Настраивает экземпляр {@link AuditLogAspect}, созданный AspectJ при вплетении в байткод.
+     * <p>
+     * Вплетённый аспект не регистрируется как бин, иначе Spring AOP применил бы его ещё раз через прокси.
+     * Если класс аспекта не вплетён (агент не подключён), выводится предупреждение.
+     * </p>
+     *
+     * @param auditLogProperties настройки логирования с ограничениями снимка, выборкой и агрегацией
+     * @param auditIdGenerator   генератор идентификаторов событий
+     * @return инициализатор вплетённого аспекта
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "audit.logging", name = "weaving", havingValue = "aspectj")
+    public SmartInitializingSingleton auditLogWeavingInitializer(AuditLogProperties auditLogProperties,
+                                                                 AuditIdGenerator auditIdGenerator) {
+        return () -> {
+            if (Aspects.hasAspect(AuditLogAspect.class)) {
+                Aspects.aspectOf(AuditLogAspect.class)
+                        .configure(auditLogProperties.getCapture(), auditLogProperties.getSampling(),
+                                auditLogProperties.getAggregation(), auditIdGenerator);
+                log.info("AuditLogAspect is woven by AspectJ");
+            } else {
+                log.warn("audit.logging.weaving=aspectj, but AuditLogAspect is not woven: "
+                        + "start the JVM with -javaagent:aspectjweaver.jar or weave at build time, "
+                        + "@AuditLog methods are not audited");
+            }
+        };
+    }
+
+    /**
+     * Создаёт генератор идентификаторов событий аудита, если приложение не объявило свой {@link AuditIdGenerator}.
+     *
+     * @return упорядоченный по времени генератор UUID версии 7
+     */
+    @Bean
+    @ConditionalOnMissingBean(AuditIdGenerator.class)
+    public AuditIdGenerator auditIdGenerator() {
+        return new TimeOrderedIdGenerator();
     }
 
     /**
      * Создаёт бин фильтра для логирования HTTP-запросов.
      *
+     * @param auditIdGenerator генератор идентификаторов корреляции
      * @return экземпляр {@link HttpLoggingFilter}
      */
     @Bean
-    public HttpLoggingFilter httpLoggingFilter() {
-        return new HttpLoggingFilter();
+    public HttpLoggingFilter httpLoggingFilter(AuditIdGenerator auditIdGenerator) {
+        return new HttpLoggingFilter(auditIdGenerator);
     }
 
     /**
@@ -0,0 +1,150 @@
+package org.ex9.auditlib.config;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.apache.logging.log4j.core.Appender;
+import org.apache.logging.log4j.core.LifeCycle2;
+import org.aspectj.lang.Aspects;
+import org.ex9.auditlib.appender.KafkaAppender;
+import org.ex9.auditlib.aspect.AuditLogAspect;
+import org.ex9.auditlib.property.AuditLogProperties;
+import org.ex9.auditlib.service.KafkaPublishService;
+import org.ex9.auditlib.service.KafkaSpillLog;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Упорядоченная остановка аудита при закрытии контекста.
+ * <p>
+ * Останавливается после веб-сервера, чтобы события последних запросов успели попасть в аппендеры.
+ * Пишет сводки последнего окна агрегации {@link AuditLogAspect}, отключает аппендеры аудита от логгера, разбирает очереди {@link KafkaAppender}, останавливает
+ * файловый и консольный аппендеры, фиксирует последние пакеты и дожидается подтверждения отправок
+ * {@link KafkaPublishService}. Вся последовательность ограничена
+ * {@link AuditLogProperties#getShutdownTimeout()}: по его истечении оставшиеся события считаются потерянными,
+ * а если включён {@link KafkaSpillLog}, сохраняются в него.
+ * </p>
+ * @author Краковцев Артём
+ */
+@Log4j2
+@Component
+@RequiredArgsConstructor
+public class AuditShutdownLifecycle implements SmartLifecycle {
+
+    /** Фаза ниже фаз веб-сервера: при остановке он закрывается раньше. */
+    static final int PHASE = SmartLifecycle.DEFAULT_PHASE - 4096;
+
+    private final AuditLogProperties auditLogProperties;
+    private final ObjectProvider<LogConfiguration> logConfiguration;
+    private final ObjectProvider<KafkaPublishService> kafkaPublishService;
+    private final ObjectProvider<KafkaSpillLog> spillLog;
+    private final ObjectProvider<AuditLogAspect> auditLogAspect;
+
+    private volatile boolean running;
+    private volatile long flushedEvents;
+    private volatile long abandonedEvents;
+    private volatile long spilledEvents;
+
+    @Override
+    public void start() {
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        long started = System.nanoTime();
+        long deadline = started + auditLogProperties.getShutdownTimeout().toNanos();
+
+        AuditLogAspect aspect = auditLogAspect.getIfAvailable();
+        if (aspect == null && Aspects.hasAspect(AuditLogAspect.class)) {
+            aspect = Aspects.aspectOf(AuditLogAspect.class);
+        }
+        if (aspect != null) {
+            aspect.close();
+        }
+
+        LogConfiguration configuration = logConfiguration.getIfAvailable();
+        List<Appender> appenders = configuration != null ? configuration.detachAppenders() : List.of();
+        KafkaPublishService publishService = kafkaPublishService.getIfAvailable();
+        KafkaSpillLog spill = spillLog.getIfAvailable();
+
+        long pending = publishService != null ? publishService.getPendingEvents() : 0;
+        for (Appender appender : appenders) {
+            if (appender instanceof KafkaAppender kafkaAppender) {
+                pending += kafkaAppender.getPendingEvents();
+            }
+        }
+        long spilledBefore = spill != null ? spill.getPendingRecords() : 0;
+
+        long abandoned = 0;
+        for (Appender appender : appenders) {
+            if (appender instanceof KafkaAppender kafkaAppender) {
+                abandoned += kafkaAppender.drain(remaining(deadline));
+            }
+            if (appender instanceof LifeCycle2 lifeCycle) {
+                lifeCycle.stop(remaining(deadline).toMillis(), TimeUnit.MILLISECONDS);
+            } else {
+                appender.stop();
+            }
+        }
+        if (publishService != null) {
+            abandoned += publishService.drain(remaining(deadline));
+        }
+
+        spilledEvents = spill != null ? Math.max(0, spill.getPendingRecords() - spilledBefore) : 0;
+        abandonedEvents = abandoned;
+        flushedEvents = Math.max(0, pending - abandoned - spilledEvents);
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+        if (abandoned > 0) {
+            log.warn("Audit shutdown gave up after {} ms: {} events flushed, {} spilled, {} abandoned",
+                    elapsed, flushedEvents, spilledEvents, abandonedEvents);
+        } else {
+            log.info("Audit shutdown completed in {} ms: {} events flushed, {} spilled",
+                    elapsed, flushedEvents, spilledEvents);
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return PHASE;
+    }
+
+    /**
+     * @return количество событий, отправленных в Kafka во время остановки
+     */
+    public long getFlushedEvents() {
+        return flushedEvents;
+    }
+
+    /**
+     * @return количество событий, оставшихся неотправленными по истечении времени остановки
+     */
+    public long getAbandonedEvents() {
+        return abandonedEvents;
+    }
+
+    /**
+     * @return количество событий, сохранённых в журнал неотправленных событий во время остановки
+     */
+    public long getSpilledEvents() {
+        return spilledEvents;
+    }
+
+    private static Duration remaining(long deadline) {
+        return Duration.ofNanos(Math.max(0, deadline - System.nanoTime()));
+    }
+
+}
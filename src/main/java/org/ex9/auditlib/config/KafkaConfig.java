@@ -3,25 +3,51 @@ package org.ex9.auditlib.config;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
 import org.apache.kafka.common.serialization.StringSerializer;
 import org.ex9.auditlib.property.AuditKafkaProperties;
 import org.ex9.auditlib.property.AuditLogProperties;
+import org.ex9.auditlib.service.AuditRecordHeaders;
+import org.ex9.auditlib.service.InFlightBudget;
+import org.ex9.auditlib.service.KafkaBatchPublisher;
+import org.ex9.auditlib.service.KafkaProducerPool;
 import org.ex9.auditlib.service.KafkaPublishService;
+import org.ex9.auditlib.service.KafkaRoute;
+import org.ex9.auditlib.service.KafkaRouter;
+import org.ex9.auditlib.service.KafkaSpillLog;
+import org.ex9.auditlib.service.KafkaTemplateRegistry;
+import org.ex9.auditlib.service.PartitionKeyResolver;
+import org.ex9.auditlib.util.DeliveryGuarantee;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
+import org.springframework.boot.context.properties.PropertyMapper;
+import org.springframework.boot.ssl.SslBundles;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.kafka.core.DefaultKafkaProducerFactory;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.core.ProducerFactory;
 
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Конфигурация Kafka.
  * <p>
- * Настраивает продюсера Kafka с семантикой exactly-once.
- * Используется для отправки логов в формате JSON в топик Kafka из {@link AuditKafkaProperties}.
+ * Настраивает продюсера Kafka с семантикой exactly-once, а также продюсеров для остальных
+ * профилей {@link DeliveryGuarantee}. Используется для отправки логов в формате JSON в топик Kafka из {@link AuditKafkaProperties}.
+ * </p>
+ * <p>
+ * Свойства продюсера собираются в порядке возрастания приоритета: <code>spring.kafka.producer.*</code>,
+ * настройки батчинга и сжатия из <code>audit.kafka.producer.*</code>, затем параметры профиля доставки
+ * и сериализаторы, которые переопределить нельзя.
  * </p>
  * @author Краковецв Артём
  */
@@ -35,7 +61,13 @@ public class KafkaConfig {
     @Value("${audit.kafka.transactional-id-prefix:audit-lib-tx-}")
     private String transactionalIdPrefix;
 
+    @Value("${spring.application.name:}")
+    private String applicationName;
+
     private final AuditLogProperties auditLogProperties;
+    private final AuditKafkaProperties auditKafkaProperties;
+    private final ObjectProvider<KafkaProperties> kafkaProperties;
+    private final ObjectProvider<SslBundles> sslBundles;
 
     /**
      * Создаёт фабрику продюсера с настройками для семантики exactly-once.
@@ -43,20 +75,8 @@ public class KafkaConfig {
      * @return фабрика продюсера
      */
     @Bean
-    public ProducerFactory<String, String> producerFactory() {
-        Map<String, Object> configProps = new HashMap<>();
-        configProps.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServer);
-        configProps.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
-        configProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
-        configProps.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
-        configProps.put(ProducerConfig.ACKS_CONFIG, "all");
-        configProps.put(ProducerConfig.RETRIES_CONFIG, Integer.MAX_VALUE);
-        configProps.put(ProducerConfig.MAX_IN_FLIGHT_REQUESTS_PER_CONNECTION, 5);
-
-        DefaultKafkaProducerFactory<String, String> factory = new DefaultKafkaProducerFactory<>(configProps);
-        factory.setTransactionIdPrefix(transactionalIdPrefix);
-
-        return factory;
+    public ProducerFactory<String, byte[]> producerFactory() {
+        return createProducerFactory(DeliveryGuarantee.EXACTLY_ONCE);
     }
 
     /**
@@ -65,20 +85,294 @@ public class KafkaConfig {
      * @return экземпляр {@link KafkaTemplate}
      */
     @Bean
-    public KafkaTemplate<String, String> kafkaTemplate() {
+    public KafkaTemplate<String, byte[]> kafkaTemplate() {
         return new KafkaTemplate<>(producerFactory());
     }
 
+    /**
+     * Создаёт реестр шаблонов Kafka для профилей доставки.
+     *
+     * @param kafkaTemplate транзакционный шаблон Kafka
+     * @return экземпляр {@link KafkaTemplateRegistry}
+     */
+    @Bean
+    public KafkaTemplateRegistry kafkaTemplateRegistry(KafkaTemplate<String, byte[]> kafkaTemplate) {
+        return new KafkaTemplateRegistry(kafkaTemplate, this::createProducerFactory);
+    }
+
+    /**
+     * Создаёт локальный журнал событий, не отправленных в Kafka.
+     * Активируется свойством <code>audit.kafka.spill.enabled=true</code>.
+     * Переотправка выполняется транзакционно.
+     *
+     * @param kafkaTemplate шаблон Kafka для переотправки сообщений
+     * @param props настройки Kafka из {@link AuditKafkaProperties}
+     * @return экземпляр {@link KafkaSpillLog}
+     */
+    @Bean(initMethod = "start", destroyMethod = "close")
+    @ConditionalOnProperty(prefix = "audit.kafka.spill", name = "enabled", havingValue = "true")
+    public KafkaSpillLog kafkaSpillLog(KafkaTemplate<String, byte[]> kafkaTemplate, AuditKafkaProperties props) {
+        return new KafkaSpillLog(props.getSpill(), records -> kafkaTemplate.executeInTransaction(ops -> {
+            records.forEach(ops::send);
+            return true;
+        }));
+    }
+
+    /**
+     * Создаёт бюджет памяти под события, ещё не подтверждённые Kafka.
+     * Активируется свойством <code>audit.kafka.overflow.enabled=true</code>.
+     *
+     * @param props настройки Kafka из {@link AuditKafkaProperties}
+     * @return экземпляр {@link InFlightBudget}
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "audit.kafka.overflow", name = "enabled", havingValue = "true")
+    public InFlightBudget inFlightBudget(AuditKafkaProperties props) {
+        return new InFlightBudget(props.getOverflow());
+    }
+
+    /**
+     * Создаёт публикатор, фиксирующий события пакетами в одной транзакции.
+     * Активируется свойством <code>audit.kafka.batch.enabled=true</code>.
+     *
+     * @param kafkaTemplate шаблон Kafka для отправки сообщений
+     * @param props настройки Kafka из {@link AuditKafkaProperties}
+     * @param spillLog журнал неотправленных событий, если он включён
+     * @param inFlightBudget бюджет памяти под неотправленные события, если он включён
+     * @return экземпляр {@link KafkaBatchPublisher}
+     */
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(prefix = "audit.kafka.batch", name = "enabled", havingValue = "true")
+    public KafkaBatchPublisher kafkaBatchPublisher(KafkaTemplate<String, byte[]> kafkaTemplate,
+                                                   AuditKafkaProperties props,
+                                                   ObjectProvider<KafkaSpillLog> spillLog,
+                                                   ObjectProvider<InFlightBudget> inFlightBudget) {
+        return new KafkaBatchPublisher(kafkaTemplate, props.getBatch(), spillLog.getIfAvailable(),
+                inFlightBudget.getIfAvailable());
+    }
+
+    /**
+     * Создаёт пул транзакционных продюсеров из <code>audit.kafka.producer-pool-size</code> шардов.
+     * Шард 0 использует общие шаблон и пакетный публикатор, шард i — префикс transactional.id
+     * <code>{transactional-id-prefix}i-</code>.
+     *
+     * @param kafkaTemplate транзакционный шаблон Kafka
+     * @param batchPublisher пакетный публикатор, если пакетная отправка включена
+     * @param spillLog журнал неотправленных событий, если он включён
+     * @param inFlightBudget бюджет памяти под неотправленные события, если он включён
+     * @return экземпляр {@link KafkaProducerPool}
+     */
+    @Bean
+    public KafkaProducerPool kafkaProducerPool(KafkaTemplate<String, byte[]> kafkaTemplate,
+                                               ObjectProvider<KafkaBatchPublisher> batchPublisher,
+                                               ObjectProvider<KafkaSpillLog> spillLog,
+                                               ObjectProvider<InFlightBudget> inFlightBudget) {
+        int size = Math.max(1, auditKafkaProperties.getProducerPoolSize());
+        KafkaBatchPublisher sharedBatchPublisher = batchPublisher.getIfAvailable();
+        List<KafkaTemplate<String, byte[]>> templates = new ArrayList<>(size);
+        List<KafkaBatchPublisher> batchPublishers = new ArrayList<>(size);
+        templates.add(kafkaTemplate);
+        if (sharedBatchPublisher != null) {
+            batchPublishers.add(sharedBatchPublisher);
+        }
+        for (int i = 1; i < size; i++) {
+            KafkaTemplate<String, byte[]> template = new KafkaTemplate<>(
+                    createProducerFactory(DeliveryGuarantee.EXACTLY_ONCE, null, transactionalIdPrefix + i + "-"));
+            templates.add(template);
+            if (sharedBatchPublisher != null) {
+                batchPublishers.add(new KafkaBatchPublisher(template, auditKafkaProperties.getBatch(),
+                        spillLog.getIfAvailable(), inFlightBudget.getIfAvailable()));
+            }
+        }
+        return new KafkaProducerPool(templates, batchPublishers);
+    }
+
+    /**
+     * Создаёт таблицу маршрутов событий из {@link AuditKafkaProperties#getRoutes()}.
+     * <p>
+     * Маршрут без собственных настроек продюсера использует общий шаблон своего профиля доставки.
+     * Транзакционные продюсеры маршрутов получают отдельный префикс transactional.id.
+     * </p>
+     *
+     * @param templateRegistry реестр шаблонов профилей доставки
+     * @param spillLog журнал неотправленных событий, если он включён
+     * @param inFlightBudget бюджет памяти под неотправленные события, если он включён
+     * @return экземпляр {@link KafkaRouter}
+     */
+    @Bean
+    public KafkaRouter kafkaRouter(KafkaTemplateRegistry templateRegistry,
+                                   ObjectProvider<KafkaSpillLog> spillLog,
+                                   ObjectProvider<InFlightBudget> inFlightBudget) {
+        List<KafkaRoute> routes = new ArrayList<>();
+        List<AuditKafkaProperties.Route> configured = auditKafkaProperties.getRoutes();
+        for (int i = 0; i < configured.size(); i++) {
+            routes.add(createRoute(i, configured.get(i), templateRegistry,
+                    spillLog.getIfAvailable(), inFlightBudget.getIfAvailable()));
+        }
+        return new KafkaRouter(routes);
+    }
+
     /**
      * Создаёт бин сервиса для отправки сообщений в Kafka.
      *
      * @param kafkaTemplate шаблон Kafka для отправки сообщений
      * @param props настройки Kafka из {@link AuditKafkaProperties}
+     * @param batchPublisher пакетный публикатор, если пакетная отправка включена
+     * @param templateRegistry реестр шаблонов для нетранзакционных профилей доставки
+     * @param spillLog журнал неотправленных событий, если он включён
+     * @param partitionKeyResolver собственная стратегия ключа записи, если она зарегистрирована
+     * @param router таблица маршрутов событий
+     * @param inFlightBudget бюджет памяти под неотправленные события, если он включён
+     * @param producerPool пул транзакционных продюсеров
      * @return экземпляр {@link KafkaPublishService}
      */
     @Bean
-    public KafkaPublishService kafkaPublishService(KafkaTemplate<String, String> kafkaTemplate, AuditKafkaProperties props) {
-        return new KafkaPublishService(kafkaTemplate, props, new ObjectMapper());
+    public KafkaPublishService kafkaPublishService(KafkaTemplate<String, byte[]> kafkaTemplate,
+                                                   AuditKafkaProperties props,
+                                                   ObjectProvider<KafkaBatchPublisher> batchPublisher,
+                                                   KafkaTemplateRegistry templateRegistry,
+                                                   ObjectProvider<KafkaSpillLog> spillLog,
+                                                   ObjectProvider<PartitionKeyResolver> partitionKeyResolver,
+                                                   KafkaRouter router,
+                                                   ObjectProvider<InFlightBudget> inFlightBudget,
+                                                   KafkaProducerPool producerPool) {
+        return KafkaPublishService.builder()
+                .kafkaTemplate(kafkaTemplate)
+                .auditKafkaProperties(props)
+                .objectMapper(new ObjectMapper())
+                .batchPublisher(batchPublisher.getIfAvailable())
+                .templateRegistry(templateRegistry)
+                .spillLog(spillLog.getIfAvailable())
+                .partitionKeyResolver(partitionKeyResolver.getIfAvailable())
+                .recordHeaders(new AuditRecordHeaders(
+                        props.getServiceName() != null ? props.getServiceName() : applicationName))
+                .router(router)
+                .inFlightBudget(inFlightBudget.getIfAvailable())
+                .producerPool(producerPool)
+                .build();
+    }
+
+    /**
+     * Создаёт маршрут событий.
+     *
+     * @param index порядковый номер маршрута
+     * @param route настройки маршрута
+     * @param templateRegistry реестр общих шаблонов
+     * @param spillLog журнал неотправленных событий, может быть null
+     * @param inFlightBudget бюджет памяти под неотправленные события, может быть null
+     * @return маршрут
+     */
+    private KafkaRoute createRoute(int index,
+                                   AuditKafkaProperties.Route route,
+                                   KafkaTemplateRegistry templateRegistry,
+                                   KafkaSpillLog spillLog,
+                                   InFlightBudget inFlightBudget) {
+        DeliveryGuarantee delivery = route.getDelivery() != null ? route.getDelivery() : auditKafkaProperties.getDelivery();
+        boolean ownsTemplate = route.getProducer() != null;
+        KafkaTemplate<String, byte[]> template;
+        if (ownsTemplate) {
+            template = new KafkaTemplate<>(createProducerFactory(delivery, route.getProducer(),
+                    transactionalIdPrefix + "route-" + index + "-"));
+        } else {
+            template = templateRegistry.get(delivery);
+        }
+        KafkaBatchPublisher batchPublisher = null;
+        if (delivery == DeliveryGuarantee.EXACTLY_ONCE && route.getBatch() != null && route.getBatch().isEnabled()) {
+            batchPublisher = new KafkaBatchPublisher(template, route.getBatch(), spillLog, inFlightBudget);
+        }
+        Set<String> levels = new HashSet<>();
+        route.getLevels().forEach(level -> levels.add(level.toUpperCase()));
+
+        return KafkaRoute.builder()
+                .kinds(Set.copyOf(route.getKinds()))
+                .levels(levels)
+                .topic(route.getTopic() != null ? route.getTopic() : auditKafkaProperties.getTopic())
+                .delivery(delivery)
+                .template(template)
+                .batchPublisher(batchPublisher)
+                .ownsTemplate(ownsTemplate)
+                .build();
+    }
+
+    /**
+     * Создаёт фабрику продюсера для указанного профиля доставки.
+     *
+     * @param delivery профиль доставки
+     * @return фабрика продюсера
+     */
+    private ProducerFactory<String, byte[]> createProducerFactory(DeliveryGuarantee delivery) {
+        return createProducerFactory(delivery, null, transactionalIdPrefix);
+    }
+
+    /**
+     * Создаёт фабрику продюсера для указанного профиля доставки.
+     *
+     * @param delivery профиль доставки
+     * @param overrides настройки продюсера поверх общих, может быть null
+     * @param transactionIdPrefix префикс transactional.id для профиля exactly-once
+     * @return фабрика продюсера
+     */
+    private ProducerFactory<String, byte[]> createProducerFactory(DeliveryGuarantee delivery,
+                                                                  AuditKafkaProperties.Producer overrides,
+                                                                  String transactionIdPrefix) {
+        Map<String, Object> configProps = new HashMap<>();
+        KafkaProperties springKafkaProperties = kafkaProperties.getIfAvailable();
+        if (springKafkaProperties != null) {
+            configProps.putAll(springKafkaProperties.buildProducerProperties(sslBundles.getIfAvailable()));
+        }
+        if (bootstrapServer != null && !bootstrapServer.isBlank()) {
+            configProps.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServer);
+        }
+        applyProducerTuning(configProps, auditKafkaProperties.getProducer());
+        if (overrides != null) {
+            applyProducerTuning(configProps, overrides);
+        }
+
+        configProps.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        configProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, ByteArraySerializer.class);
+        configProps.remove(ProducerConfig.TRANSACTIONAL_ID_CONFIG);
+
+        switch (delivery) {
+            case EXACTLY_ONCE, AT_LEAST_ONCE -> {
+                configProps.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
+                configProps.put(ProducerConfig.ACKS_CONFIG, "all");
+                configProps.put(ProducerConfig.RETRIES_CONFIG, Integer.MAX_VALUE);
+                configProps.put(ProducerConfig.MAX_IN_FLIGHT_REQUESTS_PER_CONNECTION, 5);
+            }
+            case FIRE_AND_FORGET -> {
+                configProps.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, false);
+                configProps.put(ProducerConfig.ACKS_CONFIG, auditKafkaProperties.getFireAndForgetAcks());
+                configProps.put(ProducerConfig.RETRIES_CONFIG, 0);
+            }
+        }
+
+        DefaultKafkaProducerFactory<String, byte[]> factory = new DefaultKafkaProducerFactory<>(configProps);
+        if (delivery == DeliveryGuarantee.EXACTLY_ONCE) {
+            factory.setTransactionIdPrefix(transactionIdPrefix);
+        }
+
+        return factory;
+    }
+
+    /**
+     * Применяет настройки батчинга и сжатия из {@link AuditKafkaProperties.Producer}.
+     *
+     * @param configProps свойства продюсера
+     * @param producer настройки батчинга и сжатия
+     */
+    private void applyProducerTuning(Map<String, Object> configProps, AuditKafkaProperties.Producer producer) {
+        PropertyMapper map = PropertyMapper.get().alwaysApplyingWhenNonNull();
+        map.from(producer::getLinger).as(Duration::toMillis)
+                .to(value -> configProps.put(ProducerConfig.LINGER_MS_CONFIG, value));
+        map.from(producer::getBatchSize).asInt(size -> size.toBytes())
+                .to(value -> configProps.put(ProducerConfig.BATCH_SIZE_CONFIG, value));
+        map.from(producer::getBufferMemory).as(size -> size.toBytes())
+                .to(value -> configProps.put(ProducerConfig.BUFFER_MEMORY_CONFIG, value));
+        map.from(producer::getCompressionType).as(type -> type.name)
+                .to(value -> configProps.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, value));
+        map.from(producer::getMaxRequestSize).asInt(size -> size.toBytes())
+                .to(value -> configProps.put(ProducerConfig.MAX_REQUEST_SIZE_CONFIG, value));
+        configProps.putAll(producer.getProperties());
     }
 
 }
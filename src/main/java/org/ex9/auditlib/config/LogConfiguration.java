@@ -4,14 +4,20 @@ import lombok.RequiredArgsConstructor;
 import org.apache.logging.log4j.core.Appender;
 import org.apache.logging.log4j.core.LoggerContext;
 import org.apache.logging.log4j.core.config.Configuration;
+import org.apache.logging.log4j.core.config.LoggerConfig;
 import org.apache.logging.log4j.LogManager;
 import org.ex9.auditlib.appender.AppenderFabric;
+import org.ex9.auditlib.property.AuditKafkaProperties;
 import org.ex9.auditlib.property.AuditLogProperties;
 import org.ex9.auditlib.service.KafkaPublishService;
+import org.ex9.auditlib.util.LogMode;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * Конфигурация логгеров.
  * <p>
@@ -19,6 +25,9 @@ import org.springframework.stereotype.Component;
  * на основе {@link AuditLogProperties}. Kafka логирование обрабатывается отдельно
  * через {@link KafkaPublishService}.
  * </p>
+ * <p>
+ * Если включены и консоль, и файл, строка лога кодируется один раз на событие и передаётся обоим аппендерам.
+ * </p>
  * @author Краковев Артём
  */
 @Component
@@ -30,6 +39,11 @@ public class LogConfiguration implements InitializingBean {
     @Autowired(required = false)
     private final KafkaPublishService kafkaPublishService;
 
+    @Autowired(required = false)
+    private final AuditKafkaProperties auditKafkaProperties;
+
+    private final List<Appender> appenders = new ArrayList<>();
+
     /**
      * Инициализирует и добавляет аппендеры на основе настроек {@link AuditLogProperties}
      * для режимов логирования (консоль, файл, кафка).
@@ -40,12 +54,40 @@ public class LogConfiguration implements InitializingBean {
         LoggerContext context = (LoggerContext) LogManager.getContext(false);
         Configuration config = context.getConfiguration();
 
+        boolean shareEncoded = auditLogProperties.getModes().stream()
+                .filter(mode -> mode != LogMode.KAFKA)
+                .distinct()
+                .count() > 1;
         auditLogProperties.getModes().forEach(mode -> {
-            Appender appender = AppenderFabric.getAppender(mode, config, kafkaPublishService);
+            Appender appender = AppenderFabric.getAppender(mode, config, kafkaPublishService, auditKafkaProperties,
+                    shareEncoded);
             config.getRootLogger().addAppender(appender, null, null);
+            if (appender != null) {
+                appenders.add(appender);
+            }
         });
 
         context.updateLoggers();
     }
 
+    /**
+     * Отключает добавленные аппендеры от корневого логгера, после чего новые события в них не попадают.
+     * Аппендеры не останавливаются, чтобы вызывающий мог дождаться отправки накопленных событий.
+     *
+     * @return отключённые аппендеры
+     */
+    public synchronized List<Appender> detachAppenders() {
+        LoggerContext context = (LoggerContext) LogManager.getContext(false);
+        LoggerConfig rootLogger = context.getConfiguration().getRootLogger();
+        List<Appender> detached = List.copyOf(appenders);
+        detached.forEach(appender -> {
+            if (rootLogger.getAppenders().get(appender.getName()) == appender) {
+                rootLogger.removeAppender(appender.getName());
+            }
+        });
+        appenders.clear();
+        context.updateLoggers();
+        return detached;
+    }
+
 }
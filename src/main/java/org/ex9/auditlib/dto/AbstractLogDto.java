@@ -0,0 +1,37 @@
+package org.ex9.auditlib.dto;
+
+import java.nio.charset.Charset;
+
+/**
+ * Базовый класс dto с кешем закодированной строки лога.
+ * <p>
+ * Если событие выводится в несколько текстовых аппендеров, строка лога кодируется в байты один раз,
+ * и все аппендеры пишут один и тот же массив. Кеш не участвует в сериализации, equals и hashCode;
+ * dto не должен изменяться после передачи в логгер.
+ * </p>
+ * @author Краковцев Артём
+ */
+public abstract class AbstractLogDto implements LogDto {
+
+    private transient volatile EncodedText encodedText;
+
+    /**
+     * Возвращает строку лога в указанной кодировке, кодируя её при первом обращении.
+     *
+     * @param charset кодировка
+     * @return байты строки лога; массив общий для всех вызывающих и не должен изменяться
+     */
+    public byte[] encodeLog(Charset charset) {
+        EncodedText cached = encodedText;
+        if (cached != null && cached.charset().equals(charset)) {
+            return cached.bytes();
+        }
+        byte[] bytes = getLog().getBytes(charset);
+        encodedText = new EncodedText(charset, bytes);
+        return bytes;
+    }
+
+    private record EncodedText(Charset charset, byte[] bytes) {
+    }
+
+}
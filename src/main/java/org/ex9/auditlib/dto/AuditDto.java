@@ -3,21 +3,22 @@ package org.ex9.auditlib.dto;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
 
-import java.time.LocalDateTime;
-import java.util.Arrays;
-import java.util.StringJoiner;
+import org.apache.logging.log4j.util.StringBuilders;
+import org.ex9.auditlib.util.AuditTimestamps;
 
 /**
  * DTO для передачи данных в логи и Kafka.
  * @author Краковев Артём
  */
 @Data
+@EqualsAndHashCode(callSuper = false)
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
-public class AuditDto implements LogDto {
+public class AuditDto extends AbstractLogDto {
 
     /** Уникальный идентификатор сообщения. */
     private String messageId;
@@ -25,7 +26,13 @@ public class AuditDto implements LogDto {
     /** Уникальный идентификатор события. */
     private String id;
 
-    /** Тип события (START/END/ERROR). */
+    /** Идентификатор события внешнего аудируемого вызова того же потока, null для вызова верхнего уровня. */
+    private String parentId;
+
+    /** Идентификатор корреляции запроса. */
+    private String correlationId;
+
+    /** Тип события (START/END/ERROR/SUMMARY). */
     private String type;
 
     /** Название метода (className.methodName). */
@@ -40,33 +47,83 @@ public class AuditDto implements LogDto {
     /** Текст ошибки (для события ERROR). */
     private String error;
 
+    /** Сводка вызовов метода за окно агрегации (для события SUMMARY). */
+    private AuditSummary summary;
+
+    /** Длительность вызова в наносекундах (для событий END и ERROR). */
+    private Long durationNanos;
+
     /** Уровень логирования (INFO, DEBUG и т.д.). */
     private String logLevel;
 
-    /** Время события. По умолчанию текущая дата и время. */
+    /** Время события строкой. Если не задано, строится из {@link #epochMicros} при выводе. */
+    private String timestamp;
+
+    /** Время события в микросекундах от эпохи. По умолчанию текущее время. */
     @Builder.Default
-    private String timestamp = LocalDateTime.now().toString();
+    private long epochMicros = AuditTimestamps.nowMicros();
 
+    /**
+     * Возвращает время события строкой: заданное явно или локальные дата и время из {@link #epochMicros}.
+     *
+     * @return время события
+     */
+    public String getTimestamp() {
+        return timestamp != null ? timestamp : AuditTimestamps.format(epochMicros);
+    }
+
+    /**
+     * Дописывает строку лога в буфер в формате:
+     * timestamp logLevel type id (args = [...] | result = ... | error = ... | summary = ...) methodName [durationNanos = ...]
+     *
+     * @param buffer буфер для записи
+     */
     @Override
-    public String getLog() {
-        StringJoiner log = new StringJoiner(" ");
-        log.add("\n");
-        log.add(timestamp);
-        log.add(logLevel);
-        log.add(type);
-        log.add(id);
-        log.add(getThirdValue());
-        log.add(methodName);
-        return log.toString();
+    public void formatTo(StringBuilder buffer) {
+        buffer.append("\n ");
+        if (timestamp != null) {
+            buffer.append(timestamp);
+        } else {
+            AuditTimestamps.formatTo(buffer, epochMicros);
+        }
+        buffer.append(' ').append(logLevel)
+                .append(' ').append(type)
+                .append(' ').append(id)
+                .append(' ');
+        formatThirdValue(buffer);
+        buffer.append(' ').append(methodName);
+        if (durationNanos != null) {
+            buffer.append(" durationNanos = ").append(durationNanos.longValue());
+        }
+    }
+
+    private void formatThirdValue(StringBuilder buffer) {
+        if (type == null) {
+            return;
+        }
+        switch (type) {
+            case "ERROR" -> buffer.append("error = ").append(error);
+            case "END" -> StringBuilders.appendValue(buffer.append("result = "), result);
+            case "START" -> formatArgs(buffer.append("args = "));
+            case "SUMMARY" -> StringBuilders.appendValue(buffer.append("summary = "), summary);
+            default -> {
+            }
+        }
     }
 
-    private String getThirdValue() {
-        return switch (type) {
-            case "ERROR" -> "error = " + error;
-            case "END" -> "result = " + result.toString();
-            case "START" -> "args = " + Arrays.toString(args);
-            default -> "";
-        };
+    private void formatArgs(StringBuilder buffer) {
+        if (args == null) {
+            buffer.append("null");
+            return;
+        }
+        buffer.append('[');
+        for (int i = 0; i < args.length; i++) {
+            if (i > 0) {
+                buffer.append(", ");
+            }
+            StringBuilders.appendValue(buffer, args[i]);
+        }
+        buffer.append(']');
     }
 
 }
@@ -0,0 +1,64 @@
+package org.ex9.auditlib.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.apache.logging.log4j.util.StringBuilderFormattable;
+
+/**
+ * Сводка вызовов метода за окно агрегации (для события SUMMARY).
+ * @author Краковцев Артём
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class AuditSummary implements StringBuilderFormattable {
+
+    /** Начало окна в микросекундах от эпохи. */
+    private long windowStartMicros;
+
+    /** Длительность окна в миллисекундах. */
+    private long windowMillis;
+
+    /** Количество завершённых вызовов. */
+    private long calls;
+
+    /** Количество вызовов, завершившихся ошибкой. */
+    private long errors;
+
+    /** Средняя длительность вызова в наносекундах. */
+    private long avgNanos;
+
+    /** Медиана длительности в наносекундах. */
+    private long p50Nanos;
+
+    /** 90-й перцентиль длительности в наносекундах. */
+    private long p90Nanos;
+
+    /** 99-й перцентиль длительности в наносекундах. */
+    private long p99Nanos;
+
+    /** Максимальная длительность в наносекундах. */
+    private long maxNanos;
+
+    /**
+     * Дописывает сводку в буфер в формате:
+     * calls = N errors = N avgNanos = N p50Nanos = N p90Nanos = N p99Nanos = N maxNanos = N windowMillis = N
+     *
+     * @param buffer буфер для записи
+     */
+    @Override
+    public void formatTo(StringBuilder buffer) {
+        buffer.append("calls = ").append(calls)
+                .append(" errors = ").append(errors)
+                .append(" avgNanos = ").append(avgNanos)
+                .append(" p50Nanos = ").append(p50Nanos)
+                .append(" p90Nanos = ").append(p90Nanos)
+                .append(" p99Nanos = ").append(p99Nanos)
+                .append(" maxNanos = ").append(maxNanos)
+                .append(" windowMillis = ").append(windowMillis);
+    }
+
+}
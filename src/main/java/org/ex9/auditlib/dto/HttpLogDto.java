@@ -4,27 +4,33 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
-
-import java.time.LocalDateTime;
-import java.util.StringJoiner;
+import org.ex9.auditlib.util.AuditTimestamps;
 
 /**
  * DTO для передачи данных аудита HTTP-запросов в логах и Kafka.
  * @author Краковев Артём
  */
 @Data
-@Builder
+@EqualsAndHashCode(callSuper = false)
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
-public class HttpLogDto implements LogDto {
+public class HttpLogDto extends AbstractLogDto {
 
     /** Уникальный идентификатор сообщения. */
     private String messageId;
 
-    /** Время запроса. */
+    /** Идентификатор корреляции запроса. */
+    private String correlationId;
+
+    /** Время запроса строкой. Если не задано, строится из {@link #epochMicros} при выводе. */
+    private String timestamp;
+
+    /** Время запроса в микросекундах от эпохи. По умолчанию текущее время. */
     @Builder.Default
-    private String timestamp = LocalDateTime.now().toString();
+    private long epochMicros = AuditTimestamps.nowMicros();
 
     /** Направление запроса (Incoming/Outgoing). */
     private String direction;
@@ -44,27 +50,55 @@ public class HttpLogDto implements LogDto {
     /** Тело ответа. */
     private String responseBody;
 
+    /**
+     * Возвращает время запроса строкой: заданное явно или локальные дата и время из {@link #epochMicros}.
+     *
+     * @return время запроса
+     */
+    public String getTimestamp() {
+        return timestamp != null ? timestamp : AuditTimestamps.format(epochMicros);
+    }
+
+    /**
+     * Дописывает строковое представление лога для вывода в консоль или файл в буфер в формате:
+     * direction method statusCode url RequestBody = { requestBody } ResponseBody = { responseBody }
+     *
+     * @param buffer буфер для записи
+     */
+    @Override
+    public void formatTo(StringBuilder buffer) {
+        buffer.append(direction)
+                .append(' ').append(method)
+                .append(' ').append(statusCode)
+                .append(' ').append(url)
+                .append(" RequestBody = { ").append(requestBody)
+                .append(" } ResponseBody = { ").append(responseBody)
+                .append(" }");
+    }
+
     /**
      * Возвращает строковое представление лога для вывода в консоль или файл.
      *
-     * @return строка лога в формате:
-     * direction method statusCode url RequestBody = {requestBody} ResponseBody = {responseBody}
+     * @return строка лога, которую дописывает {@link #formatTo(StringBuilder)}
      */
     @JsonIgnore
+    @Override
     public String getLog() {
-        StringJoiner log = new StringJoiner(" ");
-        log.add(direction);
-        log.add(method);
-        log.add(Integer.toString(statusCode));
-        log.add(url);
-        log.add("RequestBody = {");
-        log.add(requestBody);
-        log.add("}");
-        log.add("ResponseBody = {");
-        log.add(responseBody);
-        log.add("}");
-
-        return log.toString();
+        return super.getLog();
+    }
+
+    /**
+     * Возвращает маршрут запроса: HTTP-метод и путь без параметров.
+     *
+     * @return маршрут в формате "method path" или null, если URL не задан
+     */
+    @JsonIgnore
+    public String getRoute() {
+        if (url == null) {
+            return null;
+        }
+        int query = url.indexOf('?');
+        return method + " " + (query >= 0 ? url.substring(0, query) : url);
     }
 
 }
@@ -1,13 +1,28 @@
 package org.ex9.auditlib.dto;
 
+import org.apache.logging.log4j.util.StringBuilderFormattable;
+
 /**
  * Интерфейс для dto.
- * Метод getLog() возвращает строку для логирования.
+ * Метод getLog() возвращает строку для логирования,
+ * метод formatTo(StringBuilder) дописывает ту же строку в переданный буфер без промежуточных строк,
+ * метод getCorrelationId() — идентификатор корреляции запроса, в рамках которого возникло событие.
  *
  * @author Краковцев Артём
  */
-public interface LogDto {
+public interface LogDto extends StringBuilderFormattable {
+
+    /**
+     * Возвращает строку для логирования.
+     *
+     * @return строка, которую {@link #formatTo(StringBuilder)} дописывает в буфер
+     */
+    default String getLog() {
+        StringBuilder log = new StringBuilder();
+        formatTo(log);
+        return log.toString();
+    }
 
-    String getLog();
+    String getCorrelationId();
 
 }
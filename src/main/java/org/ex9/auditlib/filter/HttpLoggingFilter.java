@@ -6,21 +6,40 @@ import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.extern.log4j.Log4j2;
 import org.ex9.auditlib.dto.HttpLogDto;
+import org.ex9.auditlib.util.CorrelationId;
+import org.ex9.auditlib.util.TimeOrderedIdGenerator;
+import org.springframework.util.IdGenerator;
 import org.springframework.web.filter.OncePerRequestFilter;
 import org.springframework.web.util.ContentCachingRequestWrapper;
 import org.springframework.web.util.ContentCachingResponseWrapper;
 
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
-import java.time.LocalDateTime;
 
 /**
  * Фильтр для логирования входящих HTTP-запросов.
+ * <p>
+ * На время обработки запроса устанавливает {@link CorrelationId} из заголовка {@link CorrelationId#HEADER}
+ * или генерирует новый, чтобы события методов и исходящих запросов были связаны с входящим запросом.
+ * </p>
  * @author Краковев Артём
  */
 @Log4j2
 public class HttpLoggingFilter extends OncePerRequestFilter {
 
+    private final IdGenerator idGenerator;
+
+    public HttpLoggingFilter() {
+        this(new TimeOrderedIdGenerator());
+    }
+
+    /**
+     * @param idGenerator генератор идентификаторов корреляции для запросов без заголовка
+     */
+    public HttpLoggingFilter(IdGenerator idGenerator) {
+        this.idGenerator = idGenerator;
+    }
+
     /**
      * Обрабатывает входящий HTTP-запрос и вызывает
      * {@link #logRequestAndResponse(ContentCachingRequestWrapper, ContentCachingResponseWrapper)}}.
@@ -37,11 +56,19 @@ public class HttpLoggingFilter extends OncePerRequestFilter {
         ContentCachingRequestWrapper wrappedRequest = new ContentCachingRequestWrapper(request);
         ContentCachingResponseWrapper wrappedResponse = new ContentCachingResponseWrapper(response);
 
+        String correlationId = request.getHeader(CorrelationId.HEADER);
+        CorrelationId.set(correlationId != null && !correlationId.isBlank()
+                ? correlationId
+                : idGenerator.generateId().toString());
         try {
             filterChain.doFilter(wrappedRequest, wrappedResponse);
         } finally {
-            logRequestAndResponse(wrappedRequest, wrappedResponse);
-            wrappedResponse.copyBodyToResponse();
+            try {
+                logRequestAndResponse(wrappedRequest, wrappedResponse);
+                wrappedResponse.copyBodyToResponse();
+            } finally {
+                CorrelationId.clear();
+            }
         }
     }
 
@@ -58,7 +85,7 @@ public class HttpLoggingFilter extends OncePerRequestFilter {
         String responseBody = new String(response.getContentAsByteArray(), response.getCharacterEncoding());
 
         HttpLogDto dto = HttpLogDto.builder()
-                .timestamp(LocalDateTime.now().toString())
+                .correlationId(CorrelationId.get())
                 .direction("Incoming")
                 .method(request.getMethod())
                 .url(request.getRequestURI() +
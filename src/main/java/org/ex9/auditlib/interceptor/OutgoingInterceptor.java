@@ -3,6 +3,7 @@ package org.ex9.auditlib.interceptor;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
 import org.ex9.auditlib.dto.HttpLogDto;
+import org.ex9.auditlib.util.CorrelationId;
 import org.springframework.http.HttpRequest;
 import org.springframework.http.client.ClientHttpRequestExecution;
 import org.springframework.http.client.ClientHttpRequestInterceptor;
@@ -12,10 +13,10 @@ import org.springframework.util.StreamUtils;
 
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
-import java.time.LocalDateTime;
 
 /**
  * Перехватчик для логирования исходящих HTTP-запросов.
+ * Передаёт идентификатор корреляции текущего запроса в заголовке {@link CorrelationId#HEADER}.
  * @author Краковев Артём
  */
 @RequiredArgsConstructor
@@ -36,13 +37,18 @@ public class OutgoingInterceptor implements ClientHttpRequestInterceptor {
     public ClientHttpResponse intercept(HttpRequest request, byte[] body,
                                         ClientHttpRequestExecution execution) throws IOException {
 
+        String correlationId = CorrelationId.get();
+        if (correlationId != null && !request.getHeaders().containsKey(CorrelationId.HEADER)) {
+            request.getHeaders().set(CorrelationId.HEADER, correlationId);
+        }
+
         ClientHttpResponse response = execution.execute(request, body);
 
         String requestBody = new String(body, StandardCharsets.UTF_8);
         String responseBody = StreamUtils.copyToString(response.getBody(), StandardCharsets.UTF_8);
 
         HttpLogDto dto = HttpLogDto.builder()
-                .timestamp(LocalDateTime.now().toString())
+                .correlationId(correlationId)
                 .direction("Outgoing")
                 .method(request.getMethod().name())
                 .url(request.getURI().toString())
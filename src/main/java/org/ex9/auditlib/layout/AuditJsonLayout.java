@@ -1,5 +1,8 @@
 package org.ex9.auditlib.layout;
 
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.core.JsonFactoryBuilder;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.apache.logging.log4j.core.Layout;
@@ -8,19 +11,47 @@ import org.apache.logging.log4j.core.config.Node;
 import org.apache.logging.log4j.core.config.plugins.Plugin;
 import org.apache.logging.log4j.core.config.plugins.PluginFactory;
 import org.apache.logging.log4j.core.layout.AbstractStringLayout;
+import org.apache.logging.log4j.core.layout.ByteBufferDestination;
 import org.ex9.auditlib.dto.LogDto;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 
 /**
  * Кастомный layout для Console и File appender.
- *
+ * <p>
+ * В методе {@link #encode(LogEvent, ByteBufferDestination)} событие {@link LogDto} сериализуется
+ * генератором Jackson сразу в байтовый буфер без построения промежуточной строки.
+ * Буферы с генераторами берутся из небольшого пула layout и переиспользуются между событиями.
+ * </p>
+ * <p>
+ * Производное поле <code>log</code> в JSON не пишется: оно дублирует остальные поля
+ * и строится заново для каждого события.
+ * </p>
  * @author Краковцев Артём
  */
 @Plugin(name = "AuditJsonLayout", category = Node.CATEGORY, elementType = Layout.ELEMENT_TYPE, printObject = true)
 public class AuditJsonLayout extends AbstractStringLayout {
 
-    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private static final String SERIALIZATION_ERROR = "{\"error\":\"serialization failed\"}";
+    private static final int INITIAL_BUFFER_SIZE = 1024;
+    private static final int MAX_RETAINED_BUFFER_SIZE = 64 * 1024;
+    private static final int POOL_SIZE = Math.max(4, Runtime.getRuntime().availableProcessors());
+
+    private final ObjectMapper objectMapper = new ObjectMapper(new JsonFactoryBuilder()
+            .rootValueSeparator((String) null)
+            .build())
+            .findAndRegisterModules()
+            .addMixIn(LogDto.class, LogDtoMixIn.class);
+
+    /**
+     * Пул буферов с генераторами. В отличие от ThreadLocal, пул не удерживает классы приложения
+     * в потоках контейнера, и Log4j не отключает его в веб-приложениях.
+     */
+    private final BlockingQueue<Encoder> encoders = new ArrayBlockingQueue<>(POOL_SIZE);
 
     protected AuditJsonLayout() {
         super(StandardCharsets.UTF_8);
@@ -33,19 +64,76 @@ public class AuditJsonLayout extends AbstractStringLayout {
 
     @Override
     public String toSerializable(LogEvent event) {
-        Object[] params = event.getMessage().getParameters();
-        if (params != null && params.length > 0) {
-            Object obj = params[0];
-            if (obj instanceof LogDto) {
-                try {
-                    return objectMapper.writeValueAsString(obj);
-                } catch (JsonProcessingException e) {
-                    return "{\"error\":\"serialization failed\"}";
-                }
+        LogDto dto = LogDtoMessages.logDtoOf(event.getMessage());
+        if (dto != null) {
+            try {
+                return objectMapper.writeValueAsString(dto);
+            } catch (JsonProcessingException e) {
+                return SERIALIZATION_ERROR;
             }
         }
 
         return event.getMessage().getFormattedMessage();
     }
 
+    @Override
+    public void encode(LogEvent event, ByteBufferDestination destination) {
+        LogDto dto = LogDtoMessages.logDtoOf(event.getMessage());
+        if (dto == null) {
+            super.encode(event, destination);
+            return;
+        }
+        Encoder encoder = encoders.poll();
+        if (encoder == null) {
+            encoder = createEncoder();
+        }
+        try {
+            objectMapper.writeValue(encoder.generator, dto);
+            encoder.generator.flush();
+            destination.writeBytes(encoder.buffer.array(), 0, encoder.buffer.size());
+        } catch (IOException e) {
+            byte[] error = SERIALIZATION_ERROR.getBytes(StandardCharsets.UTF_8);
+            destination.writeBytes(error, 0, error.length);
+            return;
+        }
+        if (encoder.buffer.array().length <= MAX_RETAINED_BUFFER_SIZE) {
+            encoder.buffer.reset();
+            encoders.offer(encoder);
+        }
+    }
+
+    private Encoder createEncoder() {
+        ReusableBuffer buffer = new ReusableBuffer();
+        try {
+            return new Encoder(buffer, objectMapper.getFactory().createGenerator(buffer));
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot create JSON generator", e);
+        }
+    }
+
+    /**
+     * Генератор и буфер, которыми в каждый момент пользуется один поток.
+     */
+    private record Encoder(ReusableBuffer buffer, JsonGenerator generator) {
+    }
+
+    /**
+     * Буфер с доступом к внутреннему массиву без копирования.
+     */
+    private static final class ReusableBuffer extends ByteArrayOutputStream {
+
+        ReusableBuffer() {
+            super(INITIAL_BUFFER_SIZE);
+        }
+
+        byte[] array() {
+            return buf;
+        }
+
+    }
+
+    @JsonIgnoreProperties({"log"})
+    private interface LogDtoMixIn {
+    }
+
 }
@@ -4,27 +4,59 @@ import org.apache.logging.log4j.core.Layout;
 import org.apache.logging.log4j.core.LogEvent;
 import org.apache.logging.log4j.core.config.Node;
 import org.apache.logging.log4j.core.config.plugins.Plugin;
+import org.apache.logging.log4j.core.config.plugins.PluginAttribute;
 import org.apache.logging.log4j.core.config.plugins.PluginFactory;
 import org.apache.logging.log4j.core.layout.AbstractStringLayout;
+import org.apache.logging.log4j.core.layout.ByteBufferDestination;
+import org.apache.logging.log4j.core.layout.StringBuilderEncoder;
+import org.apache.logging.log4j.message.Message;
+import org.apache.logging.log4j.util.StringBuilderFormattable;
+import org.ex9.auditlib.dto.AbstractLogDto;
 import org.ex9.auditlib.dto.LogDto;
 
 import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 
 /**
  * Кастомный layout для kafka appender.
- *
+ * <p>
+ * В методе {@link #encode(LogEvent, ByteBufferDestination)} событие {@link LogDto} дописывает себя
+ * в переиспользуемый {@link StringBuilder} через {@link StringBuilderFormattable#formatTo(StringBuilder)},
+ * и буфер кодируется в байты сразу в буфер аппендера. Буферы с кодировщиками берутся из небольшого пула layout,
+ * как в {@link AuditJsonLayout}.
+ * </p>
+ * <p>
+ * Если одно событие выводится несколькими текстовыми аппендерами, их layout создаются с флагом
+ * <code>shareEncoded</code>: строка лога кодируется один раз и кешируется в {@link AbstractLogDto},
+ * и каждый аппендер пишет тот же массив байтов.
+ * </p>
  * @author Краковцев Артём
  */
 @Plugin(name = "AuditStringLayout", category = Node.CATEGORY, elementType = Layout.ELEMENT_TYPE, printObject = true)
 public class AuditStringLayout extends AbstractStringLayout {
 
-    protected AuditStringLayout() {
+    private static final int POOL_SIZE = Math.max(4, Runtime.getRuntime().availableProcessors());
+
+    private final BlockingQueue<Renderer> renderers = new ArrayBlockingQueue<>(POOL_SIZE);
+    private final boolean shareEncoded;
+
+    protected AuditStringLayout(boolean shareEncoded) {
         super(StandardCharsets.UTF_8);
+        this.shareEncoded = shareEncoded;
     }
 
-    @PluginFactory
     public static AuditStringLayout createLayout() {
-        return new AuditStringLayout();
+        return createLayout(false);
+    }
+
+    /**
+     * @param shareEncoded кешировать закодированную строку лога в dto для других аппендеров
+     * @return новый экземпляр {@link AuditStringLayout}
+     */
+    @PluginFactory
+    public static AuditStringLayout createLayout(@PluginAttribute("shareEncoded") boolean shareEncoded) {
+        return new AuditStringLayout(shareEncoded);
     }
 
     @Override
@@ -41,4 +73,41 @@ public class AuditStringLayout extends AbstractStringLayout {
         return event.getMessage().getFormattedMessage();
     }
 
+    @Override
+    public void encode(LogEvent event, ByteBufferDestination destination) {
+        if (shareEncoded && LogDtoMessages.logDtoOf(event.getMessage()) instanceof AbstractLogDto logDto) {
+            byte[] encoded = logDto.encodeLog(getCharset());
+            destination.writeBytes(encoded, 0, encoded.length);
+            return;
+        }
+        Renderer renderer = renderers.poll();
+        if (renderer == null) {
+            renderer = new Renderer(new StringBuilder(DEFAULT_STRING_BUILDER_SIZE), new StringBuilderEncoder(getCharset()));
+        }
+        StringBuilder text = renderer.text();
+        formatTo(event.getMessage(), text);
+        renderer.encoder().encode(text, destination);
+        if (text.capacity() <= MAX_STRING_BUILDER_SIZE) {
+            text.setLength(0);
+            renderers.offer(renderer);
+        }
+    }
+
+    private static void formatTo(Message message, StringBuilder text) {
+        LogDto logDto = LogDtoMessages.logDtoOf(message);
+        if (logDto != null) {
+            logDto.formatTo(text);
+        } else if (message instanceof StringBuilderFormattable formattable) {
+            formattable.formatTo(text);
+        } else {
+            text.append(message.getFormattedMessage());
+        }
+    }
+
+    /**
+     * Буфер текста и кодировщик, которыми в каждый момент пользуется один поток.
+     */
+    private record Renderer(StringBuilder text, StringBuilderEncoder encoder) {
+    }
+
 }
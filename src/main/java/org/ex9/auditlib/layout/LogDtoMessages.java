@@ -0,0 +1,38 @@
+package org.ex9.auditlib.layout;
+
+import org.apache.logging.log4j.message.Message;
+import org.apache.logging.log4j.message.ObjectMessage;
+import org.apache.logging.log4j.message.ReusableObjectMessage;
+import org.ex9.auditlib.dto.LogDto;
+
+/**
+ * Извлечение {@link LogDto} из сообщения Log4j.
+ * <p>
+ * Для сообщений с одним объектом параметр читается напрямую: {@link Message#getParameters()}
+ * создаёт новый массив на каждый вызов.
+ * </p>
+ * @author Краковцев Артём
+ */
+final class LogDtoMessages {
+
+    private LogDtoMessages() {
+    }
+
+    /**
+     * @param message сообщение события
+     * @return dto из первого параметра сообщения или null
+     */
+    static LogDto logDtoOf(Message message) {
+        Object param;
+        if (message instanceof ReusableObjectMessage objectMessage) {
+            param = objectMessage.getParameter();
+        } else if (message instanceof ObjectMessage objectMessage) {
+            param = objectMessage.getParameter();
+        } else {
+            Object[] params = message.getParameters();
+            param = params != null && params.length > 0 ? params[0] : null;
+        }
+        return param instanceof LogDto dto ? dto : null;
+    }
+
+}
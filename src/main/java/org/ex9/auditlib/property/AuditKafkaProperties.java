@@ -3,7 +3,20 @@ package org.ex9.auditlib.property;
 import jakarta.annotation.PostConstruct;
 import lombok.Data;
 import lombok.extern.log4j.Log4j2;
+import org.apache.kafka.common.record.CompressionType;
+import org.ex9.auditlib.util.DeliveryGuarantee;
+import org.ex9.auditlib.util.EventKind;
+import org.ex9.auditlib.util.PartitionKeyStrategy;
+import org.ex9.auditlib.util.WireFormat;
+import org.ex9.auditlib.util.WaitStrategy;
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Класс для хранения настроек Kafka из application.properties или application.yml.
@@ -13,6 +26,42 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
  * audit:
  *   kafka:
  *     topic: audit-topic
+ *     delivery: EXACTLY_ONCE
+ *     http-delivery: FIRE_AND_FORGET
+ *     wire-format: SMILE
+ *     partition-key: CORRELATION
+ *     service-name: order-service
+ *     producer-pool-size: 4
+ *     producer:
+ *       linger: 20ms
+ *       batch-size: 256KB
+ *       compression-type: zstd
+ *     batch:
+ *       enabled: true
+ *       max-size: 500
+ *       linger: 50ms
+ *     async:
+ *       enabled: true
+ *       queue-capacity: 8192
+ *       wait-strategy: BLOCKING
+ *     spill:
+ *       enabled: true
+ *       directory: /var/lib/app/audit-spill
+ *       max-disk-usage: 1GB
+ *     overflow:
+ *       enabled: true
+ *       max-in-flight: 64MB
+ *       low-priority-threshold: 0.5
+ *     routes:
+ *       - kinds: [HTTP_INCOMING, HTTP_OUTGOING]
+ *         topic: audit-http
+ *         delivery: FIRE_AND_FORGET
+ *         producer:
+ *           linger: 100ms
+ *           compression-type: zstd
+ *       - kinds: [METHOD_ERROR]
+ *         topic: audit-errors
+ *         delivery: EXACTLY_ONCE
  * </pre>
  * </p>
  * @author Краковцев Артём
@@ -25,6 +74,57 @@ public class AuditKafkaProperties {
     /** Название Kafka топика для отправки логов. */
     private String topic = "audit-log";
 
+    /** Гарантия доставки событий аудита методов. */
+    private DeliveryGuarantee delivery = DeliveryGuarantee.EXACTLY_ONCE;
+
+    /** Гарантия доставки событий HTTP-запросов. Если не задана, используется {@link #delivery}. */
+    private DeliveryGuarantee httpDelivery;
+
+    /** Значение acks для профиля {@link DeliveryGuarantee#FIRE_AND_FORGET} (1 или 0). */
+    private String fireAndForgetAcks = "1";
+
+    /** Формат кодирования событий в Kafka. */
+    private WireFormat wireFormat = WireFormat.JSON;
+
+    /** Стратегия выбора ключа записи Kafka. */
+    private PartitionKeyStrategy partitionKey = PartitionKeyStrategy.CORRELATION;
+
+    /** Идентификатор экземпляра сервиса для {@link PartitionKeyStrategy#INSTANCE}. По умолчанию pid@host. */
+    private String instanceId;
+
+    /** Имя сервиса в заголовках записей. По умолчанию spring.application.name. */
+    private String serviceName;
+
+    /** Количество транзакционных продюсеров exactly-once, по которым распределяются события. */
+    private int producerPoolSize = 1;
+
+    /** Настройки батчинга и сжатия продюсера. */
+    private Producer producer = new Producer();
+
+    /** Настройки пакетной транзакционной отправки. */
+    private Batch batch = new Batch();
+
+    /** Настройки асинхронной передачи событий из аппендера в Kafka. */
+    private Async async = new Async();
+
+    /** Настройки локального журнала событий на время недоступности Kafka. */
+    private Spill spill = new Spill();
+
+    /** Настройки ограничения памяти под неотправленные события. */
+    private Overflow overflow = new Overflow();
+
+    /** Маршруты событий в отдельные топики. Проверяются по порядку, применяется первый подходящий. */
+    private List<Route> routes = new ArrayList<>();
+
+    /**
+     * Возвращает гарантию доставки для событий HTTP-запросов.
+     *
+     * @return {@link #httpDelivery}, если задана, иначе {@link #delivery}
+     */
+    public DeliveryGuarantee getEffectiveHttpDelivery() {
+        return httpDelivery != null ? httpDelivery : delivery;
+    }
+
     /**
      * Инициализирует настройки и логирует их значения.
      */
@@ -33,4 +133,162 @@ public class AuditKafkaProperties {
         log.info("KafkaProperties init {}", this);
     }
 
+    /**
+     * Маршрут событий в отдельный топик Kafka.
+     * <p>
+     * Незаданные {@link #kinds} и {@link #levels} означают любое значение. Незаданные топик и профиль доставки
+     * берутся из общих настроек. Если задан {@link #producer}, для маршрута создаётся отдельный продюсер
+     * с этими настройками поверх общих.
+     * </p>
+     */
+    @Data
+    public static class Route {
+
+        /** Виды событий маршрута. */
+        private List<EventKind> kinds = new ArrayList<>();
+
+        /** Уровни логирования маршрута. */
+        private List<String> levels = new ArrayList<>();
+
+        /** Топик маршрута. */
+        private String topic;
+
+        /** Гарантия доставки событий маршрута. */
+        private DeliveryGuarantee delivery;
+
+        /** Настройки пакетной транзакционной отправки маршрута. */
+        private Batch batch;
+
+        /** Настройки батчинга и сжатия продюсера маршрута. */
+        private Producer producer;
+
+    }
+
+    /**
+     * Настройки батчинга и сжатия продюсера Kafka.
+     * <p>
+     * Незаданные значения берутся из <code>spring.kafka.producer.*</code> или значений по умолчанию Kafka.
+     * </p>
+     */
+    @Data
+    public static class Producer {
+
+        /** Время ожидания наполнения батча продюсера (linger.ms). */
+        private Duration linger;
+
+        /** Максимальный размер батча на партицию (batch.size). */
+        private DataSize batchSize;
+
+        /** Объём памяти под неотправленные записи (buffer.memory). */
+        private DataSize bufferMemory;
+
+        /** Алгоритм сжатия (compression.type): none, gzip, snappy, lz4, zstd. */
+        private CompressionType compressionType;
+
+        /** Максимальный размер запроса (max.request.size). */
+        private DataSize maxRequestSize;
+
+        /** Дополнительные свойства продюсера. */
+        private Map<String, String> properties = new HashMap<>();
+
+    }
+
+    /**
+     * Настройки пакетной отправки событий в одной транзакции Kafka.
+     */
+    @Data
+    public static class Batch {
+
+        /** Флаг пакетной отправки. По умолчанию каждое событие отправляется в отдельной транзакции. */
+        private boolean enabled = false;
+
+        /** Максимальное количество событий в одной транзакции. */
+        private int maxSize = 500;
+
+        /** Максимальное время накопления пакета перед фиксацией транзакции. */
+        private Duration linger = Duration.ofMillis(50);
+
+        /**
+         * Ёмкость очереди событий, ожидающих отправки.
+         * Событие, не поместившееся в очередь, отправляется отдельной транзакцией.
+         */
+        private int queueCapacity = 10_000;
+
+    }
+
+    /**
+     * Настройки асинхронной очереди между {@code KafkaAppender} и продюсером Kafka.
+     */
+    @Data
+    public static class Async {
+
+        /** Флаг асинхронной передачи. По умолчанию событие отправляется в потоке логирования. */
+        private boolean enabled = false;
+
+        /** Ёмкость кольцевого буфера (округляется до степени двойки). */
+        private int queueCapacity = 8192;
+
+        /** Максимальное количество событий, извлекаемых из буфера за один проход. */
+        private int drainBatchSize = 256;
+
+        /** Максимальное время разбора очереди при остановке аппендера. */
+        private Duration shutdownTimeout = Duration.ofSeconds(5);
+
+        /** Стратегия ожидания потока отправки при пустом буфере. */
+        private WaitStrategy waitStrategy = WaitStrategy.BLOCKING;
+
+    }
+
+    /**
+     * Настройки локального журнала, в который события пишутся, если Kafka недоступна
+     * или продюсер не успевает их отправлять.
+     */
+    @Data
+    public static class Spill {
+
+        /** Флаг журнала. По умолчанию выключен, и неотправленные события теряются. */
+        private boolean enabled = false;
+
+        /** Каталог сегментов журнала. */
+        private String directory = "audit-spill";
+
+        /** Размер одного сегмента (не более 2GB). */
+        private DataSize segmentSize = DataSize.ofMegabytes(16);
+
+        /** Максимальный суммарный объём сегментов на диске. */
+        private DataSize maxDiskUsage = DataSize.ofMegabytes(512);
+
+        /** Максимальное количество событий, переотправляемых в секунду. */
+        private int replayRate = 1000;
+
+        /** Пауза перед повторной попыткой переотправки после ошибки. */
+        private Duration retryInterval = Duration.ofSeconds(5);
+
+    }
+
+    /**
+     * Настройки бюджета памяти под события, переданные продюсеру, но ещё не подтверждённые Kafka.
+     * <p>
+     * При превышении бюджета события отбрасываются по приоритету: сначала DEBUG и TRACE
+     * (уже при заполнении бюджета на {@link #lowPriorityThreshold}), затем у HTTP-событий удаляются тела,
+     * и только потом отбрасываются события целиком. События уровня ERROR и ошибки методов не отбрасываются никогда.
+     * </p>
+     */
+    @Data
+    public static class Overflow {
+
+        /** Флаг бюджета. По умолчанию выключен, и объём неотправленных событий не ограничен. */
+        private boolean enabled = false;
+
+        /** Максимальный объём неотправленных событий. */
+        private DataSize maxInFlight = DataSize.ofMegabytes(64);
+
+        /** Доля бюджета, после заполнения которой отбрасываются события DEBUG и TRACE. */
+        private double lowPriorityThreshold = 0.5;
+
+        /** Удалять тела HTTP-событий, не поместившихся в бюджет, вместо отбрасывания события. */
+        private boolean stripHttpBodies = true;
+
+    }
+
 }
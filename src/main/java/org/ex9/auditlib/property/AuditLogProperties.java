@@ -3,10 +3,16 @@ package org.ex9.auditlib.property;
 import jakarta.annotation.PostConstruct;
 import lombok.Data;
 import lombok.extern.log4j.Log4j2;
+import org.ex9.auditlib.util.AuditMode;
 import org.ex9.auditlib.util.LogMode;
+import org.ex9.auditlib.util.WeavingMode;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
+import org.springframework.util.PatternMatchUtils;
+import org.springframework.util.unit.DataSize;
 
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -24,6 +30,24 @@ import java.util.List;
  *       - CONSOLE
  *       - FILE
  *       - KAFKA
+ *     shutdown-timeout: 30s
+ *     weaving: PROXY
+ *     capture:
+ *       max-depth: 4
+ *       max-elements: 50
+ *       max-string-length: 1024
+ *       max-bytes: 16KB
+ *     sampling:
+ *       sample-rate: 1.0
+ *       max-events-per-second: 0
+ *       always-audit-errors: true
+ *       rules:
+ *         - pattern: com.example.*Repository.find*
+ *           sample-rate: 0.01
+ *           max-events-per-second: 100
+ *     aggregation:
+ *       mode: EVENTS
+ *       window: 60s
  * </pre>
  * </p>
  * @author Краковцев Артём
@@ -40,6 +64,21 @@ public class AuditLogProperties {
     /** Флаг активации логирования. */
     private boolean enabled;
 
+    /** Максимальное время на отправку накопленных событий при остановке приложения. */
+    private Duration shutdownTimeout = Duration.ofSeconds(30);
+
+    /** Способ подключения аспекта к методам с аннотацией AuditLog. */
+    private WeavingMode weaving = WeavingMode.PROXY;
+
+    /** Ограничения снимка аргументов и результатов методов. */
+    private Capture capture = new Capture();
+
+    /** Выборка и ограничение частоты аудируемых вызовов. */
+    private Sampling sampling = new Sampling();
+
+    /** Агрегация вызовов в сводки по окнам. */
+    private Aggregation aggregation = new Aggregation();
+
     /**
      * Включено ли логирование в Kafka.
      *
@@ -49,6 +88,104 @@ public class AuditLogProperties {
         return modes.contains(LogMode.KAFKA);
     }
 
+    /**
+     * Ограничения снимка аргументов и результатов методов, аннотированных {@link org.ex9.auditlib.annotation.AuditLog}.
+     * Для отдельного метода их можно переопределить в аннотации.
+     */
+    @Data
+    public static class Capture {
+
+        /** Максимальная глубина вложенности объектов. */
+        private int maxDepth = 4;
+
+        /** Максимальное количество элементов коллекции, массива или словаря. */
+        private int maxElements = 50;
+
+        /** Максимальная длина строки. */
+        private int maxStringLength = 1024;
+
+        /** Приблизительный общий объём аргументов или результата одного события. */
+        private DataSize maxBytes = DataSize.ofKilobytes(16);
+
+    }
+
+    /**
+     * Выборка и ограничение частоты вызовов методов, аннотированных {@link org.ex9.auditlib.annotation.AuditLog}.
+     * <p>
+     * Решение принимается один раз на вызов перед событием START, поэтому START и END вызова
+     * либо пишутся оба, либо не пишутся. Значения берутся из первого подходящего правила {@link #rules},
+     * затем из аннотации метода, затем из глобальных настроек.
+     * </p>
+     */
+    @Data
+    public static class Sampling {
+
+        /** Доля аудируемых вызовов от 0 до 1. */
+        private double sampleRate = 1.0;
+
+        /** Максимальное количество аудируемых вызовов метода в секунду, 0 - без ограничения. */
+        private int maxEventsPerSecond;
+
+        /** Писать событие ERROR для вызова, не попавшего в выборку или отброшенного ограничением частоты. */
+        private boolean alwaysAuditErrors = true;
+
+        /** Переопределения по шаблону полного имени метода. */
+        private List<Rule> rules = new ArrayList<>();
+
+        /**
+         * Находит первое правило, шаблон которого подходит к имени метода.
+         *
+         * @param methodName полное имя метода в виде <code>класс.метод</code>
+         * @return правило или null
+         */
+        public Rule findRule(String methodName) {
+            for (Rule rule : rules) {
+                if (PatternMatchUtils.simpleMatch(rule.getPattern(), methodName)) {
+                    return rule;
+                }
+            }
+            return null;
+        }
+
+    }
+
+    /**
+     * Переопределение выборки для методов, чьё полное имя подходит к шаблону с символами <code>*</code>.
+     * Незаданные значения берутся из аннотации или глобальных настроек.
+     */
+    @Data
+    public static class Rule {
+
+        /** Шаблон полного имени метода, например <code>com.example.*Repository.find*</code>. */
+        private String pattern;
+
+        /** Доля аудируемых вызовов от 0 до 1. */
+        private Double sampleRate;
+
+        /** Максимальное количество аудируемых вызовов метода в секунду, 0 - без ограничения. */
+        private Integer maxEventsPerSecond;
+
+    }
+
+    /**
+     * Агрегация вызовов методов, аннотированных {@link org.ex9.auditlib.annotation.AuditLog}.
+     * <p>
+     * В режиме {@link AuditMode#AGGREGATE} вызовы не пишутся событиями: на каждый метод раз в {@link #window}
+     * пишется одно событие SUMMARY с количеством вызовов и ошибок и перцентилями длительности.
+     * Режим метода можно переопределить в аннотации.
+     * </p>
+     */
+    @Data
+    public static class Aggregation {
+
+        /** Режим аудита методов, для которых он не задан в аннотации. */
+        private AuditMode mode = AuditMode.EVENTS;
+
+        /** Длительность окна агрегации. */
+        private Duration window = Duration.ofSeconds(60);
+
+    }
+
     /**
      * Инициализирует настройки и логирует их значения.
      */
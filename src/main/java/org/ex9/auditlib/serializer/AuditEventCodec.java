@@ -0,0 +1,204 @@
+package org.ex9.auditlib.serializer;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import org.ex9.auditlib.dto.AuditDto;
+import org.ex9.auditlib.dto.HttpLogDto;
+import org.ex9.auditlib.dto.LogDto;
+import org.ex9.auditlib.util.WireFormat;
+import org.springframework.util.ClassUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Кодирование событий аудита для передачи через Kafka.
+ * <p>
+ * Формат {@link WireFormat#JSON} записывается без заголовка и совпадает с прежним JSON-представлением.
+ * Бинарные форматы предваряются заголовком из четырёх байт:
+ * <pre>
+ * [MAGIC 0xAD][VERSION][id формата][тип события: 1 - AuditDto, 2 - HttpLogDto]
+ * </pre>
+ * Значение {@link #MAGIC} не может быть первым байтом UTF-8 текста, поэтому JSON и бинарные
+ * записи однозначно различаются при чтении.
+ * </p>
+ * <p>
+ * Модули <code>jackson-dataformat-cbor</code> и <code>jackson-dataformat-smile</code> необязательны:
+ * бинарный формат доступен, только если его модуль есть в classpath приложения.
+ * </p>
+ * @author Краковцев Артём
+ */
+public class AuditEventCodec {
+
+    /** Первый байт заголовка бинарной записи. */
+    public static final byte MAGIC = (byte) 0xAD;
+
+    /** Текущая версия заголовка. */
+    public static final byte VERSION = 1;
+
+    /** Размер заголовка бинарной записи. */
+    public static final int HEADER_SIZE = 4;
+
+    private static final boolean CBOR_PRESENT = ClassUtils.isPresent(
+            "com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper", AuditEventCodec.class.getClassLoader());
+    private static final boolean SMILE_PRESENT = ClassUtils.isPresent(
+            "com.fasterxml.jackson.dataformat.smile.databind.SmileMapper", AuditEventCodec.class.getClassLoader());
+
+    private static final byte AUDIT_KIND = 1;
+    private static final byte HTTP_KIND = 2;
+
+    private final WireFormat format;
+    private final Map<WireFormat, ObjectMapper> mappers = new EnumMap<>(WireFormat.class);
+
+    /**
+     * Создаёт кодек.
+     *
+     * @param jsonMapper маппер для формата {@link WireFormat#JSON}
+     * @param format     формат, в котором кодируются события; если не задан, используется {@link WireFormat#JSON}
+     * @throws IllegalStateException если модуль Jackson для выбранного бинарного формата отсутствует в classpath
+     */
+    public AuditEventCodec(ObjectMapper jsonMapper, WireFormat format) {
+        this.format = format != null ? format : WireFormat.JSON;
+        this.mappers.put(WireFormat.JSON, jsonMapper);
+        if (CBOR_PRESENT) {
+            this.mappers.put(WireFormat.CBOR, binaryMapper(CborMapperFactory.create()));
+        }
+        if (SMILE_PRESENT) {
+            this.mappers.put(WireFormat.SMILE, binaryMapper(SmileMapperFactory.create()));
+        }
+        if (!mappers.containsKey(this.format)) {
+            throw new IllegalStateException(missingModuleMessage(this.format));
+        }
+    }
+
+    /**
+     * Возвращает формат, в котором кодируются события.
+     *
+     * @return формат
+     */
+    public WireFormat getFormat() {
+        return format;
+    }
+
+    /**
+     * Кодирует событие в выбранном формате.
+     *
+     * @param dto событие
+     * @return закодированное событие
+     * @throws IOException если событие не удалось сериализовать
+     */
+    public byte[] encode(LogDto dto) throws IOException {
+        ObjectMapper mapper = mappers.get(format);
+        if (format == WireFormat.JSON) {
+            return mapper.writeValueAsBytes(dto);
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+        out.write(MAGIC);
+        out.write(VERSION);
+        out.write(format.getId());
+        out.write(kindOf(dto));
+        mapper.writeValue(out, dto);
+        return out.toByteArray();
+    }
+
+    /**
+     * Декодирует событие в любом из поддерживаемых форматов.
+     *
+     * @param data закодированное событие
+     * @return событие
+     * @throws IOException если запись повреждена или её версия не поддерживается
+     */
+    public LogDto decode(byte[] data) throws IOException {
+        if (data.length > 0 && data[0] == MAGIC) {
+            if (data.length < HEADER_SIZE) {
+                throw new IOException("Truncated audit event header");
+            }
+            if (data[1] > VERSION) {
+                throw new IOException("Unsupported audit event version: " + data[1]);
+            }
+            WireFormat recordFormat = formatOf(data[2]);
+            ObjectMapper mapper = mappers.get(recordFormat);
+            if (mapper == null) {
+                throw new IOException(missingModuleMessage(recordFormat));
+            }
+            return mapper.readerFor(typeOf(data[3]))
+                    .without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+                    .readValue(data, HEADER_SIZE, data.length - HEADER_SIZE);
+        }
+        ObjectMapper mapper = mappers.get(WireFormat.JSON);
+        JsonNode node = mapper.readTree(data);
+        Class<? extends LogDto> type = node.has("url") ? HttpLogDto.class : AuditDto.class;
+        return mapper.readerFor(type)
+                .without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+                .readValue(node);
+    }
+
+    private static ObjectMapper binaryMapper(ObjectMapper mapper) {
+        mapper.findAndRegisterModules();
+        mapper.addMixIn(LogDto.class, BinaryLogDtoMixIn.class);
+        return mapper;
+    }
+
+    private static String missingModuleMessage(WireFormat format) {
+        return "Audit wire format " + format + " requires com.fasterxml.jackson.dataformat:jackson-dataformat-"
+                + format.name().toLowerCase() + " on the classpath";
+    }
+
+    private static byte kindOf(LogDto dto) {
+        if (dto instanceof AuditDto) {
+            return AUDIT_KIND;
+        }
+        if (dto instanceof HttpLogDto) {
+            return HTTP_KIND;
+        }
+        throw new IllegalArgumentException("Unsupported audit event type: " + dto.getClass().getName());
+    }
+
+    private static WireFormat formatOf(byte id) throws IOException {
+        try {
+            return WireFormat.fromId(id);
+        } catch (IllegalArgumentException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    private static Class<? extends LogDto> typeOf(byte kind) throws IOException {
+        return switch (kind) {
+            case AUDIT_KIND -> AuditDto.class;
+            case HTTP_KIND -> HttpLogDto.class;
+            default -> throw new IOException("Unknown audit event kind: " + kind);
+        };
+    }
+
+    /**
+     * Создаёт маппер CBOR. Вынесен в отдельный класс, чтобы кодек загружался без модуля CBOR.
+     */
+    private static final class CborMapperFactory {
+        static ObjectMapper create() {
+            return CBORMapper.builder().build();
+        }
+    }
+
+    /**
+     * Создаёт маппер Smile. Вынесен в отдельный класс, чтобы кодек загружался без модуля Smile.
+     */
+    private static final class SmileMapperFactory {
+        static ObjectMapper create() {
+            return SmileMapper.builder().build();
+        }
+    }
+
+    /**
+     * Исключает из бинарных форматов текстовое представление события, которое восстанавливается из полей.
+     */
+    @JsonIgnoreProperties({"log"})
+    private interface BinaryLogDtoMixIn {
+    }
+
+}
@@ -0,0 +1,51 @@
+package org.ex9.auditlib.serializer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.ex9.auditlib.dto.LogDto;
+import org.ex9.auditlib.util.WireFormat;
+
+import java.io.IOException;
+
+/**
+ * Десериализатор Kafka для потребителей событий аудита.
+ * <p>
+ * Читает записи во всех форматах {@link WireFormat}, формат определяется по заголовку записи.
+ * Подключается свойством <code>value.deserializer=org.ex9.auditlib.serializer.AuditEventDeserializer</code>.
+ * </p>
+ * @author Краковцев Артём
+ */
+public class AuditEventDeserializer implements Deserializer<LogDto> {
+
+    private final AuditEventCodec codec;
+
+    /**
+     * Создаёт десериализатор с маппером JSON по умолчанию.
+     */
+    public AuditEventDeserializer() {
+        this(new AuditEventCodec(new ObjectMapper().findAndRegisterModules(), WireFormat.JSON));
+    }
+
+    /**
+     * Создаёт десериализатор с указанным кодеком.
+     *
+     * @param codec кодек событий
+     */
+    public AuditEventDeserializer(AuditEventCodec codec) {
+        this.codec = codec;
+    }
+
+    @Override
+    public LogDto deserialize(String topic, byte[] data) {
+        if (data == null) {
+            return null;
+        }
+        try {
+            return codec.decode(data);
+        } catch (IOException e) {
+            throw new SerializationException("Can't deserialize audit event from topic " + topic, e);
+        }
+    }
+
+}
@@ -0,0 +1,335 @@
+package org.ex9.auditlib.serializer;
+
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.introspect.AnnotatedMember;
+import com.fasterxml.jackson.databind.introspect.BeanPropertyDefinition;
+import lombok.extern.log4j.Log4j2;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Снимок аргументов и результатов методов с ограничением размера.
+ * <p>
+ * Преобразует значения в дерево из строк, чисел, логических значений, {@link List} и {@link Map},
+ * соблюдая {@link Limits}: глубину вложенности, количество элементов коллекций, длину строк
+ * и приблизительный общий объём. Отброшенные части заменяются маркерами усечения.
+ * Снимок сериализуется Jackson и выводится в текстовый лог без обращения к исходным объектам.
+ * </p>
+ * <p>
+ * Вид типа и свойства бинов определяются один раз на класс и кешируются в {@link ClassValue}.
+ * Свойства бинов берутся из интроспекции Jackson, поэтому аннотации вроде <code>@JsonIgnore</code> учитываются.
+ * Типы JDK, не являющиеся коллекциями, выводятся через <code>toString()</code>.
+ * </p>
+ * <p>
+ * Снимок можно сузить до выбранных аргументов и свойств {@link CaptureProjection}: невыбранные значения
+ * не читаются и не сериализуются.
+ * </p>
+ * @author Краковцев Артём
+ */
+@Log4j2
+public class BoundedValueSerializer {
+
+    /** Маркер значения, не поместившегося в общий объём. */
+    public static final String TRUNCATED = "...(truncated)";
+
+    /** Маркер аргумента, не выбранного для снимка. */
+    public static final String OMITTED = "<omitted>";
+
+    private static final int SCALAR_SIZE = 8;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final ClassValue<TypeInfo> types = new ClassValue<>() {
+        @Override
+        protected TypeInfo computeValue(Class<?> type) {
+            return introspect(type);
+        }
+    };
+
+    /**
+     * Ограничения снимка.
+     *
+     * @param maxDepth        максимальная глубина вложенности
+     * @param maxElements     максимальное количество элементов коллекции, массива или словаря
+     * @param maxStringLength максимальная длина строки
+     * @param maxBytes        приблизительный общий объём снимка в байтах
+     */
+    public record Limits(int maxDepth, int maxElements, int maxStringLength, long maxBytes) {
+    }
+
+    /**
+     * Делает снимок аргументов метода. Общий объём делится между всеми аргументами.
+     *
+     * @param args   аргументы метода, может быть null
+     * @param limits ограничения
+     * @return снимок аргументов
+     */
+    public Object[] captureArgs(Object[] args, Limits limits) {
+        return captureArgs(args, new int[0], limits, CaptureProjection.ALL);
+    }
+
+    /**
+     * Делает снимок выбранных аргументов метода. Общий объём делится между выбранными аргументами,
+     * остальные позиции заполняются маркером {@link #OMITTED} и не читаются.
+     *
+     * @param args       аргументы метода, может быть null
+     * @param indexes    номера аргументов с нуля; пустой массив - все аргументы
+     * @param limits     ограничения
+     * @param projection свойства аргументов, попадающие в снимок
+     * @return снимок аргументов
+     */
+    public Object[] captureArgs(Object[] args, int[] indexes, Limits limits, CaptureProjection projection) {
+        if (args == null) {
+            return null;
+        }
+        Budget budget = new Budget(limits);
+        Object[] captured = new Object[args.length];
+        if (indexes.length == 0) {
+            for (int i = 0; i < args.length; i++) {
+                captured[i] = capture(args[i], 0, budget, projection);
+            }
+            return captured;
+        }
+        Arrays.fill(captured, OMITTED);
+        for (int index : indexes) {
+            if (index >= 0 && index < args.length) {
+                captured[index] = capture(args[index], 0, budget, projection);
+            }
+        }
+        return captured;
+    }
+
+    /**
+     * Делает снимок значения.
+     *
+     * @param value  значение, может быть null
+     * @param limits ограничения
+     * @return снимок значения
+     */
+    public Object capture(Object value, Limits limits) {
+        return capture(value, limits, CaptureProjection.ALL);
+    }
+
+    /**
+     * Делает снимок выбранных свойств значения.
+     *
+     * @param value      значение, может быть null
+     * @param limits     ограничения
+     * @param projection свойства, попадающие в снимок
+     * @return снимок значения
+     */
+    public Object capture(Object value, Limits limits, CaptureProjection projection) {
+        return capture(value, 0, new Budget(limits), projection);
+    }
+
+    private Object capture(Object value, int depth, Budget budget, CaptureProjection projection) {
+        if (value == null) {
+            return null;
+        }
+        if (budget.exhausted()) {
+            return TRUNCATED;
+        }
+        TypeInfo type = types.get(value.getClass());
+        return switch (type.kind()) {
+            case SCALAR -> {
+                budget.consume(SCALAR_SIZE);
+                yield value;
+            }
+            case ENUM -> text(((Enum<?>) value).name(), budget);
+            case TEXT -> text(value.toString(), budget);
+            case ARRAY -> depth >= budget.limits.maxDepth()
+                    ? "<" + type.name() + ">"
+                    : elements(new ArrayIterator(value), Array.getLength(value), depth, budget, projection);
+            case COLLECTION -> depth >= budget.limits.maxDepth()
+                    ? "<" + type.name() + ">"
+                    : elements(((Collection<?>) value).iterator(), ((Collection<?>) value).size(), depth, budget, projection);
+            case MAP -> depth >= budget.limits.maxDepth()
+                    ? "<" + type.name() + ">"
+                    : map((Map<?, ?>) value, depth, budget, projection);
+            case BEAN -> depth >= budget.limits.maxDepth()
+                    ? "<" + type.name() + ">"
+                    : bean(value, type, depth, budget, projection);
+        };
+    }
+
+    private static String text(String text, Budget budget) {
+        int max = budget.limits.maxStringLength();
+        String captured = text.length() > max
+                ? text.substring(0, max) + "...(+" + (text.length() - max) + " chars)"
+                : text;
+        budget.consume(captured.length());
+        return captured;
+    }
+
+    private List<Object> elements(Iterator<?> iterator, int size, int depth, Budget budget,
+                                  CaptureProjection projection) {
+        List<Object> captured = new ArrayList<>(Math.min(size, budget.limits.maxElements()) + 1);
+        budget.consume(2);
+        int count = 0;
+        while (iterator.hasNext() && count < budget.limits.maxElements() && !budget.exhausted()) {
+            captured.add(capture(iterator.next(), depth + 1, budget, projection));
+            count++;
+        }
+        if (count < size) {
+            captured.add(budget.exhausted() ? TRUNCATED : "...(+" + (size - count) + " more)");
+        }
+        return captured;
+    }
+
+    private Map<String, Object> map(Map<?, ?> map, int depth, Budget budget, CaptureProjection projection) {
+        Map<String, Object> captured = new LinkedHashMap<>();
+        budget.consume(2);
+        int count = 0;
+        int seen = 0;
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            seen++;
+            String name = String.valueOf(entry.getKey());
+            if (!projection.includes(name)) {
+                continue;
+            }
+            if (count >= budget.limits.maxElements() || budget.exhausted()) {
+                captured.put("...", budget.exhausted() ? TRUNCATED : "(+" + (map.size() - seen + 1) + " more)");
+                break;
+            }
+            String key = text(name, budget);
+            captured.put(key, capture(entry.getValue(), depth + 1, budget, projection.child(name)));
+            count++;
+        }
+        return captured;
+    }
+
+    private Map<String, Object> bean(Object bean, TypeInfo type, int depth, Budget budget,
+                                     CaptureProjection projection) {
+        Map<String, Object> captured = new LinkedHashMap<>();
+        budget.consume(2);
+        for (Property property : type.properties()) {
+            if (!projection.includes(property.name())) {
+                continue;
+            }
+            if (budget.exhausted()) {
+                captured.put("...", TRUNCATED);
+                break;
+            }
+            budget.consume(property.name().length());
+            Object value;
+            try {
+                value = property.accessor().getValue(bean);
+            } catch (Exception e) {
+                value = "<" + e.getClass().getSimpleName() + ">";
+            }
+            captured.put(property.name(), capture(value, depth + 1, budget, projection.child(property.name())));
+        }
+        return captured;
+    }
+
+    private TypeInfo introspect(Class<?> type) {
+        String name = type.getSimpleName();
+        if (type.isArray()) {
+            return new TypeInfo(Kind.ARRAY, name, List.of());
+        }
+        if (Number.class.isAssignableFrom(type) && type.getName().startsWith("java.lang.")
+                || type == Boolean.class || type == Character.class) {
+            return new TypeInfo(Kind.SCALAR, name, List.of());
+        }
+        if (type.isEnum() || Enum.class.isAssignableFrom(type)) {
+            return new TypeInfo(Kind.ENUM, name, List.of());
+        }
+        if (Collection.class.isAssignableFrom(type)) {
+            return new TypeInfo(Kind.COLLECTION, name, List.of());
+        }
+        if (Map.class.isAssignableFrom(type)) {
+            return new TypeInfo(Kind.MAP, name, List.of());
+        }
+        if (CharSequence.class.isAssignableFrom(type) || isPlatformType(type)) {
+            return new TypeInfo(Kind.TEXT, name, List.of());
+        }
+        try {
+            BeanDescription description = objectMapper.getSerializationConfig()
+                    .introspect(objectMapper.constructType(type));
+            List<Property> properties = new ArrayList<>();
+            for (BeanPropertyDefinition definition : description.findProperties()) {
+                AnnotatedMember accessor = definition.getAccessor();
+                if (accessor != null) {
+                    accessor.fixAccess(true);
+                    properties.add(new Property(definition.getName(), accessor));
+                }
+            }
+            if (!properties.isEmpty()) {
+                return new TypeInfo(Kind.BEAN, name, List.copyOf(properties));
+            }
+        } catch (RuntimeException e) {
+            log.debug("Cannot introspect {} for audit capture: {}", type.getName(), e.getMessage());
+        }
+        return new TypeInfo(Kind.TEXT, name, List.of());
+    }
+
+    private static boolean isPlatformType(Class<?> type) {
+        String name = type.getName();
+        return name.startsWith("java.") || name.startsWith("javax.") || name.startsWith("jdk.") || name.startsWith("sun.");
+    }
+
+    private enum Kind {
+        SCALAR, ENUM, TEXT, ARRAY, COLLECTION, MAP, BEAN
+    }
+
+    private record TypeInfo(Kind kind, String name, List<Property> properties) {
+    }
+
+    private record Property(String name, AnnotatedMember accessor) {
+    }
+
+    /**
+     * Оставшийся объём одного снимка.
+     */
+    private static final class Budget {
+
+        private final Limits limits;
+        private long remaining;
+
+        Budget(Limits limits) {
+            this.limits = limits;
+            this.remaining = limits.maxBytes();
+        }
+
+        void consume(long bytes) {
+            remaining -= bytes;
+        }
+
+        boolean exhausted() {
+            return remaining <= 0;
+        }
+
+    }
+
+    private static final class ArrayIterator implements Iterator<Object> {
+
+        private final Object array;
+        private final int length;
+        private int index;
+
+        ArrayIterator(Object array) {
+            this.array = array;
+            this.length = Array.getLength(array);
+        }
+
+        @Override
+        public boolean hasNext() {
+            return index < length;
+        }
+
+        @Override
+        public Object next() {
+            return Array.get(array, index++);
+        }
+
+    }
+
+}
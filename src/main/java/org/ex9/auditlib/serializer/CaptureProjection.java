@@ -0,0 +1,99 @@
+package org.ex9.auditlib.serializer;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Набор свойств, попадающих в снимок {@link BoundedValueSerializer}.
+ * <p>
+ * Строится один раз из путей вида <code>customer.address.city</code>: <code>include</code> оставляет
+ * только перечисленные свойства, <code>exclude</code> убирает перечисленные. Проекция применяется
+ * к свойствам бинов и ключам словарей на своём уровне и проходит сквозь коллекции и массивы,
+ * поэтому для списка сущностей <code>include = "id"</code> оставляет у каждого элемента только id.
+ * Отброшенные свойства не читаются.
+ * </p>
+ * @author Краковцев Артём
+ */
+public final class CaptureProjection {
+
+    /** Проекция без ограничений. */
+    public static final CaptureProjection ALL = new CaptureProjection(true);
+
+    private final boolean includeAll;
+    private final Map<String, CaptureProjection> children = new HashMap<>();
+    private final Set<String> excluded = new HashSet<>();
+
+    private CaptureProjection(boolean includeAll) {
+        this.includeAll = includeAll;
+    }
+
+    /**
+     * @param includeFields пути свойств, которые нужно оставить; пустой массив - все свойства
+     * @param excludeFields пути свойств, которые нужно убрать
+     * @return проекция или {@link #ALL}, если ограничений нет
+     */
+    public static CaptureProjection of(String[] includeFields, String[] excludeFields) {
+        if (includeFields.length == 0 && excludeFields.length == 0) {
+            return ALL;
+        }
+        CaptureProjection root = new CaptureProjection(includeFields.length == 0);
+        for (String path : includeFields) {
+            root.include(path.split("\\."), 0);
+        }
+        for (String path : excludeFields) {
+            root.exclude(path.split("\\."), 0);
+        }
+        return root;
+    }
+
+    /**
+     * @param name имя свойства или ключ словаря
+     * @return true, если свойство попадает в снимок
+     */
+    boolean includes(String name) {
+        return !excluded.contains(name) && (includeAll || children.containsKey(name));
+    }
+
+    /**
+     * @param name имя свойства или ключ словаря
+     * @return проекция для значения свойства
+     */
+    CaptureProjection child(String name) {
+        return children.getOrDefault(name, ALL);
+    }
+
+    private void include(String[] path, int index) {
+        CaptureProjection child = children.get(path[index]);
+        if (child == ALL) {
+            return;
+        }
+        if (index == path.length - 1) {
+            children.put(path[index], ALL);
+            return;
+        }
+        if (child == null) {
+            child = new CaptureProjection(false);
+            children.put(path[index], child);
+        }
+        child.include(path, index + 1);
+    }
+
+    private void exclude(String[] path, int index) {
+        if (index == path.length - 1) {
+            excluded.add(path[index]);
+            return;
+        }
+        if (!includes(path[index])) {
+            return;
+        }
+        CaptureProjection child = children.get(path[index]);
+        if (child == null || child == ALL) {
+            child = new CaptureProjection(true);
+            children.put(path[index], child);
+        }
+        child.exclude(path, index + 1);
+    }
+
+}
@@ -0,0 +1,135 @@
+package org.ex9.auditlib.service;
+
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.common.utils.Utils;
+import org.ex9.auditlib.dto.AuditDto;
+import org.ex9.auditlib.dto.HttpLogDto;
+import org.ex9.auditlib.dto.LogDto;
+import org.ex9.auditlib.serializer.AuditEventCodec;
+import org.ex9.auditlib.util.EventKind;
+
+import java.nio.charset.StandardCharsets;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Заголовки записей Kafka с метаданными события аудита.
+ * <p>
+ * Позволяют потребителям фильтровать и маршрутизировать события без разбора тела записи:
+ * <ul>
+ *     <li>{@value #KIND} — вид события {@link EventKind};</li>
+ *     <li>{@value #LEVEL} — уровень логирования, для HTTP-событий INFO;</li>
+ *     <li>{@value #SCHEMA_VERSION} — версия схемы события;</li>
+ *     <li>{@value #SERVICE} — имя сервиса, если задано;</li>
+ *     <li>{@value #TARGET_HASH} — hex murmur2-хэш имени метода или HTTP-метода и пути.</li>
+ * </ul>
+ * Все значения записываются в UTF-8. Значения хэша кешируются по цели: имён методов немного,
+ * а пути HTTP с идентификаторами в кеш попадают, только пока он не заполнен.
+ * </p>
+ * @author Краковцев Артём
+ */
+public class AuditRecordHeaders {
+
+    public static final String KIND = "audit-kind";
+    public static final String LEVEL = "audit-level";
+    public static final String SCHEMA_VERSION = "audit-schema-version";
+    public static final String SERVICE = "audit-service";
+    public static final String TARGET_HASH = "audit-target-hash";
+
+    private static final String HTTP_LEVEL = "INFO";
+    private static final byte[] HTTP_LEVEL_VALUE = bytes(HTTP_LEVEL);
+    private static final byte[] SCHEMA_VERSION_VALUE = bytes(Byte.toString(AuditEventCodec.VERSION));
+    private static final byte[] HEX_DIGITS = bytes("0123456789abcdef");
+    private static final int MAX_CACHED_TARGETS = 4096;
+
+    private final Map<EventKind, byte[]> kinds = new EnumMap<>(EventKind.class);
+    private final Map<String, byte[]> targetHashes = new ConcurrentHashMap<>();
+    private final byte[] service;
+
+    /**
+     * Создаёт заголовки для сервиса.
+     *
+     * @param serviceName имя сервиса, может быть null
+     */
+    public AuditRecordHeaders(String serviceName) {
+        for (EventKind kind : EventKind.values()) {
+            kinds.put(kind, bytes(kind.name()));
+        }
+        this.service = serviceName != null && !serviceName.isBlank() ? bytes(serviceName) : null;
+    }
+
+    /**
+     * Создаёт заголовки для события.
+     *
+     * @param dto событие
+     * @return заголовки записи
+     */
+    public Headers create(LogDto dto) {
+        RecordHeaders headers = new RecordHeaders();
+        headers.add(KIND, kinds.get(EventKind.of(dto)));
+        if (dto instanceof AuditDto auditDto) {
+            if (auditDto.getLogLevel() != null) {
+                headers.add(LEVEL, bytes(auditDto.getLogLevel()));
+            }
+            addTargetHash(headers, auditDto.getMethodName());
+        } else if (dto instanceof HttpLogDto httpLogDto) {
+            headers.add(LEVEL, HTTP_LEVEL_VALUE);
+            addTargetHash(headers, httpLogDto.getRoute());
+        }
+        headers.add(SCHEMA_VERSION, SCHEMA_VERSION_VALUE);
+        if (service != null) {
+            headers.add(SERVICE, service);
+        }
+        return headers;
+    }
+
+    /**
+     * Возвращает уровень логирования события; HTTP-события логируются с уровнем INFO.
+     *
+     * @param dto событие
+     * @return уровень логирования или null, если он не задан
+     */
+    public static String levelOf(LogDto dto) {
+        if (dto instanceof AuditDto auditDto) {
+            return auditDto.getLogLevel();
+        }
+        return dto instanceof HttpLogDto ? HTTP_LEVEL : null;
+    }
+
+    private void addTargetHash(Headers headers, String target) {
+        if (target != null) {
+            headers.add(TARGET_HASH, targetHash(target));
+        }
+    }
+
+    private byte[] targetHash(String target) {
+        byte[] value = targetHashes.get(target);
+        if (value == null) {
+            value = hex(Utils.murmur2(bytes(target)));
+            if (targetHashes.size() < MAX_CACHED_TARGETS) {
+                targetHashes.putIfAbsent(target, value);
+            }
+        }
+        return value;
+    }
+
+    /**
+     * @param hash значение хэша
+     * @return восемь hex-цифр в нижнем регистре с ведущими нулями
+     */
+    static byte[] hex(int hash) {
+        byte[] value = new byte[8];
+        for (int i = 7; i >= 0; i--) {
+            value[i] = HEX_DIGITS[hash & 0xF];
+            hash >>>= 4;
+        }
+        return value;
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+}
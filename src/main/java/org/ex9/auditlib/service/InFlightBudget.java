@@ -0,0 +1,157 @@
+package org.ex9.auditlib.service;
+
+import lombok.extern.log4j.Log4j2;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.ex9.auditlib.dto.HttpLogDto;
+import org.ex9.auditlib.dto.LogDto;
+import org.ex9.auditlib.property.AuditKafkaProperties;
+import org.ex9.auditlib.util.EventKind;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Общий бюджет памяти под события аудита, переданные в Kafka, но ещё не подтверждённые.
+ * <p>
+ * Размер записи — длина значения и ключа. Байты занимаются перед отправкой и освобождаются
+ * после подтверждения, ошибки или сохранения записи в {@link KafkaSpillLog}.
+ * Порядок отбрасывания событий описан в {@link AuditKafkaProperties.Overflow}.
+ * </p>
+ * @author Краковцев Артём
+ */
+@Log4j2
+public class InFlightBudget {
+
+    private final long maxBytes;
+    private final long lowPriorityBytes;
+    private final boolean stripHttpBodies;
+
+    private final AtomicLong usedBytes = new AtomicLong();
+    private final AtomicLong droppedLowPriority = new AtomicLong();
+    private final AtomicLong droppedEvents = new AtomicLong();
+    private final AtomicLong strippedBodies = new AtomicLong();
+    private final AtomicLong errorsOverBudget = new AtomicLong();
+
+    /**
+     * @param settings настройки бюджета
+     */
+    public InFlightBudget(AuditKafkaProperties.Overflow settings) {
+        this.maxBytes = settings.getMaxInFlight().toBytes();
+        this.lowPriorityBytes = (long) (maxBytes * settings.getLowPriorityThreshold());
+        this.stripHttpBodies = settings.isStripHttpBodies();
+    }
+
+    /**
+     * Занимает место под запись события.
+     * События ошибок занимают место всегда, даже сверх бюджета.
+     *
+     * @param dto    событие
+     * @param record запись Kafka
+     * @return true, если место занято и запись можно отправлять
+     */
+    public boolean tryAcquire(LogDto dto, ProducerRecord<String, byte[]> record) {
+        long bytes = sizeOf(record);
+        if (isError(dto)) {
+            if (usedBytes.addAndGet(bytes) > maxBytes) {
+                errorsOverBudget.incrementAndGet();
+            }
+            return true;
+        }
+        long limit = isLowPriority(dto) ? lowPriorityBytes : maxBytes;
+        while (true) {
+            long used = usedBytes.get();
+            if (used + bytes > limit) {
+                return false;
+            }
+            if (usedBytes.compareAndSet(used, used + bytes)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Освобождает место, занятое записью.
+     *
+     * @param record запись Kafka
+     */
+    public void release(ProducerRecord<String, byte[]> record) {
+        usedBytes.addAndGet(-sizeOf(record));
+    }
+
+    /**
+     * Возвращает HTTP-событие без тел запроса и ответа, если событие не поместилось в бюджет
+     * и удаление тел разрешено.
+     *
+     * @param dto событие
+     * @return событие без тел или null, если удалять нечего или удаление запрещено
+     */
+    public HttpLogDto stripBodies(LogDto dto) {
+        if (!stripHttpBodies || !(dto instanceof HttpLogDto httpLogDto)
+                || httpLogDto.getRequestBody() == null && httpLogDto.getResponseBody() == null) {
+            return null;
+        }
+        strippedBodies.incrementAndGet();
+        return httpLogDto.toBuilder()
+                .requestBody(stripped(httpLogDto.getRequestBody()))
+                .responseBody(stripped(httpLogDto.getResponseBody()))
+                .build();
+    }
+
+    /**
+     * Учитывает отброшенное событие.
+     *
+     * @param dto событие
+     */
+    public void recordDropped(LogDto dto) {
+        long dropped = isLowPriority(dto) ? droppedLowPriority.incrementAndGet() : droppedEvents.incrementAndGet();
+        if (Long.bitCount(dropped) == 1) {
+            log.warn("Audit in-flight budget of {} bytes exceeded, {} {} events dropped so far",
+                    maxBytes, dropped, isLowPriority(dto) ? "low-priority" : "regular");
+        }
+    }
+
+    /** @return объём занятых байт */
+    public long getUsedBytes() {
+        return usedBytes.get();
+    }
+
+    /** @return количество отброшенных событий DEBUG и TRACE */
+    public long getDroppedLowPriority() {
+        return droppedLowPriority.get();
+    }
+
+    /** @return количество отброшенных событий остальных уровней */
+    public long getDroppedEvents() {
+        return droppedEvents.get();
+    }
+
+    /** @return количество HTTP-событий, отправленных без тел */
+    public long getStrippedBodies() {
+        return strippedBodies.get();
+    }
+
+    /** @return количество событий ошибок, принятых сверх бюджета */
+    public long getErrorsOverBudget() {
+        return errorsOverBudget.get();
+    }
+
+    private static long sizeOf(ProducerRecord<String, byte[]> record) {
+        return (record.value() != null ? record.value().length : 0)
+                + (record.key() != null ? record.key().length() : 0);
+    }
+
+    private static boolean isError(LogDto dto) {
+        String level = AuditRecordHeaders.levelOf(dto);
+        return EventKind.of(dto) == EventKind.METHOD_ERROR
+                || "ERROR".equalsIgnoreCase(level) || "FATAL".equalsIgnoreCase(level);
+    }
+
+    private static boolean isLowPriority(LogDto dto) {
+        String level = AuditRecordHeaders.levelOf(dto);
+        return "DEBUG".equalsIgnoreCase(level) || "TRACE".equalsIgnoreCase(level);
+    }
+
+    private static String stripped(String body) {
+        return body != null ? "[stripped " + body.length() + " chars]" : null;
+    }
+
+}
@@ -0,0 +1,313 @@
+package org.ex9.auditlib.service;
+
+import lombok.extern.log4j.Log4j2;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.logging.log4j.ThreadContext;
+import org.ex9.auditlib.property.AuditKafkaProperties;
+import org.springframework.kafka.core.KafkaTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Пакетная транзакционная отправка событий в Kafka.
+ * <p>
+ * Накапливает записи в ограниченной очереди и фиксирует их одной транзакцией,
+ * как только набрано {@link AuditKafkaProperties.Batch#getMaxSize()} записей
+ * или истекло время {@link AuditKafkaProperties.Batch#getLinger()}.
+ * Семантика exactly-once сохраняется: пакет либо фиксируется целиком, либо откатывается.
+ * </p>
+ * <p>
+ * Если задан {@link KafkaSpillLog}, записи из откатившегося пакета, а также записи, не поместившиеся
+ * в очередь или поступившие во время недоступности Kafka, сохраняются в журнал вместо ожидания или потери.
+ * </p>
+ * <p>
+ * Если задан {@link InFlightBudget}, место записи в бюджете освобождается после фиксации пакета
+ * или сохранения записи в журнал.
+ * </p>
+ * <p>
+ * Без журнала пакет, транзакция которого не удалась, повторяется один раз, затем отбрасывается
+ * с учётом в {@link #getDiscardedRecords()}. Если очередь заполнена, {@link #publish} не ждёт
+ * и возвращает false, чтобы вызывающий отправил запись сам.
+ * </p>
+ * <p>
+ * При закрытии с ограничением по времени записи, не успевшие уйти в Kafka, сохраняются в журнал, если он задан.
+ * </p>
+ * @author Краковцев Артём
+ */
+@Log4j2
+public class KafkaBatchPublisher implements AutoCloseable {
+
+    private static final String KAFKA_LOGGING_KEY = "kafkaLogging";
+    private static final Duration CLOSE_TIMEOUT = Duration.ofSeconds(10);
+    private static final ProducerRecord<String, byte[]> WAKE_UP = new ProducerRecord<>("", new byte[0]);
+
+    private final KafkaTemplate<String, byte[]> kafkaTemplate;
+    private final int maxSize;
+    private final long lingerNanos;
+    private final BlockingQueue<ProducerRecord<String, byte[]>> queue;
+    private final Thread flusher;
+    private final KafkaSpillLog spillLog;
+    private final InFlightBudget inFlightBudget;
+
+    /** Количество вызовов {@link #publish}, которые прошли проверку {@link #running} и ещё не вернулись. */
+    private final AtomicInteger publishing = new AtomicInteger();
+    private final AtomicLong discarded = new AtomicLong();
+
+    private volatile boolean running = true;
+    private volatile int inFlight;
+
+    /**
+     * Создаёт публикатор и запускает поток фиксации пакетов.
+     *
+     * @param kafkaTemplate транзакционный шаблон Kafka
+     * @param settings      настройки пакетной отправки
+     */
+    public KafkaBatchPublisher(KafkaTemplate<String, byte[]> kafkaTemplate, AuditKafkaProperties.Batch settings) {
+        this(kafkaTemplate, settings, null);
+    }
+
+    /**
+     * Создаёт публикатор с журналом неотправленных событий и запускает поток фиксации пакетов.
+     *
+     * @param kafkaTemplate транзакционный шаблон Kafka
+     * @param settings      настройки пакетной отправки
+     * @param spillLog      журнал неотправленных событий, может быть null
+     */
+    public KafkaBatchPublisher(KafkaTemplate<String, byte[]> kafkaTemplate,
+                               AuditKafkaProperties.Batch settings,
+                               KafkaSpillLog spillLog) {
+        this(kafkaTemplate, settings, spillLog, null);
+    }
+
+    /**
+     * Создаёт публикатор с журналом неотправленных событий и бюджетом памяти и запускает поток фиксации пакетов.
+     *
+     * @param kafkaTemplate  транзакционный шаблон Kafka
+     * @param settings       настройки пакетной отправки
+     * @param spillLog       журнал неотправленных событий, может быть null
+     * @param inFlightBudget бюджет памяти под неотправленные события, может быть null
+     */
+    public KafkaBatchPublisher(KafkaTemplate<String, byte[]> kafkaTemplate,
+                               AuditKafkaProperties.Batch settings,
+                               KafkaSpillLog spillLog,
+                               InFlightBudget inFlightBudget) {
+        this.kafkaTemplate = kafkaTemplate;
+        this.spillLog = spillLog;
+        this.inFlightBudget = inFlightBudget;
+        this.maxSize = Math.max(1, settings.getMaxSize());
+        this.lingerNanos = settings.getLinger().toNanos();
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, settings.getQueueCapacity()));
+        this.flusher = new Thread(this::run, "audit-kafka-batch");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    /**
+     * Ставит запись в очередь на отправку, не блокируя вызывающий поток.
+     * Если очередь заполнена, запись сохраняется в журнал; без журнала запись не принимается.
+     *
+     * @param record запись для отправки
+     * @return false, если публикатор закрыт или очередь заполнена и журнала нет:
+     * запись не принята, и её нужно отправить иначе
+     */
+    public boolean publish(ProducerRecord<String, byte[]> record) {
+        publishing.incrementAndGet();
+        try {
+            if (!running) {
+                return false;
+            }
+            if (spillLog != null) {
+                if (!spillLog.isKafkaAvailable() || !queue.offer(record)) {
+                    spillLog.append(record);
+                    release(record);
+                }
+                return true;
+            }
+            return queue.offer(record);
+        } finally {
+            publishing.decrementAndGet();
+        }
+    }
+
+    /**
+     * @return false, если публикатор закрыт и не принимает записи
+     */
+    public boolean isOpen() {
+        return running;
+    }
+
+    /**
+     * Возвращает количество записей, ожидающих фиксации: в очереди и в текущем пакете.
+     *
+     * @return количество записей
+     */
+    public int getPendingRecords() {
+        return (int) queue.stream().filter(record -> record != WAKE_UP).count() + inFlight;
+    }
+
+    /**
+     * @return количество записей, отброшенных после повторной неудачной транзакции, если журнал не задан
+     */
+    public long getDiscardedRecords() {
+        return discarded.get();
+    }
+
+    /**
+     * Останавливает приём записей и фиксирует оставшиеся в очереди пакеты.
+     */
+    @Override
+    public void close() {
+        close(CLOSE_TIMEOUT);
+    }
+
+    /**
+     * Останавливает приём записей и ждёт фиксации оставшихся в очереди пакетов не дольше указанного времени.
+     * Записи, оставшиеся в очереди после истечения времени, сохраняются в журнал, если он задан,
+     * иначе отбрасываются с учётом в {@link #getDiscardedRecords()}.
+     * Записи, поставленные в очередь уже после выхода потока фиксации, фиксируются в вызывающем потоке.
+     * Повторный вызов только ожидает завершения фиксации.
+     *
+     * @param timeout максимальное время ожидания
+     * @return количество записей, которые не были зафиксированы и не сохранены в журнал,
+     * включая отброшенные во время закрытия
+     */
+    public int close(Duration timeout) {
+        long deadline = System.nanoTime() + Math.max(1, timeout.toNanos());
+        long discardedBefore = discarded.get();
+        if (running) {
+            running = false;
+            queue.offer(WAKE_UP);
+        }
+        try {
+            flusher.join(Math.max(1, timeout.toMillis()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        while (publishing.get() > 0 && System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+        if (!flusher.isAlive()) {
+            List<ProducerRecord<String, byte[]>> rest = new ArrayList<>();
+            queue.drainTo(rest);
+            rest.removeIf(record -> record == WAKE_UP);
+            if (!rest.isEmpty()) {
+                ThreadContext.put(KAFKA_LOGGING_KEY, "true");
+                try {
+                    flush(rest);
+                } finally {
+                    ThreadContext.remove(KAFKA_LOGGING_KEY);
+                }
+            }
+        } else {
+            List<ProducerRecord<String, byte[]>> rest = new ArrayList<>();
+            queue.drainTo(rest);
+            rest.removeIf(record -> record == WAKE_UP);
+            rest.forEach(record -> {
+                if (spillLog != null) {
+                    spillLog.append(record);
+                }
+                release(record);
+            });
+            if (spillLog == null) {
+                discarded.addAndGet(rest.size());
+            }
+        }
+        int unsent = getPendingRecords() + (int) (discarded.get() - discardedBefore);
+        if (unsent > 0) {
+            log.warn("KafkaBatchPublisher closed with {} unsent records", unsent);
+        }
+        return unsent;
+    }
+
+    private void run() {
+        ThreadContext.put(KAFKA_LOGGING_KEY, "true");
+        List<ProducerRecord<String, byte[]>> batch = new ArrayList<>(maxSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                collect(batch);
+                if (!batch.isEmpty()) {
+                    flush(batch);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void collect(List<ProducerRecord<String, byte[]>> batch) throws InterruptedException {
+        ProducerRecord<String, byte[]> first = queue.poll(lingerNanos, TimeUnit.NANOSECONDS);
+        if (first == null) {
+            return;
+        }
+        batch.add(first);
+
+        long deadline = System.nanoTime() + lingerNanos;
+        while (batch.size() < maxSize && running) {
+            queue.drainTo(batch, maxSize - batch.size());
+            long remaining = deadline - System.nanoTime();
+            if (batch.size() >= maxSize || remaining <= 0) {
+                break;
+            }
+            ProducerRecord<String, byte[]> next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                break;
+            }
+            batch.add(next);
+        }
+        queue.drainTo(batch, maxSize - batch.size());
+        batch.removeIf(record -> record == WAKE_UP);
+    }
+
+    private void flush(List<ProducerRecord<String, byte[]>> batch) {
+        inFlight = batch.size();
+        try {
+            commit(batch);
+        } catch (Exception e) {
+            if (spillLog == null) {
+                retryOrDiscard(batch, e);
+                return;
+            }
+            log.warn("Kafka batch transaction failed, spilling {} records: {}", batch.size(), e.getMessage());
+            spillLog.markUnavailable();
+            batch.forEach(spillLog::append);
+        } finally {
+            batch.forEach(this::release);
+            inFlight = 0;
+        }
+    }
+
+    private void commit(List<ProducerRecord<String, byte[]>> batch) {
+        kafkaTemplate.executeInTransaction(ops -> {
+            batch.forEach(ops::send);
+            return true;
+        });
+    }
+
+    private void retryOrDiscard(List<ProducerRecord<String, byte[]>> batch, Exception failure) {
+        log.warn("Kafka batch transaction failed, retrying {} records: {}", batch.size(), failure.getMessage());
+        try {
+            commit(batch);
+        } catch (Exception e) {
+            long total = discarded.addAndGet(batch.size());
+            log.error("Kafka batch transaction failed again, {} records discarded ({} in total)",
+                    batch.size(), total, e);
+        }
+    }
+
+    private void release(ProducerRecord<String, byte[]> record) {
+        if (inFlightBudget != null) {
+            inFlightBudget.release(record);
+        }
+    }
+
+}
@@ -0,0 +1,125 @@
+package org.ex9.auditlib.service;
+
+import lombok.extern.log4j.Log4j2;
+import org.apache.kafka.common.utils.Utils;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.kafka.core.KafkaTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Пул транзакционных продюсеров для профиля exactly-once.
+ * <p>
+ * Записи распределяются по шардам по хэшу ключа, поэтому записи с одним ключом (по умолчанию — с одним
+ * идентификатором корреляции) всегда отправляются одним продюсером в порядке поступления. Записи без ключа
+ * распределяются по идентификатору потока. Каждый шард имеет собственный transactional.id и, если включена
+ * пакетная отправка, собственный {@link KafkaBatchPublisher}.
+ * </p>
+ * <p>
+ * Шард 0 — общие бины {@link KafkaTemplate} и {@link KafkaBatchPublisher}, их закрывает контейнер;
+ * остальные шарды создаются для пула и закрываются вместе с ним.
+ * </p>
+ * @author Краковцев Артём
+ */
+@Log4j2
+public class KafkaProducerPool implements DisposableBean {
+
+    private final List<KafkaTemplate<String, byte[]>> templates;
+    private final List<KafkaBatchPublisher> batchPublishers;
+
+    /**
+     * @param templates       транзакционные шаблоны шардов
+     * @param batchPublishers пакетные публикаторы шардов в том же порядке или пустой список
+     */
+    public KafkaProducerPool(List<KafkaTemplate<String, byte[]>> templates, List<KafkaBatchPublisher> batchPublishers) {
+        if (templates.isEmpty()) {
+            throw new IllegalArgumentException("Producer pool requires at least one template");
+        }
+        if (!batchPublishers.isEmpty() && batchPublishers.size() != templates.size()) {
+            throw new IllegalArgumentException("Producer pool requires a batch publisher per template");
+        }
+        this.templates = List.copyOf(templates);
+        this.batchPublishers = List.copyOf(batchPublishers);
+        log.info("Audit Kafka producer pool started with {} producers", templates.size());
+    }
+
+    /**
+     * Возвращает количество продюсеров в пуле.
+     *
+     * @return размер пула
+     */
+    public int getSize() {
+        return templates.size();
+    }
+
+    /**
+     * Возвращает шард для ключа записи.
+     *
+     * @param key ключ записи, может быть null
+     * @return номер шарда
+     */
+    public int shardOf(String key) {
+        if (templates.size() == 1) {
+            return 0;
+        }
+        int hash = key != null
+                ? Utils.murmur2(key.getBytes(StandardCharsets.UTF_8))
+                : Long.hashCode(Thread.currentThread().threadId());
+        return Utils.toPositive(hash) % templates.size();
+    }
+
+    /**
+     * Возвращает транзакционный шаблон шарда для ключа записи.
+     *
+     * @param key ключ записи, может быть null
+     * @return шаблон Kafka
+     */
+    public KafkaTemplate<String, byte[]> template(String key) {
+        return templates.get(shardOf(key));
+    }
+
+    /**
+     * Возвращает пакетный публикатор шарда для ключа записи.
+     *
+     * @param key ключ записи, может быть null
+     * @return пакетный публикатор или null, если пакетная отправка выключена
+     */
+    public KafkaBatchPublisher batchPublisher(String key) {
+        return batchPublishers.isEmpty() ? null : batchPublishers.get(shardOf(key));
+    }
+
+    /**
+     * Возвращает количество записей, ожидающих фиксации, по шардам.
+     * Без пакетной отправки записи фиксируются в потоке вызова, и счётчики равны нулю.
+     *
+     * @return счётчики в порядке номеров шардов
+     */
+    public int[] getPendingRecordsPerShard() {
+        int[] pending = new int[templates.size()];
+        for (int i = 0; i < batchPublishers.size(); i++) {
+            pending[i] = batchPublishers.get(i).getPendingRecords();
+        }
+        return pending;
+    }
+
+    /**
+     * @return пакетные публикаторы шардов или пустой список, если пакетная отправка выключена
+     */
+    public List<KafkaBatchPublisher> getBatchPublishers() {
+        return batchPublishers;
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        for (int i = 1; i < templates.size(); i++) {
+            if (!batchPublishers.isEmpty()) {
+                batchPublishers.get(i).close();
+            }
+            if (templates.get(i).getProducerFactory() instanceof DisposableBean disposable) {
+                disposable.destroy();
+            }
+        }
+    }
+
+}
@@ -1,33 +1,118 @@
 package org.ex9.auditlib.service;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import lombok.RequiredArgsConstructor;
+import lombok.Builder;
 import lombok.extern.log4j.Log4j2;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.logging.log4j.ThreadContext;
 import org.ex9.auditlib.dto.AuditDto;
 import org.ex9.auditlib.dto.HttpLogDto;
+import org.ex9.auditlib.dto.LogDto;
 import org.ex9.auditlib.property.AuditKafkaProperties;
+import org.ex9.auditlib.serializer.AuditEventCodec;
+import org.ex9.auditlib.util.DeliveryGuarantee;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.stereotype.Component;
 
-import java.util.UUID;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Сервис для отправки логов в Kafka.
  * <p>
- * Сериализует {@link AuditDto} и {@link HttpLogDto} в JSON и отправляет в топик Kafka,
- * указанный в {@link AuditKafkaProperties}, с семантикой exactly-once.
+ * Сериализует {@link AuditDto} и {@link HttpLogDto} в формате {@link AuditKafkaProperties#getWireFormat()}
+ * с помощью {@link AuditEventCodec} и отправляет в топик Kafka,
+ * указанный в {@link AuditKafkaProperties}. Способ отправки определяется профилем {@link DeliveryGuarantee}:
+ * для exactly-once события фиксируются пакетами через {@link KafkaBatchPublisher}, если он задан,
+ * иначе каждое — отдельной транзакцией; остальные профили отправляются без транзакций
+ * шаблонами из {@link KafkaTemplateRegistry}.
+ * </p>
+ * <p>
+ * Ключ записи вычисляет {@link PartitionKeyResolver}; по умолчанию — по идентификатору корреляции,
+ * чтобы HTTP-события и события методов одного запроса попадали в одну партицию.
+ * </p>
+ * <p>
+ * Если задан {@link KafkaProducerPool}, события exactly-once распределяются по его продюсерам по ключу записи.
+ * </p>
+ * <p>
+ * Если задан {@link KafkaRouter}, событие, подходящее одному из маршрутов, отправляется в топик маршрута
+ * с его профилем доставки, шаблоном и пакетным публикатором.
+ * </p>
+ * <p>
+ * К каждой записи добавляются заголовки {@link AuditRecordHeaders} с видом, уровнем и источником события.
+ * </p>
+ * <p>
+ * Если задан {@link InFlightBudget}, события, не поместившиеся в бюджет памяти, отбрасываются
+ * по приоритету, а у HTTP-событий сначала удаляются тела.
+ * </p>
+ * <p>
+ * Если задан {@link KafkaSpillLog}, события, которые не удалось отправить, сохраняются в локальный журнал
+ * и переотправляются в фоне; пока Kafka недоступна, новые события пишутся сразу в журнал.
+ * </p>
+ * <p>
+ * При остановке приложения {@link #drain(Duration)} фиксирует последние пакеты всех публикаторов
+ * и дожидается подтверждения нетранзакционных отправок в пределах заданного времени.
  * </p>
  * @author Краковцев Артём
  */
-@RequiredArgsConstructor
 @Component
 @Log4j2
 public class KafkaPublishService {
 
-    private final KafkaTemplate<String, String> kafkaTemplate;
+    private static final String KAFKA_LOGGING_KEY = "kafkaLogging";
+
+    private final KafkaTemplate<String, byte[]> kafkaTemplate;
     private final AuditKafkaProperties auditKafkaProperties;
-    private final ObjectMapper objectMapper;
+    private final AuditEventCodec codec;
+    private final KafkaBatchPublisher batchPublisher;
+    private final KafkaTemplateRegistry templateRegistry;
+    private final KafkaSpillLog spillLog;
+    private final PartitionKeyResolver partitionKeyResolver;
+    private final AuditRecordHeaders recordHeaders;
+    private final KafkaRouter router;
+    private final InFlightBudget inFlightBudget;
+    private final KafkaProducerPool producerPool;
+    private final AtomicInteger pendingSends = new AtomicInteger();
+
+    public KafkaPublishService(KafkaTemplate<String, byte[]> kafkaTemplate,
+                               AuditKafkaProperties auditKafkaProperties,
+                               ObjectMapper objectMapper) {
+        this(kafkaTemplate, auditKafkaProperties, objectMapper, null, null, null, null, null, null, null, null);
+    }
+
+    @Builder
+    public KafkaPublishService(KafkaTemplate<String, byte[]> kafkaTemplate,
+                               AuditKafkaProperties auditKafkaProperties,
+                               ObjectMapper objectMapper,
+                               KafkaBatchPublisher batchPublisher,
+                               KafkaTemplateRegistry templateRegistry,
+                               KafkaSpillLog spillLog,
+                               PartitionKeyResolver partitionKeyResolver,
+                               AuditRecordHeaders recordHeaders,
+                               KafkaRouter router,
+                               InFlightBudget inFlightBudget,
+                               KafkaProducerPool producerPool) {
+        this.kafkaTemplate = kafkaTemplate;
+        this.auditKafkaProperties = auditKafkaProperties;
+        this.codec = new AuditEventCodec(objectMapper, auditKafkaProperties.getWireFormat());
+        this.batchPublisher = batchPublisher;
+        this.templateRegistry = templateRegistry;
+        this.spillLog = spillLog;
+        this.partitionKeyResolver = partitionKeyResolver != null
+                ? partitionKeyResolver
+                : PartitionKeyResolver.of(auditKafkaProperties.getPartitionKey(), auditKafkaProperties.getInstanceId());
+        this.recordHeaders = recordHeaders != null
+                ? recordHeaders
+                : new AuditRecordHeaders(auditKafkaProperties.getServiceName());
+        this.router = router;
+        this.inFlightBudget = inFlightBudget;
+        this.producerPool = producerPool;
+    }
 
     /**
      * Отправляет данные в Kafka.
@@ -36,13 +121,14 @@ public class KafkaPublishService {
      */
     public void send(AuditDto auditDto) {
         try {
-            String topic = auditKafkaProperties.getTopic();
-            String message = objectMapper.writeValueAsString(auditDto);
-            kafkaTemplate.executeInTransaction(ops -> {
-                ops.send(topic, auditDto.getId(), message);
-                return true;
-            });
-        } catch (JsonProcessingException e) {
+            KafkaRoute route = findRoute(auditDto);
+            String topic = route != null ? route.getTopic() : auditKafkaProperties.getTopic();
+            byte[] message = codec.encode(auditDto);
+            ProducerRecord<String, byte[]> record = admit(auditDto, createRecord(topic, auditDto, message));
+            if (record != null) {
+                publish(record, route != null ? route.getDelivery() : auditKafkaProperties.getDelivery(), route);
+            }
+        } catch (IOException e) {
             log.error("Serialize auditDto error", e);
         }
     }
@@ -54,14 +140,192 @@ public class KafkaPublishService {
      */
     public void send(HttpLogDto httpLogDto) {
         try {
-            String topic = auditKafkaProperties.getTopic();
-            String message = objectMapper.writeValueAsString(httpLogDto);
-            kafkaTemplate.executeInTransaction(ops -> {
-                ops.send(topic, UUID.randomUUID().toString(), message);
+            KafkaRoute route = findRoute(httpLogDto);
+            String topic = route != null ? route.getTopic() : auditKafkaProperties.getTopic();
+            byte[] message = codec.encode(httpLogDto);
+            ProducerRecord<String, byte[]> record = admit(httpLogDto, createRecord(topic, httpLogDto, message));
+            if (record != null) {
+                publish(record, route != null ? route.getDelivery() : auditKafkaProperties.getEffectiveHttpDelivery(), route);
+            }
+        } catch (IOException e) {
+            log.error("Serialize httpLogDto error", e);
+        }
+    }
+
+    /**
+     * Возвращает количество событий, принятых к отправке, но ещё не подтверждённых Kafka.
+     *
+     * @return количество событий
+     */
+    public int getPendingEvents() {
+        int pending = pendingSends.get();
+        for (KafkaBatchPublisher publisher : batchPublishers()) {
+            pending += publisher.getPendingRecords();
+        }
+        return pending;
+    }
+
+    /**
+     * Фиксирует последние пакеты и дожидается подтверждения отправленных событий.
+     * Пакетные публикаторы закрываются, события, поступившие после этого или не поместившиеся в очередь
+     * публикатора, отправляются отдельными транзакциями.
+     *
+     * @param timeout максимальное время ожидания
+     * @return количество событий, оставшихся неотправленными
+     */
+    public int drain(Duration timeout) {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        int abandoned = 0;
+        for (KafkaBatchPublisher publisher : batchPublishers()) {
+            abandoned += publisher.close(Duration.ofNanos(Math.max(0, deadline - System.nanoTime())));
+        }
+        if (pendingSends.get() > 0) {
+            flushTemplates(deadline);
+        }
+        return abandoned + pendingSends.get();
+    }
+
+    private Set<KafkaBatchPublisher> batchPublishers() {
+        Set<KafkaBatchPublisher> publishers = Collections.newSetFromMap(new IdentityHashMap<>());
+        if (batchPublisher != null) {
+            publishers.add(batchPublisher);
+        }
+        if (producerPool != null) {
+            publishers.addAll(producerPool.getBatchPublishers());
+        }
+        if (router != null) {
+            router.getRoutes().stream()
+                    .map(KafkaRoute::getBatchPublisher)
+                    .filter(publisher -> publisher != null)
+                    .forEach(publishers::add);
+        }
+        return publishers;
+    }
+
+    private void flushTemplates(long deadline) {
+        Set<KafkaTemplate<String, byte[]>> templates = Collections.newSetFromMap(new IdentityHashMap<>());
+        if (templateRegistry != null) {
+            templates.addAll(templateRegistry.getTemplates());
+        }
+        if (router != null) {
+            router.getRoutes().forEach(route -> templates.add(route.getTemplate()));
+        }
+        templates.removeIf(template -> template == null || template.isTransactional());
+        Thread flusher = new Thread(() -> {
+            ThreadContext.put(KAFKA_LOGGING_KEY, "true");
+            templates.forEach(KafkaTemplate::flush);
+        }, "audit-kafka-drain");
+        flusher.setDaemon(true);
+        flusher.start();
+        try {
+            flusher.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private KafkaRoute findRoute(LogDto dto) {
+        return router != null ? router.find(dto) : null;
+    }
+
+    private ProducerRecord<String, byte[]> createRecord(String topic, LogDto dto, byte[] message) {
+        return new ProducerRecord<>(topic, null,
+                partitionKeyResolver.resolve(dto), message, recordHeaders.create(dto));
+    }
+
+    private ProducerRecord<String, byte[]> admit(LogDto dto, ProducerRecord<String, byte[]> record) throws IOException {
+        if (inFlightBudget == null || inFlightBudget.tryAcquire(dto, record)) {
+            return record;
+        }
+        HttpLogDto stripped = inFlightBudget.stripBodies(dto);
+        if (stripped != null) {
+            ProducerRecord<String, byte[]> strippedRecord = new ProducerRecord<>(record.topic(), null,
+                    record.key(), codec.encode(stripped), record.headers());
+            if (inFlightBudget.tryAcquire(stripped, strippedRecord)) {
+                return strippedRecord;
+            }
+        }
+        inFlightBudget.recordDropped(dto);
+        return null;
+    }
+
+    private void publish(ProducerRecord<String, byte[]> record, DeliveryGuarantee delivery, KafkaRoute route) {
+        if (spillLog != null && !spillLog.isKafkaAvailable()) {
+            spillLog.append(record);
+            release(record);
+            return;
+        }
+        KafkaTemplate<String, byte[]> template = null;
+        if (delivery != DeliveryGuarantee.EXACTLY_ONCE) {
+            template = route != null ? route.getTemplate() : templateRegistry != null ? templateRegistry.get(delivery) : null;
+        }
+        if (template == null) {
+            publishInTransaction(record, route);
+            return;
+        }
+        pendingSends.incrementAndGet();
+        try {
+            template.send(record).whenComplete((result, ex) -> {
+                pendingSends.decrementAndGet();
+                release(record);
+                if (ex != null) {
+                    log.error("Kafka send failed for topic {}", record.topic(), ex);
+                    spill(record);
+                }
+            });
+        } catch (RuntimeException e) {
+            pendingSends.decrementAndGet();
+            release(record);
+            if (spillLog == null) {
+                throw e;
+            }
+            log.warn("Kafka send failed, spilling record: {}", e.getMessage());
+            spill(record);
+        }
+    }
+
+    private void publishInTransaction(ProducerRecord<String, byte[]> record, KafkaRoute route) {
+        KafkaBatchPublisher batch;
+        KafkaTemplate<String, byte[]> template;
+        if (route != null) {
+            batch = route.getBatchPublisher();
+            template = route.getTemplate();
+        } else if (producerPool != null) {
+            batch = producerPool.batchPublisher(record.key());
+            template = producerPool.template(record.key());
+        } else {
+            batch = batchPublisher;
+            template = kafkaTemplate;
+        }
+        if (batch != null && batch.publish(record)) {
+            return;
+        }
+        try {
+            template.executeInTransaction(ops -> {
+                ops.send(record);
                 return true;
             });
-        } catch (JsonProcessingException e) {
-            log.error("Serialize httpLogDto error", e);
+        } catch (RuntimeException e) {
+            if (spillLog == null) {
+                throw e;
+            }
+            log.warn("Kafka transaction failed, spilling record: {}", e.getMessage());
+            spill(record);
+        } finally {
+            release(record);
+        }
+    }
+
+    private void release(ProducerRecord<String, byte[]> record) {
+        if (inFlightBudget != null) {
+            inFlightBudget.release(record);
+        }
+    }
+
+    private void spill(ProducerRecord<String, byte[]> record) {
+        if (spillLog != null) {
+            spillLog.markUnavailable();
+            spillLog.append(record);
         }
     }
 
@@ -0,0 +1,75 @@
+package org.ex9.auditlib.service;
+
+import lombok.Builder;
+import lombok.Getter;
+import org.ex9.auditlib.util.DeliveryGuarantee;
+import org.ex9.auditlib.util.EventKind;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.kafka.core.KafkaTemplate;
+
+import java.util.Set;
+
+/**
+ * Маршрут событий аудита в отдельный топик Kafka.
+ * <p>
+ * Событие подходит маршруту, если его вид входит в {@link #kinds} и уровень — в {@link #levels};
+ * пустой набор означает любое значение. Для exactly-once используется транзакционный {@link #template}
+ * и, если задан, собственный {@link #batchPublisher}; для остальных профилей — нетранзакционный {@link #template}.
+ * </p>
+ * @author Краковцев Артём
+ */
+@Getter
+@Builder
+public class KafkaRoute implements AutoCloseable {
+
+    /** Виды событий маршрута. */
+    @Builder.Default
+    private final Set<EventKind> kinds = Set.of();
+
+    /** Уровни логирования маршрута в верхнем регистре. */
+    @Builder.Default
+    private final Set<String> levels = Set.of();
+
+    /** Топик маршрута. */
+    private final String topic;
+
+    /** Профиль доставки маршрута. */
+    private final DeliveryGuarantee delivery;
+
+    /** Шаблон Kafka, соответствующий профилю доставки. */
+    private final KafkaTemplate<String, byte[]> template;
+
+    /** Пакетный публикатор маршрута, может быть null. */
+    private final KafkaBatchPublisher batchPublisher;
+
+    /** Создан ли {@link #template} для маршрута и должен ли закрываться вместе с ним. */
+    private final boolean ownsTemplate;
+
+    /**
+     * Проверяет, подходит ли событие маршруту.
+     *
+     * @param kind  вид события
+     * @param level уровень логирования, может быть null
+     * @return true, если событие подходит маршруту
+     */
+    public boolean matches(EventKind kind, String level) {
+        return (kinds.isEmpty() || kinds.contains(kind))
+                && (levels.isEmpty() || level != null && levels.contains(level.toUpperCase()));
+    }
+
+    /**
+     * Закрывает пакетный публикатор и собственную фабрику продюсеров маршрута.
+     *
+     * @throws Exception ошибка закрытия фабрики
+     */
+    @Override
+    public void close() throws Exception {
+        if (batchPublisher != null) {
+            batchPublisher.close();
+        }
+        if (ownsTemplate && template.getProducerFactory() instanceof DisposableBean disposable) {
+            disposable.destroy();
+        }
+    }
+
+}
@@ -0,0 +1,64 @@
+package org.ex9.auditlib.service;
+
+import org.ex9.auditlib.dto.LogDto;
+import org.ex9.auditlib.util.EventKind;
+import org.springframework.beans.factory.DisposableBean;
+
+import java.util.List;
+
+/**
+ * Таблица маршрутов событий аудита.
+ * <p>
+ * Маршруты проверяются в порядке объявления, событие отправляется по первому подходящему.
+ * Если ни один маршрут не подходит, используются топик и профиль доставки по умолчанию.
+ * </p>
+ * @author Краковцев Артём
+ */
+public class KafkaRouter implements DisposableBean {
+
+    private final List<KafkaRoute> routes;
+
+    /**
+     * @param routes маршруты в порядке приоритета
+     */
+    public KafkaRouter(List<KafkaRoute> routes) {
+        this.routes = List.copyOf(routes);
+    }
+
+    /**
+     * Возвращает первый подходящий маршрут.
+     *
+     * @param dto событие
+     * @return маршрут или null, если ни один не подходит
+     */
+    public KafkaRoute find(LogDto dto) {
+        if (routes.isEmpty()) {
+            return null;
+        }
+        EventKind kind = EventKind.of(dto);
+        String level = AuditRecordHeaders.levelOf(dto);
+        for (KafkaRoute route : routes) {
+            if (route.matches(kind, level)) {
+                return route;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Возвращает маршруты в порядке приоритета.
+     *
+     * @return маршруты
+     */
+    public List<KafkaRoute> getRoutes() {
+        return routes;
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        for (KafkaRoute route : routes) {
+            route.close();
+        }
+    }
+
+}
@@ -0,0 +1,444 @@
+package org.ex9.auditlib.service;
+
+import lombok.extern.log4j.Log4j2;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.logging.log4j.ThreadContext;
+import org.ex9.auditlib.property.AuditKafkaProperties;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Локальный журнал событий, которые не удалось отправить в Kafka.
+ * <p>
+ * События дописываются в сегменты фиксированного размера, отображённые в память
+ * ({@link MappedByteBuffer}). Фоновый поток переотправляет их в порядке записи не быстрее
+ * {@link AuditKafkaProperties.Spill#getReplayRate()} событий в секунду. Позиция чтения хранится
+ * в заголовке сегмента, поэтому после перезапуска приложения переотправка продолжается с места остановки.
+ * Полностью переотправленные сегменты удаляются. Суммарный объём сегментов ограничен
+ * {@link AuditKafkaProperties.Spill#getMaxDiskUsage()}; события сверх лимита отбрасываются с записью в лог.
+ * </p>
+ * <p>
+ * Формат сегмента: заголовок {@code [int magic][int reserved][long readPosition]},
+ * затем записи {@code [int length][payload]}. Нулевая длина означает конец записанных данных.
+ * Payload содержит топик, ключ, значение и заголовки записи Kafka; записи без заголовков,
+ * сохранённые прежними версиями, читаются без изменений.
+ * </p>
+ * @author Краковцев Артём
+ */
+@Log4j2
+public class KafkaSpillLog implements AutoCloseable {
+
+    private static final String KAFKA_LOGGING_KEY = "kafkaLogging";
+    private static final int MAGIC = 0x41554454;
+    private static final int HEADER_SIZE = 16;
+    private static final int READ_POSITION_OFFSET = 8;
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".spill";
+    private static final long TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final int TICKS_PER_SECOND = 10;
+
+    private final Path directory;
+    private final int segmentSize;
+    private final long maxSegments;
+    private final int recordsPerTick;
+    private final Duration retryInterval;
+    private final Consumer<List<ProducerRecord<String, byte[]>>> replayer;
+
+    private final Deque<Segment> segments = new ArrayDeque<>();
+    private final AtomicLong pending = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    private Segment writeSegment;
+    private long nextSegmentId;
+    private Thread replayThread;
+
+    private volatile boolean running;
+    private volatile boolean kafkaAvailable = true;
+
+    /**
+     * @param settings настройки журнала
+     * @param replayer функция переотправки пачки записей; должна бросать исключение, если запись не удалась
+     */
+    public KafkaSpillLog(AuditKafkaProperties.Spill settings, Consumer<List<ProducerRecord<String, byte[]>>> replayer) {
+        this.directory = Path.of(settings.getDirectory());
+        this.segmentSize = (int) Math.min(Integer.MAX_VALUE, Math.max(HEADER_SIZE * 2L, settings.getSegmentSize().toBytes()));
+        this.maxSegments = Math.max(1, settings.getMaxDiskUsage().toBytes() / segmentSize);
+        this.recordsPerTick = Math.max(1, settings.getReplayRate() / TICKS_PER_SECOND);
+        this.retryInterval = settings.getRetryInterval();
+        this.replayer = replayer;
+    }
+
+    /**
+     * Восстанавливает сегменты, оставшиеся с прошлого запуска, и запускает поток переотправки.
+     */
+    public synchronized void start() {
+        try {
+            Files.createDirectories(directory);
+            recover();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open audit spill directory " + directory, e);
+        }
+        running = true;
+        replayThread = new Thread(this::replayLoop, "audit-kafka-spill-replay");
+        replayThread.setDaemon(true);
+        replayThread.start();
+        if (pending.get() > 0) {
+            log.warn("Recovered {} spilled audit records from {}", pending.get(), directory);
+        }
+    }
+
+    /**
+     * Дописывает запись в журнал. До переотправки всего журнала Kafka считается недоступной.
+     *
+     * @param record запись
+     * @return false, если запись не помещается в лимит диска
+     */
+    public synchronized boolean append(ProducerRecord<String, byte[]> record) {
+        byte[] payload = encode(record);
+        int required = Integer.BYTES + payload.length;
+        if (required > segmentSize - HEADER_SIZE) {
+            dropped.incrementAndGet();
+            log.error("Audit record of {} bytes exceeds spill segment size, dropped", payload.length);
+            return false;
+        }
+        if (writeSegment == null || writeSegment.remaining() < required) {
+            if (!rollSegment()) {
+                dropped.incrementAndGet();
+                log.error("Audit spill disk budget exhausted, record for topic {} dropped", record.topic());
+                return false;
+            }
+        }
+        writeSegment.write(payload);
+        pending.incrementAndGet();
+        // пока запись не переотправлена, новые события должны идти в журнал за ней
+        kafkaAvailable = false;
+        return true;
+    }
+
+    /**
+     * Отмечает Kafka недоступной: новые события следует писать в журнал, пока переотправка не восстановится.
+     */
+    public void markUnavailable() {
+        kafkaAvailable = false;
+    }
+
+    /**
+     * @return true, если последняя попытка отправки в Kafka была успешной
+     */
+    public boolean isKafkaAvailable() {
+        return kafkaAvailable;
+    }
+
+    /**
+     * @return количество записей, ожидающих переотправки
+     */
+    public long getPendingRecords() {
+        return pending.get();
+    }
+
+    /**
+     * @return количество записей, отброшенных из-за лимитов журнала
+     */
+    public long getDroppedRecords() {
+        return dropped.get();
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        if (replayThread != null) {
+            replayThread.interrupt();
+            try {
+                replayThread.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        synchronized (this) {
+            segments.forEach(Segment::force);
+        }
+        if (pending.get() > 0) {
+            log.warn("Audit spill log closed with {} records pending replay in {}", pending.get(), directory);
+        }
+    }
+
+    private void replayLoop() {
+        ThreadContext.put(KAFKA_LOGGING_KEY, "true");
+        while (running) {
+            long tickStart = System.nanoTime();
+            Chunk chunk = readChunk();
+            if (chunk == null) {
+                markAvailableIfDrained();
+            }
+            if (chunk != null) {
+                try {
+                    replayer.accept(chunk.records());
+                    commit(chunk);
+                } catch (Exception e) {
+                    kafkaAvailable = false;
+                    log.warn("Audit spill replay failed, {} records pending: {}", pending.get(), e.getMessage());
+                    sleepNanos(retryInterval.toNanos());
+                    continue;
+                }
+            }
+            sleepNanos(TICK_NANOS - (System.nanoTime() - tickStart));
+        }
+    }
+
+    /**
+     * Kafka считается доступной только после переотправки всего журнала: иначе новые события
+     * ушли бы в Kafka раньше записанных до них. Проверка, как и в {@link #commit(Chunk)}, идёт под
+     * блокировкой {@link #append}, чтобы запись, добавленная в журнал одновременно с проверкой,
+     * не осталась позади новых событий.
+     */
+    private synchronized void markAvailableIfDrained() {
+        if (pending.get() == 0) {
+            kafkaAvailable = true;
+        }
+    }
+
+    private synchronized Chunk readChunk() {
+        Segment segment = segments.peekFirst();
+        if (segment == null) {
+            return null;
+        }
+        List<ProducerRecord<String, byte[]>> records = new ArrayList<>(recordsPerTick);
+        int position = segment.readPosition;
+        int end = segment.writePosition;
+        while (position < end && records.size() < recordsPerTick) {
+            int length = segment.buffer.getInt(position);
+            byte[] payload = new byte[length];
+            segment.buffer.get(position + Integer.BYTES, payload);
+            records.add(decode(payload));
+            position += Integer.BYTES + length;
+        }
+        if (records.isEmpty()) {
+            releaseIfConsumed(segment);
+            return null;
+        }
+        return new Chunk(segment, position, records);
+    }
+
+    private synchronized void commit(Chunk chunk) {
+        Segment segment = chunk.segment();
+        segment.readPosition = chunk.endPosition();
+        segment.buffer.putLong(READ_POSITION_OFFSET, chunk.endPosition());
+        if (pending.addAndGet(-chunk.records().size()) == 0) {
+            kafkaAvailable = true;
+        }
+        releaseIfConsumed(segment);
+    }
+
+    private void releaseIfConsumed(Segment segment) {
+        if (segment.sealed && segment.readPosition >= segment.writePosition) {
+            segments.remove(segment);
+            try {
+                Files.deleteIfExists(segment.path);
+            } catch (IOException e) {
+                log.warn("Cannot delete replayed spill segment {}", segment.path, e);
+            }
+        }
+    }
+
+    private boolean rollSegment() {
+        if (writeSegment != null && writeSegment.readPosition >= writeSegment.writePosition) {
+            // полностью переотправленный сегмент освобождает место в лимите диска
+            writeSegment.sealed = true;
+            releaseIfConsumed(writeSegment);
+            writeSegment = null;
+        }
+        if (segments.size() >= maxSegments) {
+            return false;
+        }
+        Path path = directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, nextSegmentId++, SEGMENT_SUFFIX));
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+            buffer.putInt(0, MAGIC);
+            buffer.putLong(READ_POSITION_OFFSET, HEADER_SIZE);
+            if (writeSegment != null) {
+                // сегмент запечатывается только после создания следующего, иначе его удалит переотправка,
+                // пока в него ещё пишут
+                writeSegment.sealed = true;
+                releaseIfConsumed(writeSegment);
+            }
+            writeSegment = new Segment(path, buffer, HEADER_SIZE, HEADER_SIZE);
+            segments.addLast(writeSegment);
+            return true;
+        } catch (IOException e) {
+            log.error("Cannot create audit spill segment {}", path, e);
+            return false;
+        }
+    }
+
+    private void recover() throws IOException {
+        List<Path> files;
+        try (Stream<Path> stream = Files.list(directory)) {
+            files = stream
+                    .filter(path -> {
+                        String name = path.getFileName().toString();
+                        return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+                    })
+                    .sorted()
+                    .toList();
+        }
+        for (Path path : files) {
+            String name = path.getFileName().toString();
+            long id = Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+            nextSegmentId = Math.max(nextSegmentId, id + 1);
+
+            MappedByteBuffer buffer;
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+            }
+            if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+                log.warn("Skipping corrupted audit spill segment {}", path);
+                continue;
+            }
+            int readPosition = (int) Math.max(HEADER_SIZE, Math.min(buffer.capacity(), buffer.getLong(READ_POSITION_OFFSET)));
+            int writePosition = HEADER_SIZE;
+            while (writePosition + Integer.BYTES <= buffer.capacity()) {
+                int length = buffer.getInt(writePosition);
+                if (length <= 0 || writePosition + Integer.BYTES + length > buffer.capacity()) {
+                    break;
+                }
+                if (writePosition >= readPosition) {
+                    pending.incrementAndGet();
+                }
+                writePosition += Integer.BYTES + length;
+            }
+            Segment segment = new Segment(path, buffer, readPosition, writePosition);
+            segment.sealed = true;
+            segments.addLast(segment);
+            releaseIfConsumed(segment);
+        }
+    }
+
+    private void sleepNanos(long nanos) {
+        if (nanos <= 0) {
+            return;
+        }
+        try {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+
+    private static byte[] encode(ProducerRecord<String, byte[]> record) {
+        byte[] topic = record.topic().getBytes(StandardCharsets.UTF_8);
+        byte[] key = record.key() != null ? record.key().getBytes(StandardCharsets.UTF_8) : null;
+        byte[] value = record.value();
+        Header[] headers = record.headers().toArray();
+        int size = Integer.BYTES * 4 + topic.length
+                + (key != null ? key.length : 0) + (value != null ? value.length : 0);
+        byte[][] headerKeys = new byte[headers.length][];
+        for (int i = 0; i < headers.length; i++) {
+            headerKeys[i] = headers[i].key().getBytes(StandardCharsets.UTF_8);
+            size += Integer.BYTES * 2 + headerKeys[i].length
+                    + (headers[i].value() != null ? headers[i].value().length : 0);
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        putBytes(buffer, topic);
+        putBytes(buffer, key);
+        putBytes(buffer, value);
+        buffer.putInt(headers.length);
+        for (int i = 0; i < headers.length; i++) {
+            putBytes(buffer, headerKeys[i]);
+            putBytes(buffer, headers[i].value());
+        }
+        return buffer.array();
+    }
+
+    private static ProducerRecord<String, byte[]> decode(byte[] payload) {
+        ByteBuffer buffer = ByteBuffer.wrap(payload);
+        String topic = getString(buffer);
+        String key = getString(buffer);
+        byte[] value = getBytes(buffer);
+        RecordHeaders headers = new RecordHeaders();
+        int headerCount = buffer.hasRemaining() ? buffer.getInt() : 0;
+        for (int i = 0; i < headerCount; i++) {
+            headers.add(getString(buffer), getBytes(buffer));
+        }
+        return new ProducerRecord<>(topic, null, key, value, headers);
+    }
+
+    private static void putBytes(ByteBuffer buffer, byte[] bytes) {
+        if (bytes == null) {
+            buffer.putInt(-1);
+            return;
+        }
+        buffer.putInt(bytes.length);
+        buffer.put(bytes);
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        byte[] bytes = getBytes(buffer);
+        return bytes != null ? new String(bytes, StandardCharsets.UTF_8) : null;
+    }
+
+    private static byte[] getBytes(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    private record Chunk(Segment segment, int endPosition, List<ProducerRecord<String, byte[]>> records) {
+    }
+
+    private static final class Segment {
+
+        private final Path path;
+        private final MappedByteBuffer buffer;
+        private int readPosition;
+        private int writePosition;
+        private boolean sealed;
+
+        private Segment(Path path, MappedByteBuffer buffer, int readPosition, int writePosition) {
+            this.path = path;
+            this.buffer = buffer;
+            this.readPosition = readPosition;
+            this.writePosition = writePosition;
+        }
+
+        private int remaining() {
+            return buffer.capacity() - writePosition;
+        }
+
+        private void write(byte[] payload) {
+            buffer.put(writePosition + Integer.BYTES, payload);
+            buffer.putInt(writePosition, payload.length);
+            writePosition += Integer.BYTES + payload.length;
+        }
+
+        private void force() {
+            buffer.force();
+        }
+
+    }
+
+}
@@ -0,0 +1,69 @@
+package org.ex9.auditlib.service;
+
+import org.ex9.auditlib.util.DeliveryGuarantee;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.core.ProducerFactory;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Реестр шаблонов Kafka для профилей доставки {@link DeliveryGuarantee}.
+ * <p>
+ * Транзакционный шаблон передаётся готовым, шаблоны остальных профилей создаются при первом обращении.
+ * Фабрики продюсеров, созданные реестром, закрываются вместе с ним.
+ * </p>
+ * @author Краковцев Артём
+ */
+public class KafkaTemplateRegistry implements DisposableBean {
+
+    private final Map<DeliveryGuarantee, KafkaTemplate<String, byte[]>> templates = new ConcurrentHashMap<>();
+    private final Map<DeliveryGuarantee, ProducerFactory<String, byte[]>> ownedFactories = new ConcurrentHashMap<>();
+    private final Function<DeliveryGuarantee, ProducerFactory<String, byte[]>> factoryProvider;
+
+    /**
+     * @param exactlyOnceTemplate транзакционный шаблон для {@link DeliveryGuarantee#EXACTLY_ONCE}
+     * @param factoryProvider     фабрика продюсеров для остальных профилей
+     */
+    public KafkaTemplateRegistry(KafkaTemplate<String, byte[]> exactlyOnceTemplate,
+                                 Function<DeliveryGuarantee, ProducerFactory<String, byte[]>> factoryProvider) {
+        this.factoryProvider = factoryProvider;
+        this.templates.put(DeliveryGuarantee.EXACTLY_ONCE, exactlyOnceTemplate);
+    }
+
+    /**
+     * Возвращает шаблон для указанного профиля доставки.
+     *
+     * @param delivery профиль доставки
+     * @return шаблон Kafka
+     */
+    public KafkaTemplate<String, byte[]> get(DeliveryGuarantee delivery) {
+        return templates.computeIfAbsent(delivery, key -> {
+            ProducerFactory<String, byte[]> factory = factoryProvider.apply(key);
+            ownedFactories.put(key, factory);
+            return new KafkaTemplate<>(factory);
+        });
+    }
+
+    /**
+     * Возвращает уже созданные шаблоны всех профилей доставки.
+     *
+     * @return шаблоны Kafka
+     */
+    public Collection<KafkaTemplate<String, byte[]>> getTemplates() {
+        return templates.values();
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        for (ProducerFactory<String, byte[]> factory : ownedFactories.values()) {
+            if (factory instanceof DisposableBean disposable) {
+                disposable.destroy();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,74 @@
+package org.ex9.auditlib.service;
+
+import org.ex9.auditlib.dto.AuditDto;
+import org.ex9.auditlib.dto.HttpLogDto;
+import org.ex9.auditlib.dto.LogDto;
+import org.ex9.auditlib.util.AuditTimestamps;
+import org.ex9.auditlib.util.PartitionKeyStrategy;
+import org.ex9.auditlib.util.TimeOrderedIdGenerator;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Вычисляет ключ записи Kafka для события аудита.
+ * <p>
+ * Стандартные реализации создаются по {@link PartitionKeyStrategy} методом {@link #of(PartitionKeyStrategy, String)};
+ * собственную реализацию можно зарегистрировать бином этого типа.
+ * </p>
+ * @author Краковцев Артём
+ */
+@FunctionalInterface
+public interface PartitionKeyResolver {
+
+    /**
+     * Возвращает ключ записи.
+     *
+     * @param dto событие
+     * @return ключ записи или null, чтобы партицию выбрал продюсер
+     */
+    String resolve(LogDto dto);
+
+    /**
+     * Создаёт реализацию для стратегии.
+     *
+     * @param strategy   стратегия; если не задана, используется {@link PartitionKeyStrategy#CORRELATION}
+     * @param instanceId идентификатор экземпляра для {@link PartitionKeyStrategy#INSTANCE};
+     *                   если не задан, используется <code>pid@host</code> JVM
+     * @return реализация
+     */
+    static PartitionKeyResolver of(PartitionKeyStrategy strategy, String instanceId) {
+        if (strategy == null) {
+            strategy = PartitionKeyStrategy.CORRELATION;
+        }
+        return switch (strategy) {
+            case CORRELATION -> PartitionKeyResolver::byCorrelation;
+            case METHOD -> PartitionKeyResolver::byMethod;
+            case INSTANCE -> {
+                String key = instanceId != null ? instanceId : ManagementFactory.getRuntimeMXBean().getName();
+                yield dto -> key;
+            }
+            case STICKY_ROUND_ROBIN -> dto -> null;
+        };
+    }
+
+    private static String byCorrelation(LogDto dto) {
+        if (dto.getCorrelationId() != null) {
+            return dto.getCorrelationId();
+        }
+        if (dto instanceof AuditDto auditDto && auditDto.getId() != null) {
+            return auditDto.getId();
+        }
+        return TimeOrderedIdGenerator.next(AuditTimestamps.nowMicros()).toString();
+    }
+
+    private static String byMethod(LogDto dto) {
+        if (dto instanceof AuditDto auditDto) {
+            return auditDto.getMethodName();
+        }
+        if (dto instanceof HttpLogDto httpLogDto) {
+            return httpLogDto.getRoute();
+        }
+        return null;
+    }
+
+}
@@ -0,0 +1,15 @@
+package org.ex9.auditlib.util;
+
+import org.springframework.util.IdGenerator;
+
+/**
+ * Генератор идентификаторов событий аудита.
+ * <p>
+ * Отдельный тип нужен, чтобы бин стартера не подменял {@link IdGenerator} приложения
+ * и не конфликтовал с ним при внедрении по типу. Чтобы задать свой генератор для аудита,
+ * достаточно объявить бин этого типа.
+ * </p>
+ * @author Краковцев Артём
+ */
+public interface AuditIdGenerator extends IdGenerator {
+}
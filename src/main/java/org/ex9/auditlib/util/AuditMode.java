@@ -0,0 +1,41 @@
+package org.ex9.auditlib.util;
+
+import org.ex9.auditlib.property.AuditLogProperties;
+
+/**
+ * Перечисление, определяющее, как аудируются вызовы методов с аннотацией
+ * {@link org.ex9.auditlib.annotation.AuditLog}.
+ * <p>
+ * Глобальный режим задаётся в {@link AuditLogProperties.Aggregation}, для отдельного метода его можно
+ * переопределить в аннотации.
+ * </p>
+ * <p>
+ * Пример конфигурации:
+ * <pre>
+ * audit:
+ *   logging:
+ *     aggregation:
+ *       mode: AGGREGATE
+ *       window: 60s
+ * </pre>
+ * </p>
+ * @author Краковцев Артём
+ */
+public enum AuditMode {
+
+    /**
+     * Режим из глобальной настройки <code>audit.logging.aggregation.mode</code>; в настройке означает {@link #EVENTS}.
+     */
+    DEFAULT,
+
+    /**
+     * События START, END и ERROR на каждый вызов.
+     */
+    EVENTS,
+
+    /**
+     * Одна сводка SUMMARY на метод за окно: количество вызовов и ошибок, перцентили длительности.
+     */
+    AGGREGATE
+
+}
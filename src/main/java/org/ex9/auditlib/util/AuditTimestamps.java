@@ -0,0 +1,123 @@
+package org.ex9.auditlib.util;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+
+/**
+ * Время событий аудита.
+ * <p>
+ * В момент события запоминается только число микросекунд от эпохи ({@link #nowMicros()}).
+ * Строка вида <code>2026-01-01T10:15:30.123456</code> в часовом поясе JVM строится позже, в sink,
+ * через {@link #formatTo(StringBuilder, long)} без промежуточных объектов: смещение пояса и префикс даты
+ * кешируются до следующего перехода времени и до смены суток.
+ * </p>
+ * @author Краковцев Артём
+ */
+public final class AuditTimestamps {
+
+    private static final long MICROS_PER_SECOND = 1_000_000L;
+    private static final long SECONDS_PER_DAY = 86_400L;
+
+    private static final ZoneRules RULES = ZoneId.systemDefault().getRules();
+
+    private static volatile Offset offset = Offset.of(Instant.now().getEpochSecond());
+    private static volatile Day day = Day.of(0);
+
+    private AuditTimestamps() {
+    }
+
+    /**
+     * @return текущее время в микросекундах от эпохи
+     */
+    public static long nowMicros() {
+        Instant now = Instant.now();
+        return now.getEpochSecond() * MICROS_PER_SECOND + now.getNano() / 1_000;
+    }
+
+    /**
+     * @param epochMicros время в микросекундах от эпохи
+     * @return локальные дата и время с микросекундами
+     */
+    public static String format(long epochMicros) {
+        StringBuilder buffer = new StringBuilder(26);
+        formatTo(buffer, epochMicros);
+        return buffer.toString();
+    }
+
+    /**
+     * Дописывает локальные дату и время с микросекундами в буфер.
+     *
+     * @param buffer      буфер для записи
+     * @param epochMicros время в микросекундах от эпохи
+     */
+    public static void formatTo(StringBuilder buffer, long epochMicros) {
+        long epochSecond = Math.floorDiv(epochMicros, MICROS_PER_SECOND);
+        int micros = (int) Math.floorMod(epochMicros, MICROS_PER_SECOND);
+
+        Offset currentOffset = offset;
+        if (!currentOffset.covers(epochSecond)) {
+            currentOffset = Offset.of(epochSecond);
+            offset = currentOffset;
+        }
+        long localSecond = epochSecond + currentOffset.seconds();
+        long epochDay = Math.floorDiv(localSecond, SECONDS_PER_DAY);
+        int secondOfDay = (int) Math.floorMod(localSecond, SECONDS_PER_DAY);
+
+        Day currentDay = day;
+        if (currentDay.epochDay() != epochDay) {
+            currentDay = Day.of(epochDay);
+            day = currentDay;
+        }
+
+        buffer.append(currentDay.prefix());
+        appendTwoDigits(buffer, secondOfDay / 3600);
+        buffer.append(':');
+        appendTwoDigits(buffer, secondOfDay / 60 % 60);
+        buffer.append(':');
+        appendTwoDigits(buffer, secondOfDay % 60);
+        buffer.append('.');
+        for (int divisor = 100_000; divisor > 0; divisor /= 10) {
+            buffer.append((char) ('0' + micros / divisor % 10));
+        }
+    }
+
+    private static void appendTwoDigits(StringBuilder buffer, int value) {
+        buffer.append((char) ('0' + value / 10)).append((char) ('0' + value % 10));
+    }
+
+    /**
+     * Смещение пояса, действующее на интервале секунд [from, until).
+     */
+    private record Offset(long from, long until, int seconds) {
+
+        static Offset of(long epochSecond) {
+            Instant instant = Instant.ofEpochSecond(epochSecond);
+            ZoneOffsetTransition previous = RULES.previousTransition(instant);
+            ZoneOffsetTransition next = RULES.nextTransition(instant);
+            return new Offset(
+                    previous != null ? previous.toEpochSecond() : Long.MIN_VALUE,
+                    next != null ? next.toEpochSecond() : Long.MAX_VALUE,
+                    RULES.getOffset(instant).getTotalSeconds());
+        }
+
+        boolean covers(long epochSecond) {
+            return epochSecond >= from && epochSecond < until;
+        }
+
+    }
+
+    /**
+     * Префикс <code>yyyy-MM-ddT</code> локальных суток.
+     */
+    private record Day(long epochDay, String prefix) {
+
+        static Day of(long epochDay) {
+            return new Day(epochDay, LocalDate.ofEpochDay(epochDay) + "T");
+        }
+
+    }
+
+}
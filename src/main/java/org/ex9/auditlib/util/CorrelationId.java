@@ -0,0 +1,49 @@
+package org.ex9.auditlib.util;
+
+import org.apache.logging.log4j.ThreadContext;
+
+/**
+ * Идентификатор корреляции текущего запроса.
+ * <p>
+ * Хранится в {@link ThreadContext} под ключом {@link #CONTEXT_KEY}, поэтому доступен
+ * и в шаблонах логов как <code>%X{correlationId}</code>.
+ * </p>
+ * @author Краковцев Артём
+ */
+public final class CorrelationId {
+
+    /** HTTP-заголовок с идентификатором корреляции. */
+    public static final String HEADER = "X-Correlation-Id";
+
+    /** Ключ идентификатора корреляции в {@link ThreadContext}. */
+    public static final String CONTEXT_KEY = "correlationId";
+
+    private CorrelationId() {
+    }
+
+    /**
+     * Возвращает идентификатор корреляции текущего потока.
+     *
+     * @return идентификатор или null, если поток не обрабатывает запрос
+     */
+    public static String get() {
+        return ThreadContext.get(CONTEXT_KEY);
+    }
+
+    /**
+     * Устанавливает идентификатор корреляции текущего потока.
+     *
+     * @param correlationId идентификатор
+     */
+    public static void set(String correlationId) {
+        ThreadContext.put(CONTEXT_KEY, correlationId);
+    }
+
+    /**
+     * Удаляет идентификатор корреляции текущего потока.
+     */
+    public static void clear() {
+        ThreadContext.remove(CONTEXT_KEY);
+    }
+
+}
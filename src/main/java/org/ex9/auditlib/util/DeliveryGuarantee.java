@@ -0,0 +1,39 @@
+package org.ex9.auditlib.util;
+
+import org.ex9.auditlib.property.AuditKafkaProperties;
+
+/**
+ * Перечисление, определяющее гарантии доставки событий в Kafka.
+ * <p>
+ * Применяется в настройках {@link AuditKafkaProperties} и определяет как конфигурацию продюсера,
+ * так и способ отправки сообщений.
+ * </p>
+ * <p>
+ * Пример конфигурации:
+ * <pre>
+ * audit:
+ *   kafka:
+ *     delivery: EXACTLY_ONCE
+ *     http-delivery: FIRE_AND_FORGET
+ * </pre>
+ * </p>
+ * @author Краковцев Артём
+ */
+public enum DeliveryGuarantee {
+
+    /**
+     * Транзакционная отправка идемпотентным продюсером (acks=all).
+     */
+    EXACTLY_ONCE,
+
+    /**
+     * Нетранзакционная отправка идемпотентным продюсером (acks=all, бесконечные повторы).
+     */
+    AT_LEAST_ONCE,
+
+    /**
+     * Отправка без подтверждения записи всеми репликами и без повторов (acks=1 или acks=0).
+     */
+    FIRE_AND_FORGET
+
+}
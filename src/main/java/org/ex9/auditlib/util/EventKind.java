@@ -0,0 +1,77 @@
+package org.ex9.auditlib.util;
+
+import org.ex9.auditlib.dto.AuditDto;
+import org.ex9.auditlib.dto.HttpLogDto;
+import org.ex9.auditlib.dto.LogDto;
+
+/**
+ * Перечисление, определяющее вид события аудита.
+ * <p>
+ * Передаётся в заголовке записи Kafka, чтобы потребители могли фильтровать события без разбора тела.
+ * </p>
+ * @author Краковцев Артём
+ */
+public enum EventKind {
+
+    /**
+     * Начало выполнения метода.
+     */
+    METHOD_START,
+
+    /**
+     * Успешное завершение метода.
+     */
+    METHOD_END,
+
+    /**
+     * Завершение метода с ошибкой.
+     */
+    METHOD_ERROR,
+
+    /**
+     * Сводка вызовов метода за окно агрегации.
+     */
+    METHOD_SUMMARY,
+
+    /**
+     * Входящий HTTP-запрос.
+     */
+    HTTP_INCOMING,
+
+    /**
+     * Исходящий HTTP-запрос.
+     */
+    HTTP_OUTGOING,
+
+    /**
+     * Событие, вид которого не удалось определить.
+     */
+    UNKNOWN;
+
+    /**
+     * Определяет вид события.
+     *
+     * @param dto событие
+     * @return вид события
+     */
+    public static EventKind of(LogDto dto) {
+        if (dto instanceof AuditDto auditDto && auditDto.getType() != null) {
+            return switch (auditDto.getType()) {
+                case "START" -> METHOD_START;
+                case "END" -> METHOD_END;
+                case "ERROR" -> METHOD_ERROR;
+                case "SUMMARY" -> METHOD_SUMMARY;
+                default -> UNKNOWN;
+            };
+        }
+        if (dto instanceof HttpLogDto httpLogDto && httpLogDto.getDirection() != null) {
+            return switch (httpLogDto.getDirection()) {
+                case "Incoming" -> HTTP_INCOMING;
+                case "Outgoing" -> HTTP_OUTGOING;
+                default -> UNKNOWN;
+            };
+        }
+        return UNKNOWN;
+    }
+
+}
@@ -0,0 +1,43 @@
+package org.ex9.auditlib.util;
+
+import org.ex9.auditlib.property.AuditKafkaProperties;
+
+/**
+ * Перечисление, определяющее стратегию выбора ключа записи Kafka, а значит и партиции.
+ * <p>
+ * Применяется в настройках {@link AuditKafkaProperties}.
+ * </p>
+ * <p>
+ * Пример конфигурации:
+ * <pre>
+ * audit:
+ *   kafka:
+ *     partition-key: CORRELATION
+ * </pre>
+ * </p>
+ * @author Краковцев Артём
+ */
+public enum PartitionKeyStrategy {
+
+    /**
+     * По идентификатору корреляции запроса: HTTP-события и события методов одного запроса
+     * попадают в одну партицию. Вне запроса используется идентификатор события.
+     */
+    CORRELATION,
+
+    /**
+     * По имени метода или HTTP-методу и пути.
+     */
+    METHOD,
+
+    /**
+     * По идентификатору экземпляра сервиса.
+     */
+    INSTANCE,
+
+    /**
+     * Без ключа: партицию выбирает sticky-партиционер Kafka, равномерно распределяя пакеты.
+     */
+    STICKY_ROUND_ROBIN
+
+}
@@ -0,0 +1,36 @@
+package org.ex9.auditlib.util;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Генератор идентификаторов UUID версии 7 (RFC 9562).
+ * <p>
+ * Старшие 48 бит - время в миллисекундах от эпохи, следующие 12 бит - доля миллисекунды,
+ * остальное - случайные биты {@link ThreadLocalRandom}. Идентификаторы упорядочены по времени,
+ * поэтому события в топике аудита и в файлах сортируются по id без разбора времени.
+ * В отличие от {@link UUID#randomUUID()} генерация не обращается к общему {@link java.security.SecureRandom}
+ * и не блокируется под нагрузкой; идентификаторы не предназначены для использования как секреты.
+ * </p>
+ * @author Краковцев Артём
+ */
+public class TimeOrderedIdGenerator implements AuditIdGenerator {
+
+    @Override
+    public UUID generateId() {
+        return next(AuditTimestamps.nowMicros());
+    }
+
+    /**
+     * @param epochMicros время в микросекундах от эпохи
+     * @return идентификатор, упорядоченный по этому времени
+     */
+    public static UUID next(long epochMicros) {
+        long millis = epochMicros / 1_000;
+        long subMillis = (epochMicros % 1_000) * 4_096 / 1_000;
+        long mostSigBits = millis << 16 | 0x7000L | subMillis;
+        long leastSigBits = ThreadLocalRandom.current().nextLong() & 0x3FFFFFFFFFFFFFFFL | 0x8000000000000000L;
+        return new UUID(mostSigBits, leastSigBits);
+    }
+
+}
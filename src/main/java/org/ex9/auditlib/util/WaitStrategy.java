@@ -0,0 +1,32 @@
+package org.ex9.auditlib.util;
+
+import org.ex9.auditlib.property.AuditKafkaProperties;
+
+/**
+ * Перечисление, определяющее стратегию ожидания потока, разбирающего очередь асинхронного аппендера.
+ * <p>
+ * Применяется в настройках {@link AuditKafkaProperties.Async}.
+ * </p>
+ * @author Краковцев Артём
+ */
+public enum WaitStrategy {
+
+    /**
+     * Поток засыпает, пока в очереди нет событий, и пробуждается при постановке нового события.
+     * Минимальная нагрузка на CPU ценой задержки пробуждения.
+     */
+    BLOCKING,
+
+    /**
+     * Поток уступает процессор через {@link Thread#yield()}.
+     * Компромисс между задержкой и нагрузкой на CPU.
+     */
+    YIELDING,
+
+    /**
+     * Поток непрерывно опрашивает очередь.
+     * Минимальная задержка, но занимает целое ядро.
+     */
+    BUSY_SPIN
+
+}
@@ -0,0 +1,36 @@
+package org.ex9.auditlib.util;
+
+import org.ex9.auditlib.property.AuditLogProperties;
+
+/**
+ * Способ подключения аспекта {@link org.ex9.auditlib.aspect.AuditLogAspect} к методам с
+ * {@link org.ex9.auditlib.annotation.AuditLog}.
+ * <p>
+ * Применяется в настройках {@link AuditLogProperties}.
+ * </p>
+ * <p>
+ * Пример конфигурации:
+ * <pre>
+ * audit:
+ *   logging:
+ *     weaving: ASPECTJ
+ * </pre>
+ * </p>
+ * @author Краковцев Артём
+ */
+public enum WeavingMode {
+
+    /**
+     * Прокси Spring AOP. Аудируются только вызовы бинов через прокси,
+     * вызовы внутри объекта (<code>this.method()</code>) пропускаются.
+     */
+    PROXY,
+
+    /**
+     * Вплетение AspectJ в байткод: агент <code>-javaagent:aspectjweaver.jar</code> с
+     * <code>META-INF/aop.xml</code> библиотеки или вплетение при сборке. Аудируются все вызовы,
+     * включая внутренние вызовы и методы объектов, не являющихся бинами.
+     */
+    ASPECTJ
+
+}
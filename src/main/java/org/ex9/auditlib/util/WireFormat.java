@@ -0,0 +1,69 @@
+package org.ex9.auditlib.util;
+
+import org.ex9.auditlib.property.AuditKafkaProperties;
+
+/**
+ * Перечисление, определяющее формат кодирования событий аудита в Kafka.
+ * <p>
+ * Применяется в настройках {@link AuditKafkaProperties}. Бинарные форматы предваряются заголовком
+ * с версией, по которому {@link org.ex9.auditlib.serializer.AuditEventDeserializer} определяет формат записи.
+ * </p>
+ * <p>
+ * Пример конфигурации:
+ * <pre>
+ * audit:
+ *   kafka:
+ *     wire-format: SMILE
+ * </pre>
+ * </p>
+ * @author Краковцев Артём
+ */
+public enum WireFormat {
+
+    /**
+     * JSON без заголовка, совместимый с прежними потребителями.
+     */
+    JSON((byte) 0),
+
+    /**
+     * Бинарный формат CBOR (RFC 8949).
+     */
+    CBOR((byte) 1),
+
+    /**
+     * Бинарный формат Smile с общими именами полей.
+     */
+    SMILE((byte) 2);
+
+    private final byte id;
+
+    WireFormat(byte id) {
+        this.id = id;
+    }
+
+    /**
+     * Возвращает идентификатор формата в заголовке записи.
+     *
+     * @return идентификатор формата
+     */
+    public byte getId() {
+        return id;
+    }
+
+    /**
+     * Возвращает формат по идентификатору из заголовка записи.
+     *
+     * @param id идентификатор формата
+     * @return формат
+     * @throws IllegalArgumentException если формат неизвестен
+     */
+    public static WireFormat fromId(byte id) {
+        for (WireFormat format : values()) {
+            if (format.id == id) {
+                return format;
+            }
+        }
+        throw new IllegalArgumentException("Unknown wire format id: " + id);
+    }
+
+}
@@ -0,0 +1,69 @@
+package org.ex9.auditlib.appender;
+
+import org.ex9.auditlib.property.AuditKafkaProperties;
+import org.junit.jupiter.api.RepeatedTest;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AsyncDispatcherTest {
+
+    private final ConcurrentLinkedQueue<Integer> handled = new ConcurrentLinkedQueue<>();
+
+    private AsyncDispatcher<Integer> createDispatcher() {
+        AuditKafkaProperties.Async settings = new AuditKafkaProperties.Async();
+        settings.setQueueCapacity(1024);
+        AsyncDispatcher<Integer> dispatcher = new AsyncDispatcher<>("audit-test-dispatcher", settings, handled::add);
+        dispatcher.start();
+        return dispatcher;
+    }
+
+    @Test
+    void stopTest_handlesQueuedEvents() {
+        AsyncDispatcher<Integer> dispatcher = createDispatcher();
+        for (int i = 0; i < 100; i++) {
+            assertTrue(dispatcher.dispatch(i));
+        }
+
+        assertEquals(0, dispatcher.stop(Duration.ofSeconds(5)));
+
+        assertEquals(100, handled.size());
+        assertFalse(dispatcher.dispatch(100));
+    }
+
+    @RepeatedTest(20)
+    void stopTest_concurrentDispatch_shouldNotLoseAcceptedEvents() throws Exception {
+        AsyncDispatcher<Integer> dispatcher = createDispatcher();
+        AtomicInteger accepted = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(4);
+        List<Thread> producers = new ArrayList<>();
+        for (int p = 0; p < 4; p++) {
+            Thread producer = new Thread(() -> {
+                started.countDown();
+                for (int i = 0; i < 10_000; i++) {
+                    if (dispatcher.dispatch(i)) {
+                        accepted.incrementAndGet();
+                    }
+                }
+            });
+            producer.start();
+            producers.add(producer);
+        }
+        started.await();
+
+        int abandoned = dispatcher.stop(Duration.ofSeconds(5));
+        for (Thread producer : producers) {
+            producer.join();
+        }
+
+        assertEquals(accepted.get(), handled.size() + abandoned);
+    }
+
+}
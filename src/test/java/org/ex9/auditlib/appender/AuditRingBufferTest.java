@@ -0,0 +1,92 @@
+package org.ex9.auditlib.appender;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AuditRingBufferTest {
+
+    @Test
+    void capacityTest_roundsUpToPowerOfTwo() {
+        assertEquals(2, new AuditRingBuffer<>(1).capacity());
+        assertEquals(8, new AuditRingBuffer<>(8).capacity());
+        assertEquals(16, new AuditRingBuffer<>(9).capacity());
+        assertThrows(IllegalArgumentException.class, () -> new AuditRingBuffer<>(0));
+    }
+
+    @Test
+    void offerTest_rejectsWhenFull() {
+        AuditRingBuffer<Integer> buffer = new AuditRingBuffer<>(4);
+
+        for (int i = 0; i < 4; i++) {
+            assertTrue(buffer.offer(i));
+        }
+        assertFalse(buffer.offer(4));
+        assertEquals(4, buffer.size());
+
+        assertEquals(0, buffer.poll());
+        assertTrue(buffer.offer(4));
+    }
+
+    @Test
+    void pollTest_preservesOrderAcrossWrapAround() {
+        AuditRingBuffer<Integer> buffer = new AuditRingBuffer<>(4);
+        List<Integer> drained = new ArrayList<>();
+
+        for (int i = 0; i < 10; i++) {
+            assertTrue(buffer.offer(i));
+            if (i % 2 == 1) {
+                buffer.drainTo(drained, 2);
+            }
+        }
+
+        assertEquals(List.of(0, 1, 2, 3, 4, 5, 6, 7, 8, 9), drained);
+        assertTrue(buffer.isEmpty());
+        assertNull(buffer.poll());
+    }
+
+    @Test
+    void offerTest_multipleProducers_noLostElements() throws InterruptedException {
+        int producers = 4;
+        int perProducer = 50_000;
+        AuditRingBuffer<Integer> buffer = new AuditRingBuffer<>(1024);
+        ExecutorService executor = Executors.newFixedThreadPool(producers);
+        CountDownLatch start = new CountDownLatch(1);
+
+        for (int p = 0; p < producers; p++) {
+            int offset = p * perProducer;
+            executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < perProducer; i++) {
+                    while (!buffer.offer(offset + i)) {
+                        Thread.onSpinWait();
+                    }
+                }
+                return null;
+            });
+        }
+
+        start.countDown();
+        Set<Integer> received = new HashSet<>();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (received.size() < producers * perProducer && System.nanoTime() < deadline) {
+            Integer value = buffer.poll();
+            if (value != null) {
+                assertTrue(received.add(value), "Duplicate element " + value);
+            }
+        }
+        executor.shutdownNow();
+
+        assertEquals(producers * perProducer, received.size());
+    }
+
+}
@@ -0,0 +1,101 @@
+package org.ex9.auditlib.appender;
+
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.core.LogEvent;
+import org.apache.logging.log4j.core.config.Property;
+import org.apache.logging.log4j.core.impl.Log4jLogEvent;
+import org.apache.logging.log4j.message.ObjectMessage;
+import org.ex9.auditlib.dto.AuditDto;
+import org.ex9.auditlib.dto.HttpLogDto;
+import org.ex9.auditlib.layout.AuditJsonLayout;
+import org.ex9.auditlib.property.AuditKafkaProperties;
+import org.ex9.auditlib.service.KafkaPublishService;
+import org.ex9.auditlib.util.WaitStrategy;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class KafkaAppenderTest {
+
+    @Mock
+    private KafkaPublishService kafkaPublishService;
+
+    private KafkaAppender createAppender(AuditKafkaProperties.Async async) {
+        KafkaAppender appender = KafkaAppender.createAppender("Kafka", true, AuditJsonLayout.createLayout(),
+                null, Property.EMPTY_ARRAY, kafkaPublishService, async);
+        appender.start();
+        return appender;
+    }
+
+    private AuditKafkaProperties.Async async(WaitStrategy waitStrategy) {
+        AuditKafkaProperties.Async async = new AuditKafkaProperties.Async();
+        async.setEnabled(true);
+        async.setQueueCapacity(1024);
+        async.setDrainBatchSize(16);
+        async.setWaitStrategy(waitStrategy);
+        return async;
+    }
+
+    private LogEvent event(Object dto) {
+        return Log4jLogEvent.newBuilder()
+                .setLevel(Level.INFO)
+                .setMessage(new ObjectMessage(dto))
+                .build();
+    }
+
+    @Test
+    void appendTest_synchronous_sendsOnCallingThread() {
+        KafkaAppender appender = createAppender(null);
+        AuditDto dto = AuditDto.builder().id("1").type("START").build();
+
+        appender.append(event(dto));
+
+        verify(kafkaPublishService).send(dto);
+        appender.stop();
+    }
+
+    @ParameterizedTest
+    @EnumSource(WaitStrategy.class)
+    void appendTest_asynchronous_sendsOnDrainThread(WaitStrategy waitStrategy) {
+        Set<String> threads = ConcurrentHashMap.newKeySet();
+        doAnswer(invocation -> threads.add(Thread.currentThread().getName()))
+                .when(kafkaPublishService).send(any(HttpLogDto.class));
+        KafkaAppender appender = createAppender(async(waitStrategy));
+
+        for (int i = 0; i < 100; i++) {
+            appender.append(event(HttpLogDto.builder().url("/test/" + i).build()));
+        }
+
+        verify(kafkaPublishService, timeout(5_000).times(100)).send(any(HttpLogDto.class));
+        assertEquals(Set.of("audit-kafka-appender-Kafka"), threads);
+        appender.stop();
+    }
+
+    @Test
+    void stopTest_drainsPendingEvents() {
+        AuditKafkaProperties.Async async = async(WaitStrategy.BLOCKING);
+        async.setShutdownTimeout(Duration.ofSeconds(5));
+        KafkaAppender appender = createAppender(async);
+
+        for (int i = 0; i < 500; i++) {
+            appender.append(event(AuditDto.builder().id(Integer.toString(i)).type("START").build()));
+        }
+
+        assertTrue(appender.stop(5, TimeUnit.SECONDS));
+        verify(kafkaPublishService, times(500)).send(any(AuditDto.class));
+    }
+
+}
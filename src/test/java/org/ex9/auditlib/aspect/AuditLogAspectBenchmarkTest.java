@@ -0,0 +1,98 @@
+package org.ex9.auditlib.aspect;
+
+import lombok.extern.log4j.Log4j2;
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.core.config.Configurator;
+import org.aspectj.lang.JoinPoint;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.annotation.Before;
+import org.ex9.auditlib.annotation.AuditLog;
+import org.ex9.auditlib.property.AuditLogProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+
+import static org.ex9.auditlib.aspect.Benchmarks.format;
+import static org.ex9.auditlib.aspect.Benchmarks.measure;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Сравнение накладных расходов аспекта на тривиальном аудируемом методе.
+ * <p>
+ * Запуск: <code>mvn test -Dtest=AuditLogAspectBenchmarkTest -Daudit.benchmark=true</code>
+ * </p>
+ */
+@Log4j2
+@EnabledIfSystemProperty(named = "audit.benchmark", matches = "true")
+class AuditLogAspectBenchmarkTest {
+
+    public static class Target {
+        @AuditLog
+        public int ping(int value) {
+            return value;
+        }
+    }
+
+    @Aspect
+    public static class JoinPointCapture {
+        private JoinPoint joinPoint;
+        private AuditLog auditLog;
+
+        @Before("@annotation(auditLog)")
+        public void capture(JoinPoint joinPoint, AuditLog auditLog) {
+            this.joinPoint = joinPoint;
+            this.auditLog = auditLog;
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        Configurator.setLevel(AuditLogAspect.class, Level.INFO);
+    }
+
+    @Test
+    void methodMetadata_perCallVersusCached() {
+        AuditLogAspect aspect = activeAspect();
+        JoinPointCapture capture = new JoinPointCapture();
+        AspectJProxyFactory factory = new AspectJProxyFactory(new Target());
+        factory.addAspect(capture);
+        factory.<Target>getProxy().ping(1);
+        JoinPoint joinPoint = capture.joinPoint;
+        AuditLog auditLog = capture.auditLog;
+
+        double perCall = measure(() -> {
+            String className = joinPoint.getSignature().getDeclaringTypeName();
+            String methodName = joinPoint.getSignature().getName();
+            Level level = Level.toLevel(auditLog.logLevel().toString());
+            return String.format("%s.%s", className, methodName).length() + level.intLevel();
+        });
+        double cached = measure(() -> {
+            MethodDescriptor descriptor = aspect.descriptor(joinPoint, auditLog);
+            return descriptor.methodName().length() + descriptor.level().intLevel();
+        });
+
+        log.info("Audit method metadata: per call {} ns/op, cached {} ns/op", format(perCall), format(cached));
+        assertTrue(cached < perCall, "Cached " + cached + " ns/op, per call " + perCall + " ns/op");
+    }
+
+    @Test
+    void auditedCall_withLoggingDisabled() {
+        Configurator.setLevel(AuditLogAspect.class, Level.OFF);
+        AspectJProxyFactory factory = new AspectJProxyFactory(new Target());
+        factory.addAspect(activeAspect());
+        Target proxy = factory.getProxy();
+        Target plain = new Target();
+
+        double advised = measure(() -> proxy.ping(1));
+        double direct = measure(() -> plain.ping(1));
+
+        log.info("Audited call: advised {} ns/op, direct {} ns/op", format(advised), format(direct));
+        assertEquals(1, proxy.ping(1));
+    }
+
+    private static AuditLogAspect activeAspect() {
+        return new AuditLogAspect(new AuditLogProperties.Capture(), new AuditLogProperties.Sampling());
+    }
+
+}
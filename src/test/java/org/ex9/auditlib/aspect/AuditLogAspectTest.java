@@ -1,14 +1,14 @@
 package org.ex9.auditlib.aspect;
 
-import org.apache.logging.log4j.LogManager;
-import org.apache.logging.log4j.core.LogEvent;
-import org.apache.logging.log4j.core.LoggerContext;
-import org.apache.logging.log4j.core.appender.AbstractAppender;
-import org.apache.logging.log4j.core.config.Configuration;
-import org.aspectj.lang.JoinPoint;
+import org.apache.logging.log4j.core.config.Configurator;
+import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.Signature;
+import org.aspectj.lang.reflect.MethodSignature;
 import org.ex9.auditlib.annotation.AuditLog;
 import org.ex9.auditlib.dto.AuditDto;
+import org.ex9.auditlib.property.AuditLogProperties;
+import org.ex9.auditlib.util.AuditMode;
+import org.ex9.auditlib.util.TimeOrderedIdGenerator;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -16,9 +16,14 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.boot.logging.LogLevel;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
-import java.util.ArrayList;
+import java.lang.reflect.Method;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -27,82 +32,53 @@ import static org.mockito.Mockito.*;
 class AuditLogAspectTest {
 
     @Mock
-    private JoinPoint joinPoint;
+    private ProceedingJoinPoint joinPoint;
 
     @Mock
     private Signature signature;
 
+    @Mock
+    private MethodSignature methodSignature;
+
     @Mock
     private AuditLog auditLog;
 
     private AuditLogAspect auditLogAspect;
     private TestAppender testAppender;
 
-    private static class TestAppender extends AbstractAppender {
-        private final List<LogEvent> events = new ArrayList<>();
-
-        protected TestAppender() {
-            super("TestAppender", null, null, true, null);
-        }
-
-        @Override
-        public void append(LogEvent event) {
-            events.add(event.toImmutable());
-        }
-
-        public void clear() {
-            events.clear();
-        }
-
-        public List<AuditDto> getAuditDtos() {
-            return events.stream()
-                    .map(event -> {
-                        Object[] params = event.getMessage().getParameters();
-                        if (params != null && params.length > 0 && params[0] instanceof AuditDto) {
-                            return (AuditDto) params[0];
-                        }
-                        return null;
-                    })
-                    .filter(dto -> dto != null)
-                    .toList();
-        }
-    }
-
     @BeforeEach
     void setUp() {
-        auditLogAspect = new AuditLogAspect();
+        auditLogAspect = new AuditLogAspect(new AuditLogProperties.Capture(), new AuditLogProperties.Sampling());
+        lenient().when(auditLog.captureArgs()).thenReturn(true);
+        lenient().when(auditLog.captureResult()).thenReturn(true);
+        lenient().when(auditLog.argIndexes()).thenReturn(new int[0]);
+        lenient().when(auditLog.includeFields()).thenReturn(new String[0]);
+        lenient().when(auditLog.excludeFields()).thenReturn(new String[0]);
+        lenient().when(auditLog.mode()).thenReturn(AuditMode.DEFAULT);
 
         testAppender = new TestAppender();
-        testAppender.start();
-
-        LoggerContext context = (LoggerContext) LogManager.getContext(false);
-        Configuration config = context.getConfiguration();
-        config.addAppender(testAppender);
-        context.getRootLogger().addAppender(testAppender);
-        context.updateLoggers();
+        testAppender.attach();
     }
 
     @AfterEach
     void tearDown() {
-        LoggerContext context = (LoggerContext) LogManager.getContext(false);
-        context.getRootLogger().removeAppender(testAppender);
-        context.updateLoggers();
-        testAppender.stop();
-        testAppender.clear();
+        testAppender.detach();
+        Configurator.setLevel(AuditLogAspect.class, org.apache.logging.log4j.Level.INFO);
     }
 
     @Test
-    void logStartTest() {
+    void logStartTest() throws Throwable {
         when(joinPoint.getSignature()).thenReturn(signature);
         when(signature.getDeclaringTypeName()).thenReturn("com.example.TestClass");
         when(signature.getName()).thenReturn("testMethod");
         when(joinPoint.getArgs()).thenReturn(new Object[]{"arg1", "arg2"});
         when(auditLog.logLevel()).thenReturn(LogLevel.DEBUG);
+        Configurator.setLevel(AuditLogAspect.class, org.apache.logging.log4j.Level.DEBUG);
 
-        auditLogAspect.logStart(joinPoint, auditLog);
+        auditLogAspect.audit(joinPoint, auditLog);
 
         List<AuditDto> auditDtos = testAppender.getAuditDtos();
-        assertEquals(1, auditDtos.size());
+        assertEquals(2, auditDtos.size());
 
         AuditDto dto = auditDtos.get(0);
         assertEquals("START", dto.getType());
@@ -112,10 +88,130 @@ class AuditLogAspectTest {
         assertNotNull(dto.getMessageId());
         assertNotNull(dto.getTimestamp());
         assertArrayEquals(new Object[]{"arg1", "arg2"}, dto.getArgs());
+        assertEquals(org.apache.logging.log4j.Level.DEBUG, testAppender.getEvents().get(0).getLevel());
+    }
+
+    @Test
+    void auditTest_defaultConstructor_shouldStayInactiveUntilConfigured() throws Throwable {
+        stubCachedMethod();
+        when(joinPoint.getArgs()).thenReturn(new Object[]{});
+        when(joinPoint.proceed()).thenReturn("result");
+        AuditLogAspect woven = new AuditLogAspect();
+
+        assertEquals("result", woven.audit(joinPoint, auditLog));
+        assertTrue(testAppender.getAuditDtos().isEmpty());
+
+        woven.configure(new AuditLogProperties.Capture(), new AuditLogProperties.Sampling(),
+                new AuditLogProperties.Aggregation(), new TimeOrderedIdGenerator());
+        assertEquals("result", woven.audit(joinPoint, auditLog));
+        assertEquals(List.of("START", "END"), testAppender.getAuditDtos().stream().map(AuditDto::getType).toList());
+    }
+
+    @Test
+    void logStartTest_disabledLevel_shouldSkipEvent() throws Throwable {
+        when(joinPoint.getSignature()).thenReturn(signature);
+        when(signature.getDeclaringTypeName()).thenReturn("com.example.TestClass");
+        when(signature.getName()).thenReturn("testMethod");
+        when(auditLog.logLevel()).thenReturn(LogLevel.DEBUG);
+
+        when(joinPoint.proceed()).thenReturn("result");
+
+        assertEquals("result", auditLogAspect.audit(joinPoint, auditLog));
+
+        assertTrue(testAppender.getAuditDtos().isEmpty());
+        verify(joinPoint, never()).getArgs();
+    }
+
+    @Test
+    void logStartTest_offLevel_shouldSkipEvent() throws Throwable {
+        when(joinPoint.getSignature()).thenReturn(signature);
+        when(signature.getDeclaringTypeName()).thenReturn("com.example.TestClass");
+        when(signature.getName()).thenReturn("testMethod");
+        when(auditLog.logLevel()).thenReturn(LogLevel.OFF);
+
+        auditLogAspect.audit(joinPoint, auditLog);
+
+        assertTrue(testAppender.getAuditDtos().isEmpty());
+    }
+
+    @Test
+    void logStartTest_shouldApplyMethodCaptureLimits() throws Throwable {
+        when(joinPoint.getSignature()).thenReturn(signature);
+        when(signature.getDeclaringTypeName()).thenReturn("com.example.TestClass");
+        when(signature.getName()).thenReturn("testMethod");
+        when(joinPoint.getArgs()).thenReturn(new Object[]{List.of(1, 2, 3, 4), "x".repeat(2_000)});
+        when(auditLog.logLevel()).thenReturn(LogLevel.INFO);
+        when(auditLog.maxElements()).thenReturn(2);
+
+        auditLogAspect.audit(joinPoint, auditLog);
+
+        AuditDto dto = testAppender.getAuditDtos().get(0);
+        assertEquals(List.of(1, 2, "...(+2 more)"), dto.getArgs()[0]);
+        assertEquals("x".repeat(1024) + "...(+976 chars)", dto.getArgs()[1]);
     }
 
     @Test
-    void logEndTest() {
+    void auditTest_captureDisabled_shouldNotReadArgsOrResult() throws Throwable {
+        when(joinPoint.getSignature()).thenReturn(signature);
+        when(signature.getDeclaringTypeName()).thenReturn("com.example.TestClass");
+        when(signature.getName()).thenReturn("testMethod");
+        when(auditLog.logLevel()).thenReturn(LogLevel.INFO);
+        when(auditLog.captureArgs()).thenReturn(false);
+        when(auditLog.captureResult()).thenReturn(false);
+        when(joinPoint.proceed()).thenReturn("result");
+
+        assertEquals("result", auditLogAspect.audit(joinPoint, auditLog));
+
+        List<AuditDto> auditDtos = testAppender.getAuditDtos();
+        assertEquals(2, auditDtos.size());
+        assertNull(auditDtos.get(0).getArgs());
+        assertNull(auditDtos.get(1).getResult());
+        assertNotNull(auditDtos.get(1).getDurationNanos());
+        verify(joinPoint, never()).getArgs();
+    }
+
+    @Test
+    void auditTest_argIndexesAndIncludeFields_shouldProjectCapture() throws Throwable {
+        when(joinPoint.getSignature()).thenReturn(signature);
+        when(signature.getDeclaringTypeName()).thenReturn("com.example.TestClass");
+        when(signature.getName()).thenReturn("testMethod");
+        when(auditLog.logLevel()).thenReturn(LogLevel.INFO);
+        when(auditLog.argIndexes()).thenReturn(new int[]{1});
+        when(auditLog.includeFields()).thenReturn(new String[]{"id"});
+        when(joinPoint.getArgs()).thenReturn(new Object[]{"secret", Map.of("id", 7, "payload", "large")});
+        when(joinPoint.proceed()).thenReturn(List.of(Map.of("id", 1, "payload", "large")));
+
+        auditLogAspect.audit(joinPoint, auditLog);
+
+        List<AuditDto> auditDtos = testAppender.getAuditDtos();
+        assertArrayEquals(new Object[]{"<omitted>", Map.of("id", 7)}, auditDtos.get(0).getArgs());
+        assertEquals(List.of(Map.of("id", 1)), auditDtos.get(1).getResult());
+    }
+
+    @Test
+    void logStartTest_shouldResolveMethodMetadataOnce() throws Throwable {
+        Method method = String.class.getMethod("trim");
+        when(joinPoint.getSignature()).thenReturn(methodSignature);
+        when(methodSignature.getMethod()).thenReturn(method);
+        when(methodSignature.getDeclaringTypeName()).thenReturn("com.example.TestClass");
+        when(methodSignature.getName()).thenReturn("testMethod");
+        when(joinPoint.getArgs()).thenReturn(new Object[]{});
+        when(auditLog.logLevel()).thenReturn(LogLevel.INFO);
+
+        when(joinPoint.proceed()).thenReturn("result");
+
+        auditLogAspect.audit(joinPoint, auditLog);
+        auditLogAspect.audit(joinPoint, auditLog);
+
+        List<AuditDto> auditDtos = testAppender.getAuditDtos();
+        assertEquals("com.example.TestClass.testMethod", auditDtos.get(0).getMethodName());
+        assertSame(auditDtos.get(0).getMethodName(), auditDtos.get(2).getMethodName());
+        verify(methodSignature, times(1)).getDeclaringTypeName();
+        verify(auditLog, times(1)).logLevel();
+    }
+
+    @Test
+    void logEndTest() throws Throwable {
         when(joinPoint.getSignature()).thenReturn(signature);
         when(signature.getDeclaringTypeName()).thenReturn("com.example.TestClass");
         when(signature.getName()).thenReturn("testMethod");
@@ -124,8 +220,9 @@ class AuditLogAspectTest {
 
         Object result = "test result";
 
-        auditLogAspect.logStart(joinPoint, auditLog);
-        auditLogAspect.logEnd(joinPoint, auditLog, result);
+        when(joinPoint.proceed()).thenReturn(result);
+
+        auditLogAspect.audit(joinPoint, auditLog);
 
         List<AuditDto> auditDtos = testAppender.getAuditDtos();
         assertEquals(2, auditDtos.size());
@@ -140,13 +237,16 @@ class AuditLogAspectTest {
         assertEquals("com.example.TestClass.testMethod", endDto.getMethodName());
         assertEquals("INFO", endDto.getLogLevel());
         assertEquals(result, endDto.getResult());
+        assertNull(startDto.getDurationNanos());
+        assertNotNull(endDto.getDurationNanos());
+        assertTrue(endDto.getDurationNanos() >= 0);
         assertEquals(startDto.getId(), endDto.getId());
         assertNotNull(endDto.getMessageId());
         assertNotNull(endDto.getTimestamp());
     }
 
     @Test
-    void logErrorTest() {
+    void logErrorTest() throws Throwable {
         when(joinPoint.getSignature()).thenReturn(signature);
         when(signature.getDeclaringTypeName()).thenReturn("com.example.TestClass");
         when(signature.getName()).thenReturn("testMethod");
@@ -155,8 +255,9 @@ class AuditLogAspectTest {
 
         Exception exception = new RuntimeException("Test error");
 
-        auditLogAspect.logStart(joinPoint, auditLog);
-        auditLogAspect.logError(joinPoint, auditLog, exception);
+        when(joinPoint.proceed()).thenThrow(exception);
+
+        assertSame(exception, assertThrows(RuntimeException.class, () -> auditLogAspect.audit(joinPoint, auditLog)));
 
         List<AuditDto> auditDtos = testAppender.getAuditDtos();
         assertEquals(2, auditDtos.size());
@@ -171,23 +272,142 @@ class AuditLogAspectTest {
         assertEquals("com.example.TestClass.testMethod", errorDto.getMethodName());
         assertEquals("ERROR", errorDto.getLogLevel());
         assertEquals("Test error", errorDto.getError());
+        assertNotNull(errorDto.getDurationNanos());
+        assertEquals(org.apache.logging.log4j.Level.ERROR, testAppender.getEvents().get(1).getLevel());
         assertEquals(startDto.getId(), errorDto.getId());
         assertNotNull(errorDto.getMessageId());
         assertNotNull(errorDto.getTimestamp());
     }
 
     @Test
-    void logStartTest_withEmptyArgs() {
+    void auditTest_nestedCall_shouldRecordParentId() throws Throwable {
+        ProceedingJoinPoint innerJoinPoint = mock(ProceedingJoinPoint.class);
         when(joinPoint.getSignature()).thenReturn(signature);
+        when(innerJoinPoint.getSignature()).thenReturn(signature);
         when(signature.getDeclaringTypeName()).thenReturn("com.example.TestClass");
         when(signature.getName()).thenReturn("testMethod");
-        when(joinPoint.getArgs()).thenReturn(new Object[]{});
         when(auditLog.logLevel()).thenReturn(LogLevel.INFO);
+        when(innerJoinPoint.proceed()).thenReturn("inner");
+        when(joinPoint.proceed()).thenAnswer(invocation -> auditLogAspect.audit(innerJoinPoint, auditLog));
 
-        auditLogAspect.logStart(joinPoint, auditLog);
+        assertEquals("inner", auditLogAspect.audit(joinPoint, auditLog));
+        auditLogAspect.audit(innerJoinPoint, auditLog);
+
+        List<AuditDto> auditDtos = testAppender.getAuditDtos();
+        assertEquals(6, auditDtos.size());
+        AuditDto outerStart = auditDtos.get(0);
+        AuditDto innerStart = auditDtos.get(1);
+        AuditDto innerEnd = auditDtos.get(2);
+        AuditDto outerEnd = auditDtos.get(3);
+        assertNull(outerStart.getParentId());
+        assertEquals(outerStart.getId(), innerStart.getParentId());
+        assertEquals(innerStart.getId(), innerEnd.getId());
+        assertEquals(outerStart.getId(), innerEnd.getParentId());
+        assertEquals(outerStart.getId(), outerEnd.getId());
+        assertNull(outerEnd.getParentId());
+        assertTrue(outerEnd.getDurationNanos() >= innerEnd.getDurationNanos());
+        assertNull(auditDtos.get(4).getParentId());
+    }
+
+    private void stubCachedMethod() throws Exception {
+        when(joinPoint.getSignature()).thenReturn(methodSignature);
+        when(methodSignature.getMethod()).thenReturn(String.class.getMethod("trim"));
+        when(methodSignature.getDeclaringTypeName()).thenReturn("com.example.TestClass");
+        when(methodSignature.getName()).thenReturn("testMethod");
+        when(auditLog.logLevel()).thenReturn(LogLevel.INFO);
+    }
+
+    @Test
+    void auditTest_maxEventsPerSecond_shouldSkipWholeCalls() throws Throwable {
+        stubCachedMethod();
+        when(auditLog.maxEventsPerSecond()).thenReturn(2);
+        when(joinPoint.getArgs()).thenReturn(new Object[]{});
+        when(joinPoint.proceed()).thenReturn("result");
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals("result", auditLogAspect.audit(joinPoint, auditLog));
+        }
+
+        List<AuditDto> auditDtos = testAppender.getAuditDtos();
+        assertEquals(List.of("START", "END", "START", "END"), auditDtos.stream().map(AuditDto::getType).toList());
+        assertEquals(auditDtos.get(2).getId(), auditDtos.get(3).getId());
+        assertEquals(Map.of("com.example.TestClass.testMethod", 3L), auditLogAspect.getSkippedCalls());
+    }
+
+    @Test
+    void auditTest_sameMethodDifferentAnnotations_shouldShareLimitPerAnnotation() throws Throwable {
+        stubCachedMethod();
+        AuditLog otherAuditLog = mock(AuditLog.class);
+        when(otherAuditLog.logLevel()).thenReturn(LogLevel.INFO);
+        when(otherAuditLog.mode()).thenReturn(AuditMode.DEFAULT);
+        when(otherAuditLog.argIndexes()).thenReturn(new int[0]);
+        when(otherAuditLog.includeFields()).thenReturn(new String[0]);
+        when(otherAuditLog.excludeFields()).thenReturn(new String[0]);
+        when(otherAuditLog.maxEventsPerSecond()).thenReturn(1);
+        when(auditLog.maxEventsPerSecond()).thenReturn(1);
+        when(joinPoint.getArgs()).thenReturn(new Object[]{});
+        when(joinPoint.proceed()).thenReturn("result");
+
+        for (int i = 0; i < 3; i++) {
+            auditLogAspect.audit(joinPoint, auditLog);
+            auditLogAspect.audit(joinPoint, otherAuditLog);
+        }
+
+        assertSame(auditLogAspect.descriptor(joinPoint, auditLog), auditLogAspect.descriptor(joinPoint, auditLog));
+        assertNotSame(auditLogAspect.descriptor(joinPoint, auditLog),
+                auditLogAspect.descriptor(joinPoint, otherAuditLog));
+        assertEquals(4, testAppender.getAuditDtos().size());
+        assertEquals(Map.of("com.example.TestClass.testMethod", 4L), auditLogAspect.getSkippedCalls());
+    }
+
+    @Test
+    void auditTest_unsampledCall_shouldStillAuditError() throws Throwable {
+        AuditLogProperties.Rule rule = new AuditLogProperties.Rule();
+        rule.setPattern("com.example.*.test*");
+        rule.setSampleRate(0.0);
+        AuditLogProperties.Sampling sampling = new AuditLogProperties.Sampling();
+        sampling.getRules().add(rule);
+        auditLogAspect = new AuditLogAspect(new AuditLogProperties.Capture(), sampling);
+        stubCachedMethod();
+        when(joinPoint.proceed()).thenReturn("result").thenThrow(new IllegalStateException("boom"));
+
+        auditLogAspect.audit(joinPoint, auditLog);
+        assertThrows(IllegalStateException.class, () -> auditLogAspect.audit(joinPoint, auditLog));
 
         List<AuditDto> auditDtos = testAppender.getAuditDtos();
         assertEquals(1, auditDtos.size());
+        assertEquals("ERROR", auditDtos.get(0).getType());
+        assertEquals("boom", auditDtos.get(0).getError());
+        assertEquals(Map.of("com.example.TestClass.testMethod", 2L), auditLogAspect.getSkippedCalls());
+        verify(joinPoint, never()).getArgs();
+    }
+
+    @Test
+    void auditTest_unsampledCall_withoutErrorBypass_shouldNotAudit() throws Throwable {
+        AuditLogProperties.Sampling sampling = new AuditLogProperties.Sampling();
+        sampling.setSampleRate(0.0);
+        sampling.setAlwaysAuditErrors(false);
+        auditLogAspect = new AuditLogAspect(new AuditLogProperties.Capture(), sampling);
+        stubCachedMethod();
+        when(joinPoint.proceed()).thenThrow(new IllegalStateException("boom"));
+
+        assertThrows(IllegalStateException.class, () -> auditLogAspect.audit(joinPoint, auditLog));
+
+        assertTrue(testAppender.getAuditDtos().isEmpty());
+    }
+
+    @Test
+    void logStartTest_withEmptyArgs() throws Throwable {
+        when(joinPoint.getSignature()).thenReturn(signature);
+        when(signature.getDeclaringTypeName()).thenReturn("com.example.TestClass");
+        when(signature.getName()).thenReturn("testMethod");
+        when(joinPoint.getArgs()).thenReturn(new Object[]{});
+        when(auditLog.logLevel()).thenReturn(LogLevel.INFO);
+
+        auditLogAspect.audit(joinPoint, auditLog);
+
+        List<AuditDto> auditDtos = testAppender.getAuditDtos();
+        assertEquals(2, auditDtos.size());
 
         AuditDto dto = auditDtos.get(0);
         assertEquals("START", dto.getType());
@@ -196,17 +416,17 @@ class AuditLogAspectTest {
     }
 
     @Test
-    void logStartTest_withNullArgs() {
+    void logStartTest_withNullArgs() throws Throwable {
         when(joinPoint.getSignature()).thenReturn(signature);
         when(signature.getDeclaringTypeName()).thenReturn("com.example.TestClass");
         when(signature.getName()).thenReturn("testMethod");
         when(joinPoint.getArgs()).thenReturn(null);
         when(auditLog.logLevel()).thenReturn(LogLevel.INFO);
 
-        auditLogAspect.logStart(joinPoint, auditLog);
+        auditLogAspect.audit(joinPoint, auditLog);
 
         List<AuditDto> auditDtos = testAppender.getAuditDtos();
-        assertEquals(1, auditDtos.size());
+        assertEquals(2, auditDtos.size());
 
         AuditDto dto = auditDtos.get(0);
         assertEquals("START", dto.getType());
@@ -214,15 +434,156 @@ class AuditLogAspectTest {
     }
 
     @Test
-    void testUniqueMessageId() {
+    void auditTest_completableFuture_shouldLogEndOnCompletion() throws Throwable {
+        stubAsyncCall();
+        CompletableFuture<String> future = new CompletableFuture<>();
+        when(joinPoint.proceed()).thenReturn(future);
+
+        assertSame(future, auditLogAspect.audit(joinPoint, auditLog));
+        assertEquals(1, testAppender.getAuditDtos().size());
+
+        Thread.sleep(5);
+        future.complete("async result");
+
+        List<AuditDto> auditDtos = testAppender.getAuditDtos();
+        assertEquals(2, auditDtos.size());
+        AuditDto endDto = auditDtos.get(1);
+        assertEquals("END", endDto.getType());
+        assertEquals("async result", endDto.getResult());
+        assertEquals(auditDtos.get(0).getId(), endDto.getId());
+        assertTrue(endDto.getDurationNanos() >= TimeUnit.MILLISECONDS.toNanos(5));
+    }
+
+    @Test
+    void auditTest_failedFuture_shouldLogErrorCause() throws Throwable {
+        stubAsyncCall();
+        CompletableFuture<String> future = new CompletableFuture<>();
+        when(joinPoint.proceed()).thenReturn(future.thenApply(value -> value));
+
+        auditLogAspect.audit(joinPoint, auditLog);
+        future.completeExceptionally(new IllegalStateException("async error"));
+
+        List<AuditDto> auditDtos = testAppender.getAuditDtos();
+        assertEquals(2, auditDtos.size());
+        assertEquals("ERROR", auditDtos.get(1).getType());
+        assertEquals("async error", auditDtos.get(1).getError());
+    }
+
+    @Test
+    void auditTest_mono_shouldLogEndOnSubscription() throws Throwable {
+        stubAsyncCall();
+        when(joinPoint.proceed()).thenReturn(Mono.just("reactive result"));
+
+        Mono<?> mono = (Mono<?>) auditLogAspect.audit(joinPoint, auditLog);
+        assertEquals(1, testAppender.getAuditDtos().size());
+
+        assertEquals("reactive result", mono.block());
+
+        List<AuditDto> auditDtos = testAppender.getAuditDtos();
+        assertEquals(2, auditDtos.size());
+        assertEquals("END", auditDtos.get(1).getType());
+        assertEquals("reactive result", auditDtos.get(1).getResult());
+        assertNotNull(auditDtos.get(1).getDurationNanos());
+    }
+
+    @Test
+    void auditTest_monoError_shouldLogError() throws Throwable {
+        stubAsyncCall();
+        when(joinPoint.proceed()).thenReturn(Mono.error(new IllegalStateException("reactive error")));
+
+        Mono<?> mono = (Mono<?>) auditLogAspect.audit(joinPoint, auditLog);
+
+        assertThrows(IllegalStateException.class, mono::block);
+        List<AuditDto> auditDtos = testAppender.getAuditDtos();
+        assertEquals(2, auditDtos.size());
+        assertEquals("ERROR", auditDtos.get(1).getType());
+        assertEquals("reactive error", auditDtos.get(1).getError());
+    }
+
+    @Test
+    void auditTest_flux_shouldLogElementCount() throws Throwable {
+        stubAsyncCall();
+        when(joinPoint.proceed()).thenReturn(Flux.just(1, 2, 3));
+
+        Flux<?> flux = (Flux<?>) auditLogAspect.audit(joinPoint, auditLog);
+
+        assertEquals(3, flux.collectList().block().size());
+        List<AuditDto> auditDtos = testAppender.getAuditDtos();
+        assertEquals(2, auditDtos.size());
+        assertEquals("END", auditDtos.get(1).getType());
+        assertEquals(3L, auditDtos.get(1).getResult());
+    }
+
+    private void stubAsyncCall() {
+        when(joinPoint.getSignature()).thenReturn(signature);
+        when(signature.getDeclaringTypeName()).thenReturn("com.example.TestClass");
+        when(signature.getName()).thenReturn("asyncMethod");
+        when(joinPoint.getArgs()).thenReturn(new Object[]{});
+        when(auditLog.logLevel()).thenReturn(LogLevel.INFO);
+    }
+
+    @Test
+    void auditTest_aggregateMode_shouldEmitOneSummaryPerWindow() throws Throwable {
+        stubCachedMethod();
+        when(auditLog.mode()).thenReturn(AuditMode.AGGREGATE);
+        when(joinPoint.proceed()).thenReturn("result", "result", "result").thenThrow(new RuntimeException("boom"));
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals("result", auditLogAspect.audit(joinPoint, auditLog));
+        }
+        assertThrows(RuntimeException.class, () -> auditLogAspect.audit(joinPoint, auditLog));
+        assertTrue(testAppender.getAuditDtos().isEmpty());
+        verify(joinPoint, never()).getArgs();
+
+        auditLogAspect.close();
+
+        List<AuditDto> auditDtos = testAppender.getAuditDtos();
+        assertEquals(1, auditDtos.size());
+        AuditDto summaryDto = auditDtos.get(0);
+        assertEquals("SUMMARY", summaryDto.getType());
+        assertEquals("com.example.TestClass.testMethod", summaryDto.getMethodName());
+        assertEquals("INFO", summaryDto.getLogLevel());
+        assertEquals(4, summaryDto.getSummary().getCalls());
+        assertEquals(1, summaryDto.getSummary().getErrors());
+        assertTrue(summaryDto.getSummary().getP50Nanos() <= summaryDto.getSummary().getP99Nanos());
+        assertTrue(summaryDto.getLog().contains("summary = calls = 4 errors = 1"));
+
+        auditLogAspect.flushAggregates();
+        assertEquals(1, testAppender.getAuditDtos().size());
+    }
+
+    @Test
+    void auditTest_globalAggregateMode_shouldBeOverriddenByAnnotation() throws Throwable {
+        AuditLogProperties.Aggregation aggregation = new AuditLogProperties.Aggregation();
+        aggregation.setMode(AuditMode.AGGREGATE);
+        auditLogAspect = new AuditLogAspect(new AuditLogProperties.Capture(), new AuditLogProperties.Sampling(),
+                aggregation, new TimeOrderedIdGenerator());
         when(joinPoint.getSignature()).thenReturn(signature);
         when(signature.getDeclaringTypeName()).thenReturn("com.example.TestClass");
         when(signature.getName()).thenReturn("testMethod");
         when(joinPoint.getArgs()).thenReturn(new Object[]{});
         when(auditLog.logLevel()).thenReturn(LogLevel.INFO);
+        when(auditLog.mode()).thenReturn(AuditMode.EVENTS);
+        when(joinPoint.proceed()).thenReturn("result");
+
+        auditLogAspect.audit(joinPoint, auditLog);
+        auditLogAspect.close();
+
+        List<AuditDto> auditDtos = testAppender.getAuditDtos();
+        assertEquals(List.of("START", "END"), auditDtos.stream().map(AuditDto::getType).toList());
+    }
+
+    @Test
+    void testUniqueMessageId() throws Throwable {
+        when(joinPoint.getSignature()).thenReturn(signature);
+        when(signature.getDeclaringTypeName()).thenReturn("com.example.TestClass");
+        when(signature.getName()).thenReturn("testMethod");
+        when(joinPoint.getArgs()).thenReturn(new Object[]{});
+        when(auditLog.logLevel()).thenReturn(LogLevel.INFO);
+
+        when(joinPoint.proceed()).thenReturn("result");
 
-        auditLogAspect.logStart(joinPoint, auditLog);
-        auditLogAspect.logEnd(joinPoint, auditLog, "result");
+        auditLogAspect.audit(joinPoint, auditLog);
 
         List<AuditDto> auditDtos = testAppender.getAuditDtos();
         assertEquals(2, auditDtos.size());
@@ -0,0 +1,113 @@
+package org.ex9.auditlib.aspect;
+
+import lombok.extern.log4j.Log4j2;
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.core.config.Configurator;
+import org.aspectj.lang.Aspects;
+import org.ex9.auditlib.annotation.AuditLog;
+import org.ex9.auditlib.property.AuditLogProperties;
+import org.ex9.auditlib.util.TimeOrderedIdGenerator;
+import org.ex9.auditlib.dto.AuditDto;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIf;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+
+import java.util.List;
+
+import static org.ex9.auditlib.aspect.Benchmarks.format;
+import static org.ex9.auditlib.aspect.Benchmarks.measure;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Проверки вплетения AspectJ. Запуск: <code>mvn test -Paspectj-ltw -Dtest=AuditLogWeavingTest</code>,
+ * сравнение с прокси - дополнительно <code>-Daudit.benchmark=true</code>.
+ */
+@Log4j2
+@EnabledIf("isWoven")
+class AuditLogWeavingTest {
+
+    private final TestAppender testAppender = new TestAppender();
+
+    static boolean isWoven() {
+        return Aspects.hasAspect(AuditLogAspect.class);
+    }
+
+    public static class WovenTarget {
+        @AuditLog
+        public int outer(int value) {
+            return inner(value) + 1;
+        }
+
+        @AuditLog
+        public int inner(int value) {
+            return value;
+        }
+    }
+
+    public static class ProxiedTarget {
+        @AuditLog
+        public int inner(int value) {
+            return value;
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        Aspects.aspectOf(AuditLogAspect.class).configure(new AuditLogProperties.Capture(),
+                new AuditLogProperties.Sampling(), new AuditLogProperties.Aggregation(), new TimeOrderedIdGenerator());
+        testAppender.attach();
+    }
+
+    @AfterEach
+    void tearDown() {
+        testAppender.detach();
+        Configurator.setLevel(AuditLogAspect.class, Level.INFO);
+    }
+
+    @Test
+    void selfInvocation_ofPlainObject_shouldBeAudited() {
+        assertEquals(2, new WovenTarget().outer(1));
+
+        List<AuditDto> dtos = testAppender.getAuditDtos();
+        assertEquals(List.of("START", "START", "END", "END"), dtos.stream().map(AuditDto::getType).toList());
+        assertEquals(AuditLogWeavingTest.class.getName() + "$WovenTarget.outer", dtos.get(0).getMethodName());
+        assertEquals(dtos.get(0).getId(), dtos.get(1).getParentId());
+        assertEquals(dtos.get(0).getId(), dtos.get(3).getId());
+    }
+
+    @Test
+    void excludedTarget_shouldOnlyBeAuditedThroughProxy() {
+        AspectJProxyFactory factory = new AspectJProxyFactory(new ProxiedTarget());
+        factory.addAspect(activeAspect());
+
+        new ProxiedTarget().inner(1);
+        assertTrue(testAppender.getAuditDtos().isEmpty());
+
+        factory.<ProxiedTarget>getProxy().inner(1);
+        assertEquals(2, testAppender.getAuditDtos().size());
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "audit.benchmark", matches = "true")
+    void auditedCall_proxyVersusWoven() {
+        Configurator.setLevel(AuditLogAspect.class, Level.OFF);
+        AspectJProxyFactory factory = new AspectJProxyFactory(new ProxiedTarget());
+        factory.addAspect(activeAspect());
+        ProxiedTarget proxy = factory.getProxy();
+        WovenTarget woven = new WovenTarget();
+
+        double proxied = measure(() -> proxy.inner(1));
+        double inlined = measure(() -> woven.inner(1));
+
+        log.info("Audited call with logging disabled: proxy {} ns/op, woven {} ns/op", format(proxied), format(inlined));
+        assertTrue(inlined < proxied, "Woven " + inlined + " ns/op, proxy " + proxied + " ns/op");
+    }
+
+    private static AuditLogAspect activeAspect() {
+        return new AuditLogAspect(new AuditLogProperties.Capture(), new AuditLogProperties.Sampling());
+    }
+
+}
@@ -0,0 +1,44 @@
+package org.ex9.auditlib.aspect;
+
+import java.util.function.IntSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+/**
+ * Замер времени вызова для сравнительных тестов аспекта.
+ */
+final class Benchmarks {
+
+    private static final int WARMUP = 200_000;
+    private static final int ITERATIONS = 1_000_000;
+
+    private Benchmarks() {
+    }
+
+    /**
+     * @param call замеряемый вызов; результат суммируется, чтобы JIT не выбросил вызов
+     * @return среднее время вызова в наносекундах после прогрева
+     */
+    static double measure(IntSupplier call) {
+        int sink = 0;
+        for (int i = 0; i < WARMUP; i++) {
+            sink += call.getAsInt();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            sink += call.getAsInt();
+        }
+        long elapsed = System.nanoTime() - start;
+        assertNotEquals(Integer.MIN_VALUE, sink);
+        return (double) elapsed / ITERATIONS;
+    }
+
+    /**
+     * @param nanos время вызова в наносекундах
+     * @return время с одним знаком после запятой для отчёта
+     */
+    static String format(double nanos) {
+        return String.format("%.1f", nanos);
+    }
+
+}
@@ -0,0 +1,54 @@
+package org.ex9.auditlib.aspect;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencyHistogramTest {
+
+    @Test
+    void indexOf_shouldKeepSmallValuesExactAndBoundRelativeError() {
+        for (long value = 0; value < 32; value++) {
+            assertEquals(value, LatencyHistogram.valueOf(LatencyHistogram.indexOf(value)));
+        }
+        for (long value : new long[]{1_000, 123_456, 5_000_000_000L, Long.MAX_VALUE / 3}) {
+            long bucketValue = LatencyHistogram.valueOf(LatencyHistogram.indexOf(value));
+            assertTrue(Math.abs(bucketValue - value) <= value / 16, value + " -> " + bucketValue);
+        }
+        assertTrue(LatencyHistogram.indexOf(Long.MAX_VALUE) < LatencyHistogram.BUCKETS);
+    }
+
+    @Test
+    void percentile_shouldFollowRecordedDistribution() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i * 1_000L);
+        }
+        long[] buckets = new long[LatencyHistogram.BUCKETS];
+        histogram.drainTo(buckets);
+
+        assertEquals(50_000, LatencyHistogram.percentile(buckets, 100, 0.5), 50_000 / 16.0);
+        assertEquals(99_000, LatencyHistogram.percentile(buckets, 100, 0.99), 99_000 / 16.0);
+        assertEquals(0, LatencyHistogram.percentile(new long[LatencyHistogram.BUCKETS], 0, 0.5));
+    }
+
+    @Test
+    void drainTo_shouldMergeAndReset() {
+        LatencyHistogram first = new LatencyHistogram();
+        LatencyHistogram second = new LatencyHistogram();
+        first.record(10);
+        second.record(10);
+        second.record(20);
+        long[] merged = new long[LatencyHistogram.BUCKETS];
+
+        first.drainTo(merged);
+        second.drainTo(merged);
+
+        assertEquals(2, merged[LatencyHistogram.indexOf(10)]);
+        assertEquals(1, merged[LatencyHistogram.indexOf(20)]);
+        long[] empty = new long[LatencyHistogram.BUCKETS];
+        first.drainTo(empty);
+        assertEquals(0, empty[LatencyHistogram.indexOf(10)]);
+    }
+
+}
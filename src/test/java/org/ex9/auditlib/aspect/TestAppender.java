@@ -0,0 +1,65 @@
+package org.ex9.auditlib.aspect;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.core.LogEvent;
+import org.apache.logging.log4j.core.LoggerContext;
+import org.apache.logging.log4j.core.appender.AbstractAppender;
+import org.ex9.auditlib.dto.AuditDto;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Аппендер тестов аспекта, запоминающий события корневого логгера.
+ */
+class TestAppender extends AbstractAppender {
+
+    private final List<LogEvent> events = new CopyOnWriteArrayList<>();
+
+    TestAppender() {
+        super("TestAppender", null, null, true, null);
+    }
+
+    @Override
+    public void append(LogEvent event) {
+        events.add(event.toImmutable());
+    }
+
+    /**
+     * Запускает аппендер и подключает его к корневому логгеру.
+     */
+    void attach() {
+        start();
+        LoggerContext context = (LoggerContext) LogManager.getContext(false);
+        context.getConfiguration().addAppender(this);
+        context.getRootLogger().addAppender(this);
+        context.updateLoggers();
+    }
+
+    /**
+     * Отключает аппендер от корневого логгера, останавливает его и забывает события.
+     */
+    void detach() {
+        LoggerContext context = (LoggerContext) LogManager.getContext(false);
+        context.getRootLogger().removeAppender(this);
+        context.updateLoggers();
+        stop();
+        events.clear();
+    }
+
+    List<LogEvent> getEvents() {
+        return events;
+    }
+
+    List<AuditDto> getAuditDtos() {
+        return events.stream()
+                .map(event -> {
+                    Object[] params = event.getMessage().getParameters();
+                    return params != null && params.length > 0 && params[0] instanceof AuditDto dto ? dto : null;
+                })
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+}
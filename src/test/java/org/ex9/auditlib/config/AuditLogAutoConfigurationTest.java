@@ -0,0 +1,46 @@
+package org.ex9.auditlib.config;
+
+import org.ex9.auditlib.util.AuditIdGenerator;
+import org.ex9.auditlib.util.TimeOrderedIdGenerator;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.util.AlternativeJdkIdGenerator;
+import org.springframework.util.IdGenerator;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AuditLogAutoConfigurationTest {
+
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            .withConfiguration(AutoConfigurations.of(AuditLogAutoConfiguration.class))
+            .withPropertyValues("audit.logging.enabled=true");
+
+    @Test
+    void auditIdGeneratorTest_applicationIdGenerator_shouldNotBeReplacedOrUsed() {
+        IdGenerator applicationIdGenerator = new AlternativeJdkIdGenerator();
+        contextRunner
+                .withBean("applicationIdGenerator", IdGenerator.class, () -> applicationIdGenerator)
+                .run(context -> {
+                    assertThat(context).hasNotFailed();
+                    assertThat(context).hasSingleBean(AuditIdGenerator.class);
+                    assertThat(context.getBean(AuditIdGenerator.class)).isInstanceOf(TimeOrderedIdGenerator.class);
+                    assertThat(context.getBean("applicationIdGenerator")).isSameAs(applicationIdGenerator);
+                });
+    }
+
+    @Test
+    void auditIdGeneratorTest_customAuditIdGenerator_shouldReplaceDefault() {
+        AuditIdGenerator custom = () -> new UUID(0, 1);
+        contextRunner
+                .withBean(AuditIdGenerator.class, () -> custom)
+                .run(context -> {
+                    assertThat(context).hasNotFailed();
+                    assertThat(context).hasSingleBean(AuditIdGenerator.class);
+                    assertThat(context.getBean(AuditIdGenerator.class)).isSameAs(custom);
+                });
+    }
+
+}
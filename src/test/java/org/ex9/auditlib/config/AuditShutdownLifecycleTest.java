@@ -0,0 +1,126 @@
+package org.ex9.auditlib.config;
+
+import org.apache.logging.log4j.core.Appender;
+import org.ex9.auditlib.appender.KafkaAppender;
+import org.ex9.auditlib.aspect.AuditLogAspect;
+import org.ex9.auditlib.property.AuditLogProperties;
+import org.ex9.auditlib.service.KafkaPublishService;
+import org.ex9.auditlib.service.KafkaSpillLog;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AuditShutdownLifecycleTest {
+
+    @Mock
+    private LogConfiguration logConfiguration;
+
+    @Mock
+    private KafkaAppender kafkaAppender;
+
+    @Mock
+    private Appender fileAppender;
+
+    @Mock
+    private KafkaPublishService kafkaPublishService;
+
+    @Mock
+    private KafkaSpillLog spillLog;
+
+    private final AuditLogProperties properties = new AuditLogProperties();
+    private final StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+
+    @BeforeEach
+    void setUp() {
+        properties.setShutdownTimeout(Duration.ofSeconds(5));
+        beanFactory.addBean("logConfiguration", logConfiguration);
+        beanFactory.addBean("kafkaPublishService", kafkaPublishService);
+        when(logConfiguration.detachAppenders()).thenReturn(List.of(kafkaAppender, fileAppender));
+    }
+
+    private AuditShutdownLifecycle createLifecycle() {
+        AuditShutdownLifecycle lifecycle = new AuditShutdownLifecycle(properties,
+                beanFactory.getBeanProvider(LogConfiguration.class),
+                beanFactory.getBeanProvider(KafkaPublishService.class),
+                beanFactory.getBeanProvider(KafkaSpillLog.class),
+                beanFactory.getBeanProvider(AuditLogAspect.class));
+        lifecycle.start();
+        return lifecycle;
+    }
+
+    @Test
+    void stop_shouldDrainSinksInOrderAndReportCounts() {
+        when(kafkaAppender.getPendingEvents()).thenReturn(7);
+        when(kafkaPublishService.getPendingEvents()).thenReturn(3);
+        when(kafkaAppender.drain(any())).thenReturn(0);
+        when(kafkaPublishService.drain(any())).thenReturn(2);
+        AuditShutdownLifecycle lifecycle = createLifecycle();
+
+        lifecycle.stop();
+
+        InOrder order = inOrder(logConfiguration, kafkaAppender, fileAppender, kafkaPublishService);
+        order.verify(logConfiguration).detachAppenders();
+        order.verify(kafkaAppender).drain(any());
+        order.verify(kafkaAppender).stop(anyLong(), eq(TimeUnit.MILLISECONDS));
+        order.verify(fileAppender).stop();
+        order.verify(kafkaPublishService).drain(any());
+        assertEquals(8, lifecycle.getFlushedEvents());
+        assertEquals(2, lifecycle.getAbandonedEvents());
+        assertFalse(lifecycle.isRunning());
+    }
+
+    @Test
+    void stop_shouldCountSpilledEventsSeparately() {
+        beanFactory.addBean("kafkaSpillLog", spillLog);
+        when(kafkaPublishService.getPendingEvents()).thenReturn(10);
+        when(kafkaPublishService.drain(any())).thenReturn(0);
+        when(spillLog.getPendingRecords()).thenReturn(1L, 5L);
+        AuditShutdownLifecycle lifecycle = createLifecycle();
+
+        lifecycle.stop();
+
+        assertEquals(6, lifecycle.getFlushedEvents());
+        assertEquals(4, lifecycle.getSpilledEvents());
+        assertEquals(0, lifecycle.getAbandonedEvents());
+    }
+
+    @Test
+    void stop_shouldFlushAggregatesBeforeDetachingAppenders() {
+        AuditLogAspect aspect = mock(AuditLogAspect.class);
+        beanFactory.addBean("auditLogAspect", aspect);
+        AuditShutdownLifecycle lifecycle = createLifecycle();
+
+        lifecycle.stop();
+
+        InOrder order = inOrder(aspect, logConfiguration);
+        order.verify(aspect).close();
+        order.verify(logConfiguration).detachAppenders();
+    }
+
+    @Test
+    void stop_shouldRunOnce() {
+        AuditShutdownLifecycle lifecycle = createLifecycle();
+
+        lifecycle.stop();
+        lifecycle.stop();
+
+        verify(logConfiguration, times(1)).detachAppenders();
+        verify(kafkaPublishService, times(1)).drain(any());
+    }
+
+}
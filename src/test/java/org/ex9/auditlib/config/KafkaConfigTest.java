@@ -0,0 +1,154 @@
+package org.ex9.auditlib.config;
+
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.record.CompressionType;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.ex9.auditlib.property.AuditKafkaProperties;
+import org.ex9.auditlib.property.AuditLogProperties;
+import org.ex9.auditlib.service.InFlightBudget;
+import org.ex9.auditlib.service.KafkaBatchPublisher;
+import org.ex9.auditlib.service.KafkaProducerPool;
+import org.ex9.auditlib.service.KafkaRoute;
+import org.ex9.auditlib.service.KafkaRouter;
+import org.ex9.auditlib.service.KafkaSpillLog;
+import org.ex9.auditlib.util.DeliveryGuarantee;
+import org.ex9.auditlib.util.EventKind;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
+import org.springframework.boot.ssl.SslBundles;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KafkaConfigTest {
+
+    private final AuditKafkaProperties auditKafkaProperties = new AuditKafkaProperties();
+
+    private KafkaConfig createConfig(KafkaProperties kafkaProperties) {
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+        if (kafkaProperties != null) {
+            beanFactory.addBean("kafkaProperties", kafkaProperties);
+        }
+        ObjectProvider<KafkaProperties> kafkaPropertiesProvider = beanFactory.getBeanProvider(KafkaProperties.class);
+        ObjectProvider<SslBundles> sslBundlesProvider = beanFactory.getBeanProvider(SslBundles.class);
+        KafkaConfig config = new KafkaConfig(new AuditLogProperties(), auditKafkaProperties,
+                kafkaPropertiesProvider, sslBundlesProvider);
+        ReflectionTestUtils.setField(config, "bootstrapServer", "");
+        ReflectionTestUtils.setField(config, "transactionalIdPrefix", "audit-lib-tx-");
+        return config;
+    }
+
+    @Test
+    void producerFactory_shouldApplyAuditTuningOverSpringProperties() {
+        KafkaProperties kafkaProperties = new KafkaProperties();
+        kafkaProperties.setBootstrapServers(List.of("broker:9092"));
+        kafkaProperties.getProducer().setBatchSize(DataSize.ofKilobytes(16));
+        kafkaProperties.getProducer().setCompressionType("gzip");
+        kafkaProperties.getProducer().getProperties().put("linger.ms", "5");
+
+        AuditKafkaProperties.Producer producer = auditKafkaProperties.getProducer();
+        producer.setLinger(Duration.ofMillis(20));
+        producer.setBatchSize(DataSize.ofKilobytes(256));
+        producer.setCompressionType(CompressionType.ZSTD);
+        producer.setBufferMemory(DataSize.ofMegabytes(64));
+
+        Map<String, Object> config = createConfig(kafkaProperties).producerFactory().getConfigurationProperties();
+
+        assertEquals(List.of("broker:9092"), config.get(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG));
+        assertEquals(20L, config.get(ProducerConfig.LINGER_MS_CONFIG));
+        assertEquals(262_144, config.get(ProducerConfig.BATCH_SIZE_CONFIG));
+        assertEquals("zstd", config.get(ProducerConfig.COMPRESSION_TYPE_CONFIG));
+        assertEquals(67_108_864L, config.get(ProducerConfig.BUFFER_MEMORY_CONFIG));
+    }
+
+    @Test
+    void producerFactory_shouldKeepDeliverySettingsAndSerializers() {
+        KafkaProperties kafkaProperties = new KafkaProperties();
+        kafkaProperties.getProducer().setAcks("0");
+        auditKafkaProperties.getProducer().getProperties().put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, "false");
+        auditKafkaProperties.getProducer().getProperties().put(ProducerConfig.MAX_REQUEST_SIZE_CONFIG, "2097152");
+
+        Map<String, Object> config = createConfig(kafkaProperties).producerFactory().getConfigurationProperties();
+
+        assertEquals("all", config.get(ProducerConfig.ACKS_CONFIG));
+        assertEquals(true, config.get(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG));
+        assertEquals(ByteArraySerializer.class, config.get(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG));
+        assertEquals("2097152", config.get(ProducerConfig.MAX_REQUEST_SIZE_CONFIG));
+    }
+
+    @Test
+    void producerFactory_withoutSpringKafkaProperties_shouldUseDefaults() {
+        Map<String, Object> config = createConfig(null).producerFactory().getConfigurationProperties();
+
+        assertFalse(config.containsKey(ProducerConfig.LINGER_MS_CONFIG));
+        assertFalse(config.containsKey(ProducerConfig.COMPRESSION_TYPE_CONFIG));
+        assertEquals(StringSerializer.class, config.get(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG));
+    }
+
+    @Test
+    void kafkaRouter_shouldCreateDedicatedProducerForRouteOverrides() throws Exception {
+        auditKafkaProperties.getProducer().setLinger(Duration.ofMillis(20));
+        AuditKafkaProperties.Route httpRoute = new AuditKafkaProperties.Route();
+        httpRoute.setKinds(List.of(EventKind.HTTP_INCOMING));
+        httpRoute.setTopic("audit-http");
+        httpRoute.setDelivery(DeliveryGuarantee.FIRE_AND_FORGET);
+        httpRoute.setProducer(new AuditKafkaProperties.Producer());
+        httpRoute.getProducer().setCompressionType(CompressionType.ZSTD);
+        AuditKafkaProperties.Route errorRoute = new AuditKafkaProperties.Route();
+        errorRoute.setKinds(List.of(EventKind.METHOD_ERROR));
+        errorRoute.setProducer(new AuditKafkaProperties.Producer());
+        auditKafkaProperties.setRoutes(List.of(httpRoute, errorRoute));
+
+        KafkaConfig config = createConfig(null);
+        KafkaRouter router = config.kafkaRouter(config.kafkaTemplateRegistry(config.kafkaTemplate()),
+                new StaticListableBeanFactory().getBeanProvider(KafkaSpillLog.class),
+                new StaticListableBeanFactory().getBeanProvider(InFlightBudget.class));
+
+        KafkaRoute http = router.getRoutes().get(0);
+        Map<String, Object> httpConfig = http.getTemplate().getProducerFactory().getConfigurationProperties();
+        assertEquals("audit-http", http.getTopic());
+        assertEquals("zstd", httpConfig.get(ProducerConfig.COMPRESSION_TYPE_CONFIG));
+        assertEquals(20L, httpConfig.get(ProducerConfig.LINGER_MS_CONFIG));
+        assertEquals(false, httpConfig.get(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG));
+
+        KafkaRoute error = router.getRoutes().get(1);
+        assertEquals("audit-log", error.getTopic());
+        assertEquals(DeliveryGuarantee.EXACTLY_ONCE, error.getDelivery());
+        assertEquals("audit-lib-tx-route-1-",
+                ((DefaultKafkaProducerFactory<String, byte[]>) error.getTemplate().getProducerFactory()).getTransactionIdPrefix());
+        router.destroy();
+    }
+
+    @Test
+    void kafkaProducerPool_shouldGiveEachShardItsOwnTransactionalPrefix() throws Exception {
+        auditKafkaProperties.setProducerPoolSize(3);
+        KafkaConfig config = createConfig(null);
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+
+        KafkaProducerPool pool = config.kafkaProducerPool(config.kafkaTemplate(),
+                beanFactory.getBeanProvider(KafkaBatchPublisher.class),
+                beanFactory.getBeanProvider(KafkaSpillLog.class),
+                beanFactory.getBeanProvider(InFlightBudget.class));
+
+        assertEquals(3, pool.getSize());
+        Set<String> prefixes = new HashSet<>();
+        for (int i = 0; i < 200 && prefixes.size() < 3; i++) {
+            prefixes.add(((DefaultKafkaProducerFactory<String, byte[]>) pool.template("key-" + i).getProducerFactory())
+                    .getTransactionIdPrefix());
+        }
+        assertEquals(Set.of("audit-lib-tx-", "audit-lib-tx-1-", "audit-lib-tx-2-"), prefixes);
+        pool.destroy();
+    }
+
+}
@@ -2,6 +2,7 @@ package org.ex9.auditlib.filter;
 
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
+import org.ex9.auditlib.util.CorrelationId;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.junit.jupiter.MockitoExtension;
@@ -10,6 +11,7 @@ import org.springframework.mock.web.MockHttpServletRequest;
 import org.springframework.mock.web.MockHttpServletResponse;
 
 import java.io.IOException;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -106,4 +108,29 @@ class HttpLoggingFilterTest {
         }
     }
 
-}
\ No newline at end of file
+    @Test
+    void doFilterInternalTest_shouldExposeCorrelationIdDuringRequest() throws ServletException, IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/test");
+        request.addHeader(CorrelationId.HEADER, "request-1");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        AtomicReference<String> seen = new AtomicReference<>();
+
+        httpLoggingFilter.doFilterInternal(request, response, (req, res) -> seen.set(CorrelationId.get()));
+
+        assertEquals("request-1", seen.get());
+        assertNull(CorrelationId.get());
+    }
+
+    @Test
+    void doFilterInternalTest_withoutCorrelationHeader_shouldGenerateId() throws ServletException, IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/test");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        AtomicReference<String> seen = new AtomicReference<>();
+
+        httpLoggingFilter.doFilterInternal(request, response, (req, res) -> seen.set(CorrelationId.get()));
+
+        assertNotNull(seen.get());
+        assertNull(CorrelationId.get());
+    }
+
+}
@@ -42,10 +42,10 @@ public class KafkaTest {
     private EmbeddedKafkaBroker embeddedKafka;
 
     @Autowired
-    private KafkaTemplate<String, String> kafkaTemplate;
+    private KafkaTemplate<String, byte[]> kafkaTemplate;
 
     @Mock
-    private KafkaTemplate<String, String> mockKafkaTemplate;
+    private KafkaTemplate<String, byte[]> mockKafkaTemplate;
 
     @Mock
     private ObjectMapper mockObjectMapper;
@@ -112,7 +112,7 @@ public class KafkaTest {
     @Test
     @DisplayName("Проверка обработки ошибок сериализации для AuditDto")
     void testSend_throwSerializationErrorHandling_auditDto() throws Exception {
-        when(mockObjectMapper.writeValueAsString(any(AuditDto.class)))
+        when(mockObjectMapper.writeValueAsBytes(any(AuditDto.class)))
                 .thenThrow(new JsonProcessingException("Serialization error") {});
 
         AuditDto dto = AuditDto.builder()
@@ -128,7 +128,7 @@ public class KafkaTest {
     @Test
     @DisplayName("Проверка обработки ошибок сериализации для HttpLogDto")
     void testSend_throwSerializationErrorHandling_httpLogDto() throws Exception {
-        when(mockObjectMapper.writeValueAsString(any(HttpLogDto.class)))
+        when(mockObjectMapper.writeValueAsBytes(any(HttpLogDto.class)))
                 .thenThrow(new JsonProcessingException("Serialization error") {});
 
         HttpLogDto httpLogDto = HttpLogDto.builder()
@@ -144,8 +144,8 @@ public class KafkaTest {
     @Test
     @DisplayName("Проверка транзакционности отправки AuditDto")
     void sendTest_transactionalSend_auditDto() throws Exception {
-        when(mockObjectMapper.writeValueAsString(any(AuditDto.class)))
-                .thenReturn("{\"id\":\"test\",\"type\":\"START\"}");
+        when(mockObjectMapper.writeValueAsBytes(any(AuditDto.class)))
+                .thenReturn("{\"id\":\"test\",\"type\":\"START\"}".getBytes());
 
         AuditDto dto = AuditDto.builder()
                 .id("test-id")
@@ -156,14 +156,14 @@ public class KafkaTest {
         kafkaPublishServiceWithMocks.send(dto);
 
         verify(mockKafkaTemplate, times(1)).executeInTransaction(any());
-        verify(mockObjectMapper, times(1)).writeValueAsString(dto);
+        verify(mockObjectMapper, times(1)).writeValueAsBytes(dto);
     }
 
     @Test
     @DisplayName("Проверка транзакционности отправки HttpLogDto")
     void sendTest_transactionalSend_httpLogDto() throws Exception {
-        when(mockObjectMapper.writeValueAsString(any(HttpLogDto.class)))
-                .thenReturn("{\"url\":\"test\",\"method\":\"GET\"}");
+        when(mockObjectMapper.writeValueAsBytes(any(HttpLogDto.class)))
+                .thenReturn("{\"url\":\"test\",\"method\":\"GET\"}".getBytes());
 
         HttpLogDto httpLogDto = HttpLogDto.builder()
                 .url("https://test.com")
@@ -174,7 +174,7 @@ public class KafkaTest {
         kafkaPublishServiceWithMocks.send(httpLogDto);
 
         verify(mockKafkaTemplate, times(1)).executeInTransaction(any());
-        verify(mockObjectMapper, times(1)).writeValueAsString(httpLogDto);
+        verify(mockObjectMapper, times(1)).writeValueAsBytes(httpLogDto);
     }
 
     @Test
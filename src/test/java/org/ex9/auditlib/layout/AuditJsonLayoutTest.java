@@ -0,0 +1,169 @@
+package org.ex9.auditlib.layout;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.core.LogEvent;
+import org.apache.logging.log4j.core.impl.Log4jLogEvent;
+import org.apache.logging.log4j.core.layout.ByteBufferDestination;
+import org.apache.logging.log4j.message.ObjectMessage;
+import org.apache.logging.log4j.message.SimpleMessage;
+import org.ex9.auditlib.dto.AuditDto;
+import org.ex9.auditlib.dto.HttpLogDto;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AuditJsonLayoutTest {
+
+    private final AuditJsonLayout layout = AuditJsonLayout.createLayout();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private static LogEvent event(Object dto) {
+        return Log4jLogEvent.newBuilder()
+                .setLevel(Level.INFO)
+                .setMessage(new ObjectMessage(dto))
+                .build();
+    }
+
+    private static AuditDto auditDto() {
+        return AuditDto.builder()
+                .messageId("message-1")
+                .id("event-1")
+                .correlationId("correlation-1")
+                .type("START")
+                .methodName("com.example.Service.call")
+                .args(new Object[]{"first", 2})
+                .logLevel("INFO")
+                .timestamp("2026-01-01T00:00:00")
+                .build();
+    }
+
+    @Test
+    void encode_shouldWriteSameJsonAsToSerializable() throws Exception {
+        CollectingDestination destination = new CollectingDestination();
+        LogEvent event = event(auditDto());
+
+        layout.encode(event, destination);
+        layout.encode(event, destination);
+
+        String expected = layout.toSerializable(event);
+        assertEquals(expected + expected, destination.text());
+        JsonNode json = objectMapper.readTree(expected);
+        assertEquals("event-1", json.get("id").asText());
+        assertEquals("correlation-1", json.get("correlationId").asText());
+        assertFalse(json.has("log"));
+    }
+
+    @Test
+    void encode_shouldKeepEventsOfDifferentTypesApart() throws Exception {
+        CollectingDestination destination = new CollectingDestination();
+        HttpLogDto httpLogDto = HttpLogDto.builder().method("GET").url("/test").statusCode(200).build();
+
+        layout.encode(event(httpLogDto), destination);
+        String http = destination.text();
+        destination.clear();
+        layout.encode(event(auditDto()), destination);
+
+        assertEquals("/test", objectMapper.readTree(http).get("url").asText());
+        assertEquals("event-1", objectMapper.readTree(destination.text()).get("id").asText());
+    }
+
+    @Test
+    void encode_plainMessage_shouldWriteFormattedMessage() {
+        CollectingDestination destination = new CollectingDestination();
+
+        layout.encode(Log4jLogEvent.newBuilder().setMessage(new SimpleMessage("plain")).build(), destination);
+
+        assertEquals("plain", destination.text());
+    }
+
+    @Test
+    void encode_steadyState_shouldNotAllocatePerEvent() {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        DiscardingDestination destination = new DiscardingDestination();
+        LogEvent event = event(auditDto());
+        for (int i = 0; i < 20_000; i++) {
+            layout.encode(event, destination);
+        }
+
+        int events = 20_000;
+        long before = threads.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < events; i++) {
+            layout.encode(event, destination);
+        }
+        long bytesPerEvent = (threads.getCurrentThreadAllocatedBytes() - before) / events;
+
+        assertTrue(destination.written > 0);
+        assertTrue(bytesPerEvent < 256, "Allocated " + bytesPerEvent + " bytes per event");
+    }
+
+    private static class CollectingDestination implements ByteBufferDestination {
+
+        private final ByteBuffer buffer = ByteBuffer.allocate(8192);
+
+        String text() {
+            return new String(Arrays.copyOf(buffer.array(), buffer.position()), StandardCharsets.UTF_8);
+        }
+
+        void clear() {
+            buffer.clear();
+        }
+
+        @Override
+        public ByteBuffer getByteBuffer() {
+            return buffer;
+        }
+
+        @Override
+        public ByteBuffer drain(ByteBuffer buf) {
+            throw new IllegalStateException("Test buffer overflow");
+        }
+
+        @Override
+        public void writeBytes(ByteBuffer data) {
+            buffer.put(data);
+        }
+
+        @Override
+        public void writeBytes(byte[] data, int offset, int length) {
+            buffer.put(data, offset, length);
+        }
+
+    }
+
+    private static class DiscardingDestination implements ByteBufferDestination {
+
+        private final ByteBuffer buffer = ByteBuffer.allocate(8192);
+        private long written;
+
+        @Override
+        public ByteBuffer getByteBuffer() {
+            return buffer;
+        }
+
+        @Override
+        public ByteBuffer drain(ByteBuffer buf) {
+            buf.clear();
+            return buf;
+        }
+
+        @Override
+        public void writeBytes(ByteBuffer data) {
+            written += data.remaining();
+            data.position(data.limit());
+        }
+
+        @Override
+        public void writeBytes(byte[] data, int offset, int length) {
+            written += length;
+        }
+
+    }
+
+}
@@ -0,0 +1,181 @@
+package org.ex9.auditlib.layout;
+
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.core.LogEvent;
+import org.apache.logging.log4j.core.impl.Log4jLogEvent;
+import org.apache.logging.log4j.core.layout.ByteBufferDestination;
+import org.apache.logging.log4j.message.ObjectMessage;
+import org.apache.logging.log4j.message.SimpleMessage;
+import org.ex9.auditlib.dto.AuditDto;
+import org.ex9.auditlib.dto.HttpLogDto;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AuditStringLayoutTest {
+
+    private final AuditStringLayout layout = AuditStringLayout.createLayout();
+
+    private static LogEvent event(Object dto) {
+        return Log4jLogEvent.newBuilder()
+                .setLevel(Level.INFO)
+                .setMessage(new ObjectMessage(dto))
+                .build();
+    }
+
+    private static AuditDto.AuditDtoBuilder auditDto(String type) {
+        return AuditDto.builder()
+                .id("event-1")
+                .type(type)
+                .methodName("com.example.Service.call")
+                .logLevel("INFO")
+                .timestamp("2026-01-01T00:00:00");
+    }
+
+    private String encode(Object dto) {
+        ByteBuffer buffer = ByteBuffer.allocate(8192);
+        layout.encode(event(dto), new ByteBufferDestination() {
+            @Override
+            public ByteBuffer getByteBuffer() {
+                return buffer;
+            }
+
+            @Override
+            public ByteBuffer drain(ByteBuffer buf) {
+                throw new IllegalStateException("Test buffer overflow");
+            }
+
+            @Override
+            public void writeBytes(ByteBuffer data) {
+                buffer.put(data);
+            }
+
+            @Override
+            public void writeBytes(byte[] data, int offset, int length) {
+                buffer.put(data, offset, length);
+            }
+        });
+        return new String(Arrays.copyOf(buffer.array(), buffer.position()), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void encode_auditDto_shouldRenderLogLine() {
+        assertEquals("\n 2026-01-01T00:00:00 INFO START event-1 args = [first, 2] com.example.Service.call",
+                encode(auditDto("START").args(new Object[]{"first", 2}).build()));
+        assertEquals("\n 2026-01-01T00:00:00 INFO END event-1 result = 42 com.example.Service.call",
+                encode(auditDto("END").result(42).build()));
+        assertEquals("\n 2026-01-01T00:00:00 INFO ERROR event-1 error = boom com.example.Service.call",
+                encode(auditDto("ERROR").error("boom").build()));
+        assertEquals("\n 2026-01-01T00:00:00 INFO END event-1 result = null com.example.Service.call",
+                encode(auditDto("END").build()));
+    }
+
+    @Test
+    void encode_httpLogDto_shouldRenderLogLine() {
+        HttpLogDto dto = HttpLogDto.builder()
+                .direction("Incoming")
+                .method("POST")
+                .statusCode(201)
+                .url("/orders")
+                .requestBody("{\"id\":1}")
+                .responseBody("")
+                .build();
+
+        assertEquals("Incoming POST 201 /orders RequestBody = { {\"id\":1} } ResponseBody = {  }", encode(dto));
+        assertEquals(dto.getLog(), encode(dto));
+    }
+
+    @Test
+    void encode_sharedLayouts_shouldEncodeEventOnce() {
+        AuditStringLayout console = AuditStringLayout.createLayout(true);
+        AuditStringLayout file = AuditStringLayout.createLayout(true);
+        AuditDto dto = auditDto("END").result(42).build();
+        List<byte[]> written = new ArrayList<>();
+        ByteBufferDestination destination = new ByteBufferDestination() {
+            @Override
+            public ByteBuffer getByteBuffer() {
+                return ByteBuffer.allocate(0);
+            }
+
+            @Override
+            public ByteBuffer drain(ByteBuffer buf) {
+                return buf;
+            }
+
+            @Override
+            public void writeBytes(ByteBuffer data) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public void writeBytes(byte[] data, int offset, int length) {
+                written.add(data);
+            }
+        };
+
+        console.encode(event(dto), destination);
+        file.encode(event(dto), destination);
+
+        assertEquals(2, written.size());
+        assertSame(written.get(0), written.get(1));
+        assertEquals(dto.getLog(), new String(written.get(0), StandardCharsets.UTF_8));
+        assertEquals(encode(dto), new String(written.get(1), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void encode_plainMessage_shouldWriteFormattedMessage() {
+        assertEquals("plain", layout.toSerializable(
+                Log4jLogEvent.newBuilder().setMessage(new SimpleMessage("plain")).build()));
+        assertEquals("plain", encode("plain"));
+    }
+
+    @Test
+    void encode_steadyState_shouldNotAllocatePerEvent() {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        ByteBuffer buffer = ByteBuffer.allocate(8192);
+        ByteBufferDestination destination = new ByteBufferDestination() {
+            @Override
+            public ByteBuffer getByteBuffer() {
+                return buffer;
+            }
+
+            @Override
+            public ByteBuffer drain(ByteBuffer buf) {
+                buf.clear();
+                return buf;
+            }
+
+            @Override
+            public void writeBytes(ByteBuffer data) {
+                data.position(data.limit());
+            }
+
+            @Override
+            public void writeBytes(byte[] data, int offset, int length) {
+            }
+        };
+        LogEvent event = event(auditDto("START").args(new Object[]{"first", 2}).build());
+        for (int i = 0; i < 20_000; i++) {
+            layout.encode(event, destination);
+            buffer.clear();
+        }
+
+        int events = 20_000;
+        long before = threads.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < events; i++) {
+            layout.encode(event, destination);
+            buffer.clear();
+        }
+        long bytesPerEvent = (threads.getCurrentThreadAllocatedBytes() - before) / events;
+
+        assertTrue(bytesPerEvent < 16, "Allocated " + bytesPerEvent + " bytes per event");
+    }
+
+}
@@ -0,0 +1,92 @@
+package org.ex9.auditlib.serializer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.kafka.common.errors.SerializationException;
+import org.ex9.auditlib.dto.AuditDto;
+import org.ex9.auditlib.dto.HttpLogDto;
+import org.ex9.auditlib.dto.LogDto;
+import org.ex9.auditlib.util.WireFormat;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AuditEventCodecTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final AuditEventDeserializer deserializer = new AuditEventDeserializer();
+
+    private static AuditDto auditDto() {
+        return AuditDto.builder()
+                .messageId("message-1")
+                .id("event-1")
+                .type("START")
+                .methodName("TestClass.testMethod")
+                .args(new Object[]{"text", 42, true})
+                .logLevel("INFO")
+                .timestamp("2025-01-01T10:00:00")
+                .build();
+    }
+
+    private static HttpLogDto httpLogDto() {
+        return HttpLogDto.builder()
+                .messageId("message-2")
+                .direction("Incoming")
+                .method("POST")
+                .statusCode(201)
+                .url("/orders")
+                .requestBody("{\"item\":\"book\"}")
+                .responseBody("{\"id\":1}")
+                .timestamp("2025-01-01T10:00:00")
+                .build();
+    }
+
+    @ParameterizedTest
+    @EnumSource(WireFormat.class)
+    void roundTrip_shouldMatchJsonForm(WireFormat format) throws Exception {
+        AuditEventCodec codec = new AuditEventCodec(objectMapper, format);
+
+        for (LogDto dto : new LogDto[]{auditDto(), httpLogDto()}) {
+            LogDto decoded = deserializer.deserialize("audit-log", codec.encode(dto));
+
+            assertEquals(dto, decoded);
+            assertEquals(objectMapper.writeValueAsString(dto), objectMapper.writeValueAsString(decoded));
+        }
+    }
+
+    @Test
+    void encode_json_shouldKeepLegacyForm() throws Exception {
+        AuditEventCodec codec = new AuditEventCodec(objectMapper, WireFormat.JSON);
+        AuditDto dto = auditDto();
+
+        byte[] encoded = codec.encode(dto);
+
+        assertEquals(objectMapper.writeValueAsString(dto), new String(encoded, StandardCharsets.UTF_8));
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = WireFormat.class, names = {"CBOR", "SMILE"})
+    void encode_binary_shouldWriteHeaderAndBeSmallerThanJson(WireFormat format) throws Exception {
+        AuditEventCodec codec = new AuditEventCodec(objectMapper, format);
+        HttpLogDto dto = httpLogDto();
+
+        byte[] encoded = codec.encode(dto);
+
+        assertEquals(AuditEventCodec.MAGIC, encoded[0]);
+        assertEquals(AuditEventCodec.VERSION, encoded[1]);
+        assertEquals(format.getId(), encoded[2]);
+        assertTrue(encoded.length < objectMapper.writeValueAsBytes(dto).length);
+    }
+
+    @Test
+    void deserialize_unsupportedVersion_shouldFail() throws Exception {
+        byte[] encoded = new AuditEventCodec(objectMapper, WireFormat.CBOR).encode(auditDto());
+        encoded[1] = (byte) (AuditEventCodec.VERSION + 1);
+
+        assertThrows(SerializationException.class, () -> deserializer.deserialize("audit-log", encoded));
+    }
+
+}
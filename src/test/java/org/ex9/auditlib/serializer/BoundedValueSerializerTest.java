@@ -0,0 +1,123 @@
+package org.ex9.auditlib.serializer;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BoundedValueSerializerTest {
+
+    private static final BoundedValueSerializer.Limits LIMITS = new BoundedValueSerializer.Limits(3, 5, 10, 4096);
+
+    private final BoundedValueSerializer serializer = new BoundedValueSerializer();
+
+    public record Customer(String name, Address address, @JsonIgnore String password) {
+    }
+
+    public record Address(String city, Street street) {
+    }
+
+    public record Street(String name, int number) {
+    }
+
+    public enum Status {
+        ACTIVE
+    }
+
+    @Test
+    void capture_scalars_shouldBeKeptAsIs() {
+        Object[] captured = serializer.captureArgs(new Object[]{"text", 42, true, null, Status.ACTIVE, new BigDecimal("1.50")}, LIMITS);
+
+        assertArrayEquals(new Object[]{"text", 42, true, null, "ACTIVE", "1.50"}, captured);
+    }
+
+    @Test
+    void capture_longString_shouldBeTruncatedWithMarker() {
+        assertEquals("0123456789...(+5 chars)", serializer.capture("012345678901234", LIMITS));
+    }
+
+    @Test
+    void capture_largeCollection_shouldKeepFirstElements() {
+        List<Integer> numbers = IntStream.range(0, 100).boxed().toList();
+
+        assertEquals(List.of(0, 1, 2, 3, 4, "...(+95 more)"), serializer.capture(numbers, LIMITS));
+        assertEquals(List.of(0, 1, 2, 3, 4, "...(+95 more)"),
+                serializer.capture(IntStream.range(0, 100).toArray(), LIMITS));
+    }
+
+    @Test
+    void capture_largeMap_shouldKeepFirstEntries() {
+        Map<?, ?> captured = (Map<?, ?>) serializer.capture(
+                new java.util.TreeMap<>(Map.of("a", 1, "b", 2, "c", 3, "d", 4, "e", 5, "f", 6, "g", 7)), LIMITS);
+
+        assertEquals(6, captured.size());
+        assertEquals(1, captured.get("a"));
+        assertEquals("(+2 more)", captured.get("..."));
+    }
+
+    @Test
+    void capture_bean_shouldFollowJacksonPropertiesUpToMaxDepth() {
+        Customer customer = new Customer("Ivan", new Address("Moscow", new Street("Tverskaya", 1)), "secret");
+
+        Map<?, ?> captured = (Map<?, ?>) serializer.capture(customer, new BoundedValueSerializer.Limits(2, 5, 10, 4096));
+
+        assertEquals("Ivan", captured.get("name"));
+        assertFalse(captured.containsKey("password"));
+        Map<?, ?> address = (Map<?, ?>) captured.get("address");
+        assertEquals("Moscow", address.get("city"));
+        assertEquals("<Street>", address.get("street"));
+    }
+
+    @Test
+    void capture_withProjection_shouldKeepOnlySelectedProperties() {
+        Customer customer = new Customer("Ivan", new Address("Moscow", new Street("Tverskaya", 1)), "secret");
+        CaptureProjection projection = CaptureProjection.of(new String[]{"name", "address.street"},
+                new String[]{"address.street.number"});
+
+        List<?> customers = (List<?>) serializer.capture(List.of(customer),
+                new BoundedValueSerializer.Limits(5, 5, 10, 4096), projection);
+
+        Map<?, ?> captured = (Map<?, ?>) customers.get(0);
+        assertEquals(List.of("name", "address"), List.copyOf(captured.keySet()));
+        Map<?, ?> address = (Map<?, ?>) captured.get("address");
+        assertEquals(List.of("street"), List.copyOf(address.keySet()));
+        assertEquals(Map.of("name", "Tverskaya"), address.get("street"));
+    }
+
+    @Test
+    void captureArgs_withIndexes_shouldOmitOtherArgs() {
+        Object[] captured = serializer.captureArgs(new Object[]{"a", "b", "c"}, new int[]{0, 2}, LIMITS,
+                CaptureProjection.ALL);
+
+        assertArrayEquals(new Object[]{"a", BoundedValueSerializer.OMITTED, "c"}, captured);
+    }
+
+    @Test
+    void capture_overByteBudget_shouldEmitTruncationMarker() {
+        List<String> values = IntStream.range(0, 5).mapToObj(i -> "value" + i).toList();
+
+        Object[] captured = serializer.captureArgs(new Object[]{values, "tail"},
+                new BoundedValueSerializer.Limits(3, 5, 10, 20));
+
+        List<?> list = (List<?>) captured[0];
+        assertEquals(BoundedValueSerializer.TRUNCATED, list.get(list.size() - 1));
+        assertEquals(BoundedValueSerializer.TRUNCATED, captured[1]);
+    }
+
+    @Test
+    void capture_cyclicGraph_shouldStopAtMaxDepth() throws Exception {
+        List<Object> cycle = new java.util.ArrayList<>();
+        cycle.add(cycle);
+
+        Object captured = serializer.capture(cycle, LIMITS);
+
+        assertEquals("[[[\"<ArrayList>\"]]]", new ObjectMapper().writeValueAsString(captured));
+    }
+
+}
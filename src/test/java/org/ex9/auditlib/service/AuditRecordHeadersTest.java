@@ -0,0 +1,77 @@
+package org.ex9.auditlib.service;
+
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+import org.ex9.auditlib.dto.AuditDto;
+import org.ex9.auditlib.dto.HttpLogDto;
+import org.ex9.auditlib.util.EventKind;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AuditRecordHeadersTest {
+
+    private final AuditRecordHeaders recordHeaders = new AuditRecordHeaders("order-service");
+
+    private static String value(Headers headers, String key) {
+        Header header = headers.lastHeader(key);
+        return header != null ? new String(header.value(), StandardCharsets.UTF_8) : null;
+    }
+
+    @Test
+    void create_auditDto_shouldDescribeMethodEvent() {
+        AuditDto dto = AuditDto.builder()
+                .type("ERROR")
+                .logLevel("WARN")
+                .methodName("OrderService.create")
+                .build();
+
+        Headers headers = recordHeaders.create(dto);
+
+        assertEquals(EventKind.METHOD_ERROR.name(), value(headers, AuditRecordHeaders.KIND));
+        assertEquals("WARN", value(headers, AuditRecordHeaders.LEVEL));
+        assertEquals("1", value(headers, AuditRecordHeaders.SCHEMA_VERSION));
+        assertEquals("order-service", value(headers, AuditRecordHeaders.SERVICE));
+        assertEquals(8, value(headers, AuditRecordHeaders.TARGET_HASH).length());
+    }
+
+    @Test
+    void create_httpLogDto_shouldHashRouteWithoutQuery() {
+        HttpLogDto first = HttpLogDto.builder().direction("Outgoing").method("GET").url("/orders?page=1").build();
+        HttpLogDto second = HttpLogDto.builder().direction("Outgoing").method("GET").url("/orders?page=2").build();
+
+        Headers headers = recordHeaders.create(first);
+
+        assertEquals(EventKind.HTTP_OUTGOING.name(), value(headers, AuditRecordHeaders.KIND));
+        assertEquals("INFO", value(headers, AuditRecordHeaders.LEVEL));
+        assertEquals(value(headers, AuditRecordHeaders.TARGET_HASH),
+                value(recordHeaders.create(second), AuditRecordHeaders.TARGET_HASH));
+    }
+
+    @Test
+    void create_sameMethod_shouldReuseTargetHashValue() {
+        AuditDto dto = AuditDto.builder().type("START").methodName("OrderService.create").build();
+
+        assertSame(recordHeaders.create(dto).lastHeader(AuditRecordHeaders.TARGET_HASH).value(),
+                recordHeaders.create(dto).lastHeader(AuditRecordHeaders.TARGET_HASH).value());
+    }
+
+    @Test
+    void hex_shouldMatchZeroPaddedFormat() {
+        for (int hash : new int[]{0, 0xF, 0x1234abc, -1, Integer.MIN_VALUE, 0x7fffffff}) {
+            assertEquals(String.format("%08x", hash), new String(AuditRecordHeaders.hex(hash), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    void create_withoutServiceName_shouldOmitServiceHeader() {
+        Headers headers = new AuditRecordHeaders(null).create(AuditDto.builder().type("START").build());
+
+        assertEquals(EventKind.METHOD_START.name(), value(headers, AuditRecordHeaders.KIND));
+        assertNull(headers.lastHeader(AuditRecordHeaders.SERVICE));
+        assertNull(headers.lastHeader(AuditRecordHeaders.TARGET_HASH));
+    }
+
+}
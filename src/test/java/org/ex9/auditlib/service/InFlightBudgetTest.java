@@ -0,0 +1,86 @@
+package org.ex9.auditlib.service;
+
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.ex9.auditlib.dto.AuditDto;
+import org.ex9.auditlib.dto.HttpLogDto;
+import org.ex9.auditlib.property.AuditKafkaProperties;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InFlightBudgetTest {
+
+    private final InFlightBudget budget = new InFlightBudget(settings());
+
+    private static AuditKafkaProperties.Overflow settings() {
+        AuditKafkaProperties.Overflow overflow = new AuditKafkaProperties.Overflow();
+        overflow.setEnabled(true);
+        overflow.setMaxInFlight(DataSize.ofBytes(100));
+        overflow.setLowPriorityThreshold(0.5);
+        return overflow;
+    }
+
+    private static ProducerRecord<String, byte[]> record(int size) {
+        return new ProducerRecord<>("audit-topic", null, new byte[size]);
+    }
+
+    private static AuditDto event(String type, String level) {
+        return AuditDto.builder().type(type).logLevel(level).build();
+    }
+
+    @Test
+    void tryAcquire_shouldShedDebugBeforeInfo() {
+        assertTrue(budget.tryAcquire(event("START", "INFO"), record(40)));
+
+        assertFalse(budget.tryAcquire(event("START", "DEBUG"), record(20)));
+        assertTrue(budget.tryAcquire(event("START", "INFO"), record(50)));
+        assertFalse(budget.tryAcquire(event("END", "INFO"), record(20)));
+        assertEquals(90, budget.getUsedBytes());
+    }
+
+    @Test
+    void tryAcquire_shouldNeverRejectErrors() {
+        assertTrue(budget.tryAcquire(event("START", "INFO"), record(100)));
+
+        assertTrue(budget.tryAcquire(event("ERROR", "INFO"), record(30)));
+        assertTrue(budget.tryAcquire(event("END", "ERROR"), record(30)));
+        assertEquals(2, budget.getErrorsOverBudget());
+    }
+
+    @Test
+    void release_shouldReturnBytesToBudget() {
+        ProducerRecord<String, byte[]> record = record(100);
+        assertTrue(budget.tryAcquire(event("START", "INFO"), record));
+        assertFalse(budget.tryAcquire(event("END", "INFO"), record(1)));
+
+        budget.release(record);
+
+        assertEquals(0, budget.getUsedBytes());
+        assertTrue(budget.tryAcquire(event("END", "INFO"), record(1)));
+    }
+
+    @Test
+    void stripBodies_shouldReplaceHttpBodiesAndCountEvents() {
+        HttpLogDto dto = HttpLogDto.builder().url("/orders").requestBody("x".repeat(500)).build();
+
+        HttpLogDto stripped = budget.stripBodies(dto);
+
+        assertEquals("[stripped 500 chars]", stripped.getRequestBody());
+        assertNull(stripped.getResponseBody());
+        assertEquals("/orders", stripped.getUrl());
+        assertEquals(1, budget.getStrippedBodies());
+        assertNull(budget.stripBodies(event("START", "INFO")));
+    }
+
+    @Test
+    void recordDropped_shouldCountByPriority() {
+        budget.recordDropped(event("START", "DEBUG"));
+        budget.recordDropped(event("START", "INFO"));
+        budget.recordDropped(HttpLogDto.builder().build());
+
+        assertEquals(1, budget.getDroppedLowPriority());
+        assertEquals(2, budget.getDroppedEvents());
+    }
+
+}
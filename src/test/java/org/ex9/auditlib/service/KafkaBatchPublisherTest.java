@@ -0,0 +1,188 @@
+package org.ex9.auditlib.service;
+
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.ex9.auditlib.property.AuditKafkaProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.core.KafkaOperations;
+import org.springframework.kafka.core.KafkaTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class KafkaBatchPublisherTest {
+
+    @Mock
+    private KafkaTemplate<String, byte[]> kafkaTemplate;
+
+    @Mock
+    private KafkaOperations<String, byte[]> operations;
+
+    private KafkaBatchPublisher publisher;
+
+    private final List<ProducerRecord<String, byte[]>> sent = new CopyOnWriteArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        if (publisher != null) {
+            publisher.close();
+        }
+    }
+
+    private AuditKafkaProperties.Batch settings(int maxSize, Duration linger) {
+        AuditKafkaProperties.Batch batch = new AuditKafkaProperties.Batch();
+        batch.setEnabled(true);
+        batch.setMaxSize(maxSize);
+        batch.setLinger(linger);
+        return batch;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void captureTransactions() {
+        when(operations.send(any(ProducerRecord.class))).thenAnswer(invocation -> {
+            sent.add(invocation.getArgument(0));
+            return null;
+        });
+        when(kafkaTemplate.executeInTransaction(any())).thenAnswer(invocation ->
+                ((KafkaOperations.OperationsCallback<String, byte[], Object>) invocation.getArgument(0))
+                        .doInOperations(operations));
+    }
+
+    private static ProducerRecord<String, byte[]> record(String key, String value) {
+        return new ProducerRecord<>("audit-topic", key, value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void publish_fullBatch_shouldCommitInOneTransaction() {
+        captureTransactions();
+        publisher = new KafkaBatchPublisher(kafkaTemplate, settings(10, Duration.ofSeconds(5)));
+
+        for (int i = 0; i < 10; i++) {
+            publisher.publish(record("key-" + i, "value-" + i));
+        }
+
+        verify(kafkaTemplate, timeout(2_000).times(1)).executeInTransaction(any());
+        verify(operations, timeout(2_000).times(10)).send(any(ProducerRecord.class));
+        assertEquals(10, sent.size());
+        assertEquals("value-0", new String(sent.get(0).value(), StandardCharsets.UTF_8));
+        assertEquals("value-9", new String(sent.get(9).value(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void publish_partialBatch_shouldCommitAfterLinger() {
+        captureTransactions();
+        publisher = new KafkaBatchPublisher(kafkaTemplate, settings(100, Duration.ofMillis(50)));
+
+        publisher.publish(record("a", "1"));
+        publisher.publish(record("b", "2"));
+        publisher.publish(record("c", "3"));
+
+        verify(kafkaTemplate, timeout(2_000).times(1)).executeInTransaction(any());
+        verify(operations, timeout(2_000).times(3)).send(any(ProducerRecord.class));
+        assertEquals(3, sent.size());
+    }
+
+    @Test
+    void close_shouldFlushPendingRecords() {
+        captureTransactions();
+        publisher = new KafkaBatchPublisher(kafkaTemplate, settings(100, Duration.ofSeconds(30)));
+
+        publisher.publish(record("a", "1"));
+        publisher.close();
+
+        verify(kafkaTemplate, times(1)).executeInTransaction(any());
+        assertEquals(1, sent.size());
+        assertFalse(publisher.publish(record("b", "2")));
+    }
+
+    @Test
+    void close_blockedTransaction_shouldGiveUpAfterTimeout() throws Exception {
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(kafkaTemplate.executeInTransaction(any())).thenAnswer(invocation -> {
+            blocked.countDown();
+            release.await();
+            return true;
+        });
+        publisher = new KafkaBatchPublisher(kafkaTemplate, settings(1, Duration.ofMillis(10)));
+        try {
+            publisher.publish(record("a", "1"));
+            assertTrue(blocked.await(2, TimeUnit.SECONDS));
+            publisher.publish(record("b", "2"));
+            publisher.publish(record("c", "3"));
+
+            long started = System.nanoTime();
+            assertEquals(3, publisher.close(Duration.ofMillis(100)));
+            assertEquals(2, publisher.getDiscardedRecords());
+            assertTrue(TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - started) < 5);
+            assertFalse(publisher.isOpen());
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    void publish_transactionFailure_shouldNotStopPublisher() {
+        when(kafkaTemplate.executeInTransaction(any()))
+                .thenThrow(new RuntimeException("Transaction failed"))
+                .thenReturn(true);
+        publisher = new KafkaBatchPublisher(kafkaTemplate, settings(1, Duration.ofMillis(10)));
+
+        publisher.publish(record("a", "1"));
+        verify(kafkaTemplate, timeout(2_000).times(2)).executeInTransaction(any());
+
+        publisher.publish(record("b", "2"));
+        verify(kafkaTemplate, timeout(2_000).times(3)).executeInTransaction(any());
+        assertEquals(0, publisher.getDiscardedRecords());
+    }
+
+    @Test
+    void publish_repeatedTransactionFailure_shouldCountDiscardedRecords() {
+        when(kafkaTemplate.executeInTransaction(any()))
+                .thenThrow(new RuntimeException("Transaction failed"));
+        publisher = new KafkaBatchPublisher(kafkaTemplate, settings(100, Duration.ofSeconds(30)));
+
+        assertTrue(publisher.publish(record("a", "1")));
+        assertTrue(publisher.publish(record("b", "2")));
+
+        assertEquals(2, publisher.close(Duration.ofSeconds(2)));
+        verify(kafkaTemplate, times(2)).executeInTransaction(any());
+        assertEquals(2, publisher.getDiscardedRecords());
+    }
+
+    @Test
+    void publish_fullQueue_shouldRejectWithoutBlocking() throws Exception {
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(kafkaTemplate.executeInTransaction(any())).thenAnswer(invocation -> {
+            blocked.countDown();
+            release.await();
+            return true;
+        });
+        AuditKafkaProperties.Batch settings = settings(1, Duration.ofMillis(10));
+        settings.setQueueCapacity(1);
+        publisher = new KafkaBatchPublisher(kafkaTemplate, settings);
+        try {
+            assertTrue(publisher.publish(record("a", "1")));
+            assertTrue(blocked.await(2, TimeUnit.SECONDS));
+            assertTrue(publisher.publish(record("b", "2")));
+
+            assertFalse(publisher.publish(record("c", "3")));
+        } finally {
+            release.countDown();
+        }
+    }
+
+}
@@ -0,0 +1,73 @@
+package org.ex9.auditlib.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.core.KafkaTemplate;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class KafkaProducerPoolTest {
+
+    @SuppressWarnings("unchecked")
+    private static KafkaTemplate<String, byte[]> template() {
+        return mock(KafkaTemplate.class);
+    }
+
+    private final KafkaProducerPool pool = new KafkaProducerPool(
+            List.of(template(), template(), template(), template()), List.of());
+
+    @Test
+    void shardOf_sameKey_shouldAlwaysUseSameProducer() {
+        String key = UUID.randomUUID().toString();
+        int shard = pool.shardOf(key);
+
+        for (int i = 0; i < 100; i++) {
+            assertEquals(shard, pool.shardOf(key));
+        }
+        assertSame(pool.template(key), pool.template(key));
+    }
+
+    @Test
+    void shardOf_shouldSpreadKeysAcrossProducers() {
+        Set<Integer> shards = new HashSet<>();
+        for (int i = 0; i < 1_000; i++) {
+            int shard = pool.shardOf(UUID.randomUUID().toString());
+            assertTrue(shard >= 0 && shard < pool.getSize());
+            shards.add(shard);
+        }
+
+        assertEquals(4, shards.size());
+    }
+
+    @Test
+    void shardOf_nullKey_shouldStripeByThread() {
+        assertEquals(pool.shardOf(null), pool.shardOf(null));
+        assertNull(pool.batchPublisher(null));
+    }
+
+    @Test
+    void getPendingRecordsPerShard_shouldReportEachBatchPublisher() {
+        KafkaBatchPublisher first = mock(KafkaBatchPublisher.class);
+        KafkaBatchPublisher second = mock(KafkaBatchPublisher.class);
+        when(first.getPendingRecords()).thenReturn(3);
+        when(second.getPendingRecords()).thenReturn(5);
+        KafkaProducerPool batched = new KafkaProducerPool(List.of(template(), template()), List.of(first, second));
+
+        assertArrayEquals(new int[]{3, 5}, batched.getPendingRecordsPerShard());
+        assertArrayEquals(new int[4], pool.getPendingRecordsPerShard());
+    }
+
+    @Test
+    void constructor_mismatchedBatchPublishers_shouldFail() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new KafkaProducerPool(List.of(template(), template()), List.of(mock(KafkaBatchPublisher.class))));
+        assertThrows(IllegalArgumentException.class, () -> new KafkaProducerPool(List.of(), List.of()));
+    }
+
+}
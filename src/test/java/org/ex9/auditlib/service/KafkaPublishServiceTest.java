@@ -2,6 +2,7 @@ package org.ex9.auditlib.service;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.kafka.clients.producer.ProducerRecord;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.core.Appender;
 import org.apache.logging.log4j.core.LoggerContext;
@@ -11,10 +12,14 @@ import org.apache.logging.log4j.core.layout.PatternLayout;
 import org.ex9.auditlib.dto.AuditDto;
 import org.ex9.auditlib.dto.HttpLogDto;
 import org.ex9.auditlib.property.AuditKafkaProperties;
+import org.ex9.auditlib.util.DeliveryGuarantee;
+import org.ex9.auditlib.util.EventKind;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.util.unit.DataSize;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
@@ -22,7 +27,10 @@ import org.springframework.kafka.core.KafkaTemplate;
 
 import java.io.StringWriter;
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -32,7 +40,7 @@ import static org.mockito.Mockito.*;
 class KafkaPublishServiceTest {
 
     @Mock
-    private KafkaTemplate<String, String> kafkaTemplate;
+    private KafkaTemplate<String, byte[]> kafkaTemplate;
 
     @Mock
     private AuditKafkaProperties auditKafkaProperties;
@@ -81,12 +89,12 @@ class KafkaPublishServiceTest {
                 .build();
 
         when(auditKafkaProperties.getTopic()).thenReturn("audit-topic");
-        when(objectMapper.writeValueAsString(auditDto)).thenReturn("serialized-dto");
+        when(objectMapper.writeValueAsBytes(auditDto)).thenReturn("serialized-dto".getBytes());
         when(kafkaTemplate.executeInTransaction(any())).thenReturn(true);
 
         kafkaPublishService.send(auditDto);
 
-        verify(objectMapper).writeValueAsString(auditDto);
+        verify(objectMapper).writeValueAsBytes(auditDto);
         verify(kafkaTemplate).executeInTransaction(any());
         verify(auditKafkaProperties).getTopic();
     }
@@ -105,12 +113,12 @@ class KafkaPublishServiceTest {
                 .build();
 
         when(auditKafkaProperties.getTopic()).thenReturn("audit-topic");
-        when(objectMapper.writeValueAsString(httpLogDto)).thenReturn("serialized-dto");
+        when(objectMapper.writeValueAsBytes(httpLogDto)).thenReturn("serialized-dto".getBytes());
         when(kafkaTemplate.executeInTransaction(any())).thenReturn(true);
 
         kafkaPublishService.send(httpLogDto);
 
-        verify(objectMapper).writeValueAsString(httpLogDto);
+        verify(objectMapper).writeValueAsBytes(httpLogDto);
         verify(kafkaTemplate).executeInTransaction(any());
         verify(auditKafkaProperties).getTopic();
     }
@@ -129,11 +137,11 @@ class KafkaPublishServiceTest {
 
         when(auditKafkaProperties.getTopic()).thenReturn("audit-topic");
         doThrow(new JsonProcessingException("Serialization error") {})
-                .when(objectMapper).writeValueAsString(auditDto);
+                .when(objectMapper).writeValueAsBytes(auditDto);
 
         kafkaPublishService.send(auditDto);
 
-        verify(objectMapper).writeValueAsString(auditDto);
+        verify(objectMapper).writeValueAsBytes(auditDto);
         String logOutput = logCapture.toString();
         assertTrue(logOutput.contains("Serialize auditDto error"),
                 "Log should contain error message. Actual log: " + logOutput);
@@ -155,11 +163,11 @@ class KafkaPublishServiceTest {
 
         when(auditKafkaProperties.getTopic()).thenReturn("audit-topic");
         doThrow(new JsonProcessingException("Serialization error") {})
-                .when(objectMapper).writeValueAsString(httpLogDto);
+                .when(objectMapper).writeValueAsBytes(httpLogDto);
 
         kafkaPublishService.send(httpLogDto);
 
-        verify(objectMapper).writeValueAsString(httpLogDto);
+        verify(objectMapper).writeValueAsBytes(httpLogDto);
         String logOutput = logCapture.toString();
         assertTrue(logOutput.contains("Serialize httpLogDto error"),
                 "Log should contain error message. Actual log: " + logOutput);
@@ -181,11 +189,11 @@ class KafkaPublishServiceTest {
                 .build();
 
         when(auditKafkaProperties.getTopic()).thenReturn("audit-topic");
-        when(objectMapper.writeValueAsString(auditDto)).thenReturn("serialized-dto");
+        when(objectMapper.writeValueAsBytes(auditDto)).thenReturn("serialized-dto".getBytes());
         when(kafkaTemplate.executeInTransaction(any())).thenReturn(true);
 
         assertDoesNotThrow(() -> kafkaPublishService.send(auditDto));
-        verify(objectMapper).writeValueAsString(auditDto);
+        verify(objectMapper).writeValueAsBytes(auditDto);
         verify(kafkaTemplate).executeInTransaction(any());
     }
 
@@ -204,11 +212,11 @@ class KafkaPublishServiceTest {
                 .build();
 
         when(auditKafkaProperties.getTopic()).thenReturn("audit-topic");
-        when(objectMapper.writeValueAsString(httpLogDto)).thenReturn("serialized-dto");
+        when(objectMapper.writeValueAsBytes(httpLogDto)).thenReturn("serialized-dto".getBytes());
         when(kafkaTemplate.executeInTransaction(any())).thenReturn(true);
 
         assertDoesNotThrow(() -> kafkaPublishService.send(httpLogDto));
-        verify(objectMapper).writeValueAsString(httpLogDto);
+        verify(objectMapper).writeValueAsBytes(httpLogDto);
         verify(kafkaTemplate).executeInTransaction(any());
     }
 
@@ -222,12 +230,248 @@ class KafkaPublishServiceTest {
                 .build();
 
         when(auditKafkaProperties.getTopic()).thenReturn("audit-topic");
-        when(objectMapper.writeValueAsString(auditDto)).thenReturn("serialized-dto");
+        when(objectMapper.writeValueAsBytes(auditDto)).thenReturn("serialized-dto".getBytes());
         when(kafkaTemplate.executeInTransaction(any())).thenThrow(new RuntimeException("Transaction failed"));
 
         assertThrows(RuntimeException.class,() -> kafkaPublishService.send(auditDto));
-        verify(objectMapper).writeValueAsString(auditDto);
+        verify(objectMapper).writeValueAsBytes(auditDto);
         verify(kafkaTemplate).executeInTransaction(any());
     }
 
-}
\ No newline at end of file
+    @Test
+    void sendHttpLogDto_withAtLeastOnceDelivery_shouldSendWithoutTransaction() throws JsonProcessingException {
+        KafkaTemplateRegistry templateRegistry = mock(KafkaTemplateRegistry.class);
+        @SuppressWarnings("unchecked")
+        KafkaTemplate<String, byte[]> atLeastOnceTemplate = mock(KafkaTemplate.class);
+        AuditKafkaProperties properties = new AuditKafkaProperties();
+        properties.setTopic("audit-topic");
+        properties.setHttpDelivery(DeliveryGuarantee.AT_LEAST_ONCE);
+        KafkaPublishService service = KafkaPublishService.builder()
+                .kafkaTemplate(kafkaTemplate)
+                .auditKafkaProperties(properties)
+                .objectMapper(objectMapper)
+                .templateRegistry(templateRegistry)
+                .build();
+
+        HttpLogDto httpLogDto = HttpLogDto.builder()
+                .direction("Incoming")
+                .method("GET")
+                .url("/test")
+                .statusCode(200)
+                .build();
+
+        when(objectMapper.writeValueAsBytes(httpLogDto)).thenReturn("serialized-dto".getBytes());
+        when(templateRegistry.get(DeliveryGuarantee.AT_LEAST_ONCE)).thenReturn(atLeastOnceTemplate);
+        when(atLeastOnceTemplate.send(any(ProducerRecord.class))).thenReturn(new CompletableFuture<>());
+
+        service.send(httpLogDto);
+
+        verify(atLeastOnceTemplate).send(any(ProducerRecord.class));
+        verifyNoInteractions(kafkaTemplate);
+    }
+
+    @Test
+    void sendAuditDto_withHttpOnlyOverride_shouldKeepTransaction() throws JsonProcessingException {
+        KafkaTemplateRegistry templateRegistry = mock(KafkaTemplateRegistry.class);
+        AuditKafkaProperties properties = new AuditKafkaProperties();
+        properties.setTopic("audit-topic");
+        properties.setHttpDelivery(DeliveryGuarantee.FIRE_AND_FORGET);
+        KafkaPublishService service = KafkaPublishService.builder()
+                .kafkaTemplate(kafkaTemplate)
+                .auditKafkaProperties(properties)
+                .objectMapper(objectMapper)
+                .templateRegistry(templateRegistry)
+                .build();
+
+        AuditDto auditDto = AuditDto.builder()
+                .id("test-id")
+                .type("START")
+                .methodName("TestClass.testMethod")
+                .build();
+
+        when(objectMapper.writeValueAsBytes(auditDto)).thenReturn("serialized-dto".getBytes());
+        when(kafkaTemplate.executeInTransaction(any())).thenReturn(true);
+
+        service.send(auditDto);
+
+        verify(kafkaTemplate).executeInTransaction(any());
+        verifyNoInteractions(templateRegistry);
+    }
+
+    @Test
+    void sendAuditDto_withTransactionFailureAndSpillLog_shouldSpillRecord() throws JsonProcessingException {
+        KafkaSpillLog spillLog = mock(KafkaSpillLog.class);
+        KafkaPublishService service = KafkaPublishService.builder()
+                .kafkaTemplate(kafkaTemplate)
+                .auditKafkaProperties(auditKafkaProperties)
+                .objectMapper(objectMapper)
+                .spillLog(spillLog)
+                .build();
+
+        AuditDto auditDto = AuditDto.builder()
+                .id("test-id")
+                .type("START")
+                .methodName("TestClass.testMethod")
+                .build();
+
+        when(auditKafkaProperties.getTopic()).thenReturn("audit-topic");
+        when(objectMapper.writeValueAsBytes(auditDto)).thenReturn("serialized-dto".getBytes());
+        when(spillLog.isKafkaAvailable()).thenReturn(true);
+        when(kafkaTemplate.executeInTransaction(any())).thenThrow(new RuntimeException("Transaction failed"));
+
+        assertDoesNotThrow(() -> service.send(auditDto));
+        verify(spillLog).markUnavailable();
+        verify(spillLog).append(any());
+    }
+
+    @Test
+    void sendAuditDto_whenKafkaUnavailable_shouldSpillWithoutSending() throws JsonProcessingException {
+        KafkaSpillLog spillLog = mock(KafkaSpillLog.class);
+        KafkaPublishService service = KafkaPublishService.builder()
+                .kafkaTemplate(kafkaTemplate)
+                .auditKafkaProperties(auditKafkaProperties)
+                .objectMapper(objectMapper)
+                .spillLog(spillLog)
+                .build();
+
+        AuditDto auditDto = AuditDto.builder()
+                .id("test-id")
+                .type("START")
+                .methodName("TestClass.testMethod")
+                .build();
+
+        when(auditKafkaProperties.getTopic()).thenReturn("audit-topic");
+        when(objectMapper.writeValueAsBytes(auditDto)).thenReturn("serialized-dto".getBytes());
+        when(spillLog.isKafkaAvailable()).thenReturn(false);
+
+        service.send(auditDto);
+
+        verify(spillLog).append(any());
+        verifyNoInteractions(kafkaTemplate);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void sendHttpLogDto_withMatchingRoute_shouldUseRouteTopicAndTemplate() throws JsonProcessingException {
+        KafkaTemplate<String, byte[]> routeTemplate = mock(KafkaTemplate.class);
+        KafkaRouter router = new KafkaRouter(List.of(KafkaRoute.builder()
+                .kinds(Set.of(EventKind.HTTP_INCOMING))
+                .topic("audit-http")
+                .delivery(DeliveryGuarantee.FIRE_AND_FORGET)
+                .template(routeTemplate)
+                .build()));
+        AuditKafkaProperties properties = new AuditKafkaProperties();
+        KafkaPublishService service = KafkaPublishService.builder()
+                .kafkaTemplate(kafkaTemplate)
+                .auditKafkaProperties(properties)
+                .objectMapper(objectMapper)
+                .router(router)
+                .build();
+
+        HttpLogDto httpLogDto = HttpLogDto.builder()
+                .direction("Incoming")
+                .method("GET")
+                .url("/test")
+                .statusCode(200)
+                .build();
+
+        when(objectMapper.writeValueAsBytes(httpLogDto)).thenReturn("serialized-dto".getBytes());
+        when(routeTemplate.send(any(ProducerRecord.class))).thenReturn(new CompletableFuture<>());
+
+        service.send(httpLogDto);
+
+        ArgumentCaptor<ProducerRecord<String, byte[]>> captor = ArgumentCaptor.forClass(ProducerRecord.class);
+        verify(routeTemplate).send(captor.capture());
+        assertEquals("audit-http", captor.getValue().topic());
+        verifyNoInteractions(kafkaTemplate);
+    }
+
+    @Test
+    void sendHttpLogDto_synchronousSendFailure_shouldReleaseBudget() {
+        KafkaTemplateRegistry templateRegistry = mock(KafkaTemplateRegistry.class);
+        @SuppressWarnings("unchecked")
+        KafkaTemplate<String, byte[]> atLeastOnceTemplate = mock(KafkaTemplate.class);
+        AuditKafkaProperties properties = new AuditKafkaProperties();
+        properties.setTopic("audit-topic");
+        properties.setHttpDelivery(DeliveryGuarantee.AT_LEAST_ONCE);
+        InFlightBudget budget = new InFlightBudget(properties.getOverflow());
+        KafkaPublishService service = KafkaPublishService.builder()
+                .kafkaTemplate(kafkaTemplate)
+                .auditKafkaProperties(properties)
+                .objectMapper(new ObjectMapper())
+                .templateRegistry(templateRegistry)
+                .inFlightBudget(budget)
+                .build();
+
+        HttpLogDto httpLogDto = HttpLogDto.builder()
+                .direction("Incoming")
+                .method("GET")
+                .url("/test")
+                .statusCode(200)
+                .build();
+
+        when(templateRegistry.get(DeliveryGuarantee.AT_LEAST_ONCE)).thenReturn(atLeastOnceTemplate);
+        when(atLeastOnceTemplate.send(any(ProducerRecord.class))).thenThrow(new IllegalStateException("Producer closed"));
+
+        assertThrows(IllegalStateException.class, () -> service.send(httpLogDto));
+
+        assertEquals(0, budget.getUsedBytes());
+        assertEquals(0, service.getPendingEvents());
+    }
+
+    @Test
+    void sendHttpLogDto_overBudget_shouldStripBodiesAndKeepEvent() {
+        AuditKafkaProperties properties = new AuditKafkaProperties();
+        properties.getOverflow().setMaxInFlight(DataSize.ofBytes(500));
+        InFlightBudget budget = new InFlightBudget(properties.getOverflow());
+        KafkaPublishService service = KafkaPublishService.builder()
+                .kafkaTemplate(kafkaTemplate)
+                .auditKafkaProperties(properties)
+                .objectMapper(new ObjectMapper())
+                .inFlightBudget(budget)
+                .build();
+
+        HttpLogDto httpLogDto = HttpLogDto.builder()
+                .direction("Incoming")
+                .method("POST")
+                .url("/test")
+                .statusCode(200)
+                .requestBody("x".repeat(1_000))
+                .build();
+
+        when(kafkaTemplate.executeInTransaction(any())).thenReturn(true);
+
+        service.send(httpLogDto);
+
+        verify(kafkaTemplate).executeInTransaction(any());
+        assertEquals(1, budget.getStrippedBodies());
+        assertEquals(0, budget.getUsedBytes());
+    }
+
+    @Test
+    void sendAuditDto_overBudget_shouldDropDebugEvent() {
+        AuditKafkaProperties properties = new AuditKafkaProperties();
+        properties.getOverflow().setMaxInFlight(DataSize.ofBytes(10));
+        InFlightBudget budget = new InFlightBudget(properties.getOverflow());
+        KafkaPublishService service = KafkaPublishService.builder()
+                .kafkaTemplate(kafkaTemplate)
+                .auditKafkaProperties(properties)
+                .objectMapper(new ObjectMapper())
+                .inFlightBudget(budget)
+                .build();
+
+        AuditDto auditDto = AuditDto.builder()
+                .id("test-id")
+                .type("START")
+                .logLevel("DEBUG")
+                .args(new Object[]{"test"})
+                .methodName("TestClass.testMethod")
+                .build();
+
+        service.send(auditDto);
+
+        verifyNoInteractions(kafkaTemplate);
+        assertEquals(1, budget.getDroppedLowPriority());
+    }
+
+}
@@ -0,0 +1,53 @@
+package org.ex9.auditlib.service;
+
+import org.ex9.auditlib.dto.AuditDto;
+import org.ex9.auditlib.dto.HttpLogDto;
+import org.ex9.auditlib.util.DeliveryGuarantee;
+import org.ex9.auditlib.util.EventKind;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KafkaRouterTest {
+
+    private final KafkaRoute httpRoute = KafkaRoute.builder()
+            .kinds(Set.of(EventKind.HTTP_INCOMING, EventKind.HTTP_OUTGOING))
+            .topic("audit-http")
+            .delivery(DeliveryGuarantee.FIRE_AND_FORGET)
+            .build();
+
+    private final KafkaRoute errorRoute = KafkaRoute.builder()
+            .kinds(Set.of(EventKind.METHOD_ERROR))
+            .topic("audit-errors")
+            .delivery(DeliveryGuarantee.EXACTLY_ONCE)
+            .build();
+
+    private final KafkaRoute debugRoute = KafkaRoute.builder()
+            .levels(Set.of("DEBUG"))
+            .topic("audit-debug")
+            .delivery(DeliveryGuarantee.AT_LEAST_ONCE)
+            .build();
+
+    private final KafkaRouter router = new KafkaRouter(List.of(httpRoute, errorRoute, debugRoute));
+
+    @Test
+    void find_shouldMatchByKind() {
+        assertSame(httpRoute, router.find(HttpLogDto.builder().direction("Outgoing").build()));
+        assertSame(errorRoute, router.find(AuditDto.builder().type("ERROR").logLevel("DEBUG").build()));
+    }
+
+    @Test
+    void find_shouldMatchByLevelIgnoringCase() {
+        assertSame(debugRoute, router.find(AuditDto.builder().type("START").logLevel("debug").build()));
+    }
+
+    @Test
+    void find_withoutMatchingRoute_shouldReturnNull() {
+        assertNull(router.find(AuditDto.builder().type("END").logLevel("INFO").build()));
+        assertNull(new KafkaRouter(List.of()).find(HttpLogDto.builder().direction("Incoming").build()));
+    }
+
+}
@@ -0,0 +1,199 @@
+package org.ex9.auditlib.service;
+
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.ex9.auditlib.property.AuditKafkaProperties;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KafkaSpillLogTest {
+
+    @TempDir
+    private Path directory;
+
+    private final List<ProducerRecord<String, byte[]>> replayed = new CopyOnWriteArrayList<>();
+    private final AtomicBoolean brokerUp = new AtomicBoolean(false);
+
+    private AuditKafkaProperties.Spill settings(DataSize segmentSize, DataSize maxDiskUsage) {
+        AuditKafkaProperties.Spill spill = new AuditKafkaProperties.Spill();
+        spill.setEnabled(true);
+        spill.setDirectory(directory.toString());
+        spill.setSegmentSize(segmentSize);
+        spill.setMaxDiskUsage(maxDiskUsage);
+        spill.setReplayRate(10_000);
+        spill.setRetryInterval(Duration.ofMillis(20));
+        return spill;
+    }
+
+    private KafkaSpillLog createSpillLog(DataSize segmentSize, DataSize maxDiskUsage) {
+        KafkaSpillLog spillLog = new KafkaSpillLog(settings(segmentSize, maxDiskUsage), records -> {
+            if (!brokerUp.get()) {
+                throw new IllegalStateException("Broker unavailable");
+            }
+            replayed.addAll(records);
+        });
+        spillLog.start();
+        return spillLog;
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+        assertTrue(condition.getAsBoolean(), "Condition not met in time");
+    }
+
+    private long segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.count();
+        }
+    }
+
+    private static ProducerRecord<String, byte[]> record(String key, String value) {
+        return new ProducerRecord<>("audit-topic", key, value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void replayTest_replaysInOrderOnceBrokerIsBack() throws Exception {
+        KafkaSpillLog spillLog = createSpillLog(DataSize.ofKilobytes(4), DataSize.ofMegabytes(1));
+        spillLog.markUnavailable();
+
+        for (int i = 0; i < 200; i++) {
+            assertTrue(spillLog.append(record(i % 2 == 0 ? null : "key-" + i, "value-" + i)));
+        }
+        assertEquals(200, spillLog.getPendingRecords());
+        assertFalse(spillLog.isKafkaAvailable());
+        assertTrue(segmentFiles() > 1);
+
+        brokerUp.set(true);
+        await(() -> spillLog.getPendingRecords() == 0);
+
+        assertEquals(200, replayed.size());
+        for (int i = 0; i < 200; i++) {
+            assertEquals("value-" + i, new String(replayed.get(i).value(), StandardCharsets.UTF_8));
+            assertEquals(i % 2 == 0 ? null : "key-" + i, replayed.get(i).key());
+        }
+        assertTrue(spillLog.isKafkaAvailable());
+        assertEquals(1, segmentFiles());
+        spillLog.close();
+    }
+
+    @Test
+    void startTest_recoversSegmentsFromPreviousRun() throws Exception {
+        KafkaSpillLog first = createSpillLog(DataSize.ofKilobytes(4), DataSize.ofMegabytes(1));
+        for (int i = 0; i < 50; i++) {
+            first.append(record("key", "value-" + i));
+        }
+        first.close();
+
+        brokerUp.set(true);
+        KafkaSpillLog second = createSpillLog(DataSize.ofKilobytes(4), DataSize.ofMegabytes(1));
+        await(() -> second.getPendingRecords() == 0);
+
+        assertEquals(50, replayed.size());
+        assertEquals("value-0", new String(replayed.get(0).value(), StandardCharsets.UTF_8));
+        assertEquals("value-49", new String(replayed.get(49).value(), StandardCharsets.UTF_8));
+        assertEquals(0, segmentFiles());
+        second.close();
+    }
+
+    @Test
+    void appendTest_dropsRecordsOverDiskBudget() throws Exception {
+        KafkaSpillLog spillLog = createSpillLog(DataSize.ofBytes(256), DataSize.ofBytes(512));
+        String value = "x".repeat(40);
+
+        int accepted = 0;
+        for (int i = 0; i < 10; i++) {
+            if (spillLog.append(record("key", value))) {
+                accepted++;
+            }
+        }
+
+        assertEquals(6, accepted);
+        assertEquals(4, spillLog.getDroppedRecords());
+        assertEquals(2, segmentFiles());
+        spillLog.close();
+    }
+
+    @Test
+    void appendTest_afterBudgetExhaustedAndReplayed_shouldKeepNewRecords() throws Exception {
+        KafkaSpillLog spillLog = createSpillLog(DataSize.ofBytes(512), DataSize.ofBytes(512));
+        String large = "x".repeat(300);
+
+        assertTrue(spillLog.append(record("key", large)));
+        assertFalse(spillLog.append(record("key", large)));
+        assertTrue(spillLog.append(record("key", "small-1")));
+
+        brokerUp.set(true);
+        await(() -> spillLog.getPendingRecords() == 0);
+        assertTrue(spillLog.append(record("key", "small-2")));
+        await(() -> spillLog.getPendingRecords() == 0);
+
+        assertEquals(List.of(large, "small-1", "small-2"), replayed.stream()
+                .map(replayedRecord -> new String(replayedRecord.value(), StandardCharsets.UTF_8))
+                .toList());
+        assertTrue(spillLog.append(record("key", large)));
+        assertEquals(1, spillLog.getDroppedRecords());
+        spillLog.close();
+    }
+
+    @Test
+    void replayTest_kafkaStaysUnavailableUntilBacklogIsReplayed() throws Exception {
+        AuditKafkaProperties.Spill spill = settings(DataSize.ofKilobytes(4), DataSize.ofMegabytes(1));
+        spill.setReplayRate(10);
+        List<Boolean> availableDuringReplay = new CopyOnWriteArrayList<>();
+        KafkaSpillLog[] holder = new KafkaSpillLog[1];
+        KafkaSpillLog spillLog = new KafkaSpillLog(spill, records -> {
+            if (!brokerUp.get()) {
+                throw new IllegalStateException("Broker unavailable");
+            }
+            availableDuringReplay.add(holder[0].isKafkaAvailable());
+            replayed.addAll(records);
+        });
+        holder[0] = spillLog;
+        spillLog.start();
+        for (int i = 0; i < 3; i++) {
+            spillLog.append(record("key", "value-" + i));
+        }
+
+        brokerUp.set(true);
+        await(() -> spillLog.getPendingRecords() == 0);
+
+        assertEquals(List.of(false, false, false), availableDuringReplay);
+        assertTrue(spillLog.isKafkaAvailable());
+        spillLog.close();
+    }
+
+    @Test
+    void replayTest_keepsRecordHeaders() throws Exception {
+        KafkaSpillLog spillLog = createSpillLog(DataSize.ofKilobytes(4), DataSize.ofMegabytes(1));
+        ProducerRecord<String, byte[]> record = record("key", "value");
+        record.headers().add("audit-kind", "METHOD_START".getBytes(StandardCharsets.UTF_8));
+        record.headers().add("audit-empty", null);
+        spillLog.append(record);
+
+        brokerUp.set(true);
+        await(() -> spillLog.getPendingRecords() == 0);
+
+        assertEquals("METHOD_START",
+                new String(replayed.get(0).headers().lastHeader("audit-kind").value(), StandardCharsets.UTF_8));
+        assertNull(replayed.get(0).headers().lastHeader("audit-empty").value());
+        spillLog.close();
+    }
+
+}
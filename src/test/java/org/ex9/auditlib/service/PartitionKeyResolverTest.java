@@ -0,0 +1,69 @@
+package org.ex9.auditlib.service;
+
+import org.ex9.auditlib.dto.AuditDto;
+import org.ex9.auditlib.dto.HttpLogDto;
+import org.ex9.auditlib.util.PartitionKeyStrategy;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PartitionKeyResolverTest {
+
+    private static AuditDto auditDto(String correlationId) {
+        return AuditDto.builder()
+                .id("event-1")
+                .correlationId(correlationId)
+                .type("START")
+                .methodName("OrderService.create")
+                .build();
+    }
+
+    private static HttpLogDto httpLogDto(String correlationId) {
+        return HttpLogDto.builder()
+                .correlationId(correlationId)
+                .direction("Incoming")
+                .method("POST")
+                .url("/orders?page=1")
+                .statusCode(201)
+                .build();
+    }
+
+    @Test
+    void correlation_shouldShareKeyBetweenHttpAndMethodEvents() {
+        PartitionKeyResolver resolver = PartitionKeyResolver.of(PartitionKeyStrategy.CORRELATION, null);
+
+        assertEquals("request-1", resolver.resolve(auditDto("request-1")));
+        assertEquals("request-1", resolver.resolve(httpLogDto("request-1")));
+    }
+
+    @Test
+    void correlation_withoutRequest_shouldFallBackToEventId() {
+        PartitionKeyResolver resolver = PartitionKeyResolver.of(null, null);
+
+        assertEquals("event-1", resolver.resolve(auditDto(null)));
+        assertNotNull(resolver.resolve(httpLogDto(null)));
+    }
+
+    @Test
+    void method_shouldUseMethodNameOrHttpRoute() {
+        PartitionKeyResolver resolver = PartitionKeyResolver.of(PartitionKeyStrategy.METHOD, null);
+
+        assertEquals("OrderService.create", resolver.resolve(auditDto("request-1")));
+        assertEquals("POST /orders", resolver.resolve(httpLogDto("request-1")));
+    }
+
+    @Test
+    void instance_shouldUseConfiguredOrJvmInstanceId() {
+        assertEquals("node-1", PartitionKeyResolver.of(PartitionKeyStrategy.INSTANCE, "node-1").resolve(auditDto(null)));
+        assertNotNull(PartitionKeyResolver.of(PartitionKeyStrategy.INSTANCE, null).resolve(httpLogDto(null)));
+    }
+
+    @Test
+    void stickyRoundRobin_shouldLeaveKeyEmpty() {
+        PartitionKeyResolver resolver = PartitionKeyResolver.of(PartitionKeyStrategy.STICKY_ROUND_ROBIN, null);
+
+        assertNull(resolver.resolve(auditDto("request-1")));
+        assertNull(resolver.resolve(httpLogDto("request-1")));
+    }
+
+}
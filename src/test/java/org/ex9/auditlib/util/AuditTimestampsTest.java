@@ -0,0 +1,56 @@
+package org.ex9.auditlib.util;
+
+import org.ex9.auditlib.dto.AuditDto;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AuditTimestampsTest {
+
+    private static final DateTimeFormatter FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSSSSS");
+
+    private static String expected(long epochMicros) {
+        Instant instant = Instant.EPOCH.plus(epochMicros, ChronoUnit.MICROS);
+        return LocalDateTime.ofInstant(instant, ZoneId.systemDefault()).format(FORMAT);
+    }
+
+    @Test
+    void format_shouldMatchLocalDateTimeWithMicros() {
+        long now = AuditTimestamps.nowMicros();
+        long[] samples = {
+                now,
+                now + 86_400_000_000L,
+                now - 86_400_000_000L * 200,
+                1_767_225_599_999_999L,
+                1_767_225_600_000_000L,
+                0L
+        };
+        for (long sample : samples) {
+            assertEquals(expected(sample), AuditTimestamps.format(sample));
+        }
+    }
+
+    @Test
+    void nowMicros_shouldFollowSystemClock() {
+        long before = System.currentTimeMillis() * 1_000;
+        long now = AuditTimestamps.nowMicros();
+
+        assertTrue(now >= before && now - before < 5_000_000, "now " + now + ", before " + before);
+    }
+
+    @Test
+    void auditDto_shouldFormatTimestampOnlyWhenRead() {
+        AuditDto dto = AuditDto.builder().type("START").build();
+
+        assertEquals(expected(dto.getEpochMicros()), dto.getTimestamp());
+        assertTrue(dto.getLog().startsWith("\n " + dto.getTimestamp() + " "));
+        assertEquals("2026-01-01T00:00:00", AuditDto.builder().timestamp("2026-01-01T00:00:00").build().getTimestamp());
+    }
+
+}
@@ -0,0 +1,45 @@
+package org.ex9.auditlib.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimeOrderedIdGeneratorTest {
+
+    private final TimeOrderedIdGenerator generator = new TimeOrderedIdGenerator();
+
+    @Test
+    void generateId_shouldBeVersion7WithRfcVariant() {
+        UUID id = generator.generateId();
+
+        assertEquals(7, id.version());
+        assertEquals(2, id.variant());
+    }
+
+    @Test
+    void next_shouldEncodeMillisecondsInHighBits() {
+        long epochMicros = 1_767_225_600_123_456L;
+
+        UUID id = TimeOrderedIdGenerator.next(epochMicros);
+
+        assertEquals(1_767_225_600_123L, id.getMostSignificantBits() >>> 16);
+        assertTrue(id.toString().startsWith("019b76da-a87b-7"), id.toString());
+    }
+
+    @Test
+    void next_shouldSortByTimeAsString() {
+        List<String> ids = new ArrayList<>();
+        for (long micros = 1_767_225_600_000_000L; micros < 1_767_225_600_000_000L + 5_000; micros += 250) {
+            ids.add(TimeOrderedIdGenerator.next(micros).toString());
+        }
+
+        assertEquals(ids.stream().sorted().toList(), ids);
+        assertEquals(ids.size(), new HashSet<>(ids).size());
+    }
+
+}